@@ -16,6 +16,20 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // Per-notification debug logging; release builds compile it out (see LogWrapper.HOT_PATH)
+        buildConfigField("boolean", "HOT_PATH_LOGS", "true")
+
+        // Export Room schemas so every version is checked in and migrations can be tested
+        javaCompileOptions {
+            annotationProcessorOptions {
+                arguments += mapOf("room.schemaLocation" to "$projectDir/schemas")
+            }
+        }
+    }
+
+    sourceSets {
+        getByName("androidTest").assets.srcDir("$projectDir/schemas")
     }
 
     signingConfigs {
@@ -29,6 +43,7 @@ android {
 
     buildTypes {
         release {
+            buildConfigField("boolean", "HOT_PATH_LOGS", "false")
             isMinifyEnabled = false
             proguardFiles(
                 getDefaultProguardFile("proguard-android-optimize.txt"),
@@ -41,6 +56,9 @@ android {
             signingConfig = signingConfigs.getByName("debug")
         }
     }
+    buildFeatures {
+        buildConfig = true
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
@@ -59,5 +77,6 @@ dependencies {
 
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
+    androidTestImplementation("androidx.room:room-testing:2.6.1")
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
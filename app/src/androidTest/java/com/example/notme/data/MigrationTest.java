@@ -0,0 +1,361 @@
+package com.example.notme.data;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.notme.util.TextCodec;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Migrates databases of every supported version, created from the exported schemas in
+ * app/schemas, to the current schema. Each migration path is checked against the exported
+ * current schema with MigrationTestHelper; the data tests then open the database through
+ * AppDatabase.build, which also runs Room's own validation against the entities.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MigrationTest {
+
+    private static final String TEST_DB = "migration-test.db";
+
+    @Rule
+    public final MigrationTestHelper helper = new MigrationTestHelper(
+            InstrumentationRegistry.getInstrumentation(), AppDatabase.class);
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void migratesEveryVersionToTheCurrentSchema() throws IOException {
+        for (int version = 2; version < AppDatabase.VERSION; version++) {
+            helper.createDatabase(TEST_DB, version).close();
+            // No dropped-table check: the ANALYZE in the migrations leaves sqlite_stat1 behind
+            helper.runMigrationsAndValidate(TEST_DB, AppDatabase.VERSION, false, Migrations.ALL).close();
+            context.deleteDatabase(TEST_DB);
+        }
+    }
+
+    @Test
+    public void createsNewDatabaseWithIncrementalVacuum() {
+        AppDatabase room = AppDatabase.build(context, TEST_DB);
+        try {
+            SupportSQLiteDatabase sqlite = room.getOpenHelper().getWritableDatabase();
+            assertEquals(2, count(sqlite, "PRAGMA auto_vacuum"));
+            assertEquals(0, room.dao().getTotalCount());
+        } finally {
+            room.close();
+        }
+    }
+
+    @Test
+    public void leavesAutoVacuumOfExistingDatabasesAlone() throws IOException {
+        helper.createDatabase(TEST_DB, 5).close();
+        AppDatabase room = AppDatabase.build(context, TEST_DB);
+        try {
+            // Converted by RetentionEnforcer on request only, as that takes a full VACUUM
+            assertEquals(0, count(room.getOpenHelper().getWritableDatabase(), "PRAGMA auto_vacuum"));
+        } finally {
+            room.close();
+        }
+    }
+
+    @Test
+    public void migrateFrom2_convertsTextTimestamps() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 2);
+        db.execSQL("INSERT INTO notifications (packageName, title, text, timestamp, isOngoing, category, actionCount) " +
+                "VALUES ('com.whatsapp', 'Alice', 'Hi there', '2024-05-01 08:30:00', 0, 'msg', 2)");
+        db.close();
+
+        NotificationEntity row = openAndReadSingleRow();
+        long expected = localMillis(2024, 5, 1, 8, 30);
+        assertEquals("com.whatsapp", row.getPackageName());
+        assertEquals("Alice", row.getTitle());
+        assertEquals("Hi there", row.getText());
+        assertEquals("msg", row.getCategory());
+        assertEquals(2, row.getActionCount());
+        assertEquals(expected, row.getTimestamp());
+        assertEquals(expected, row.getLastUpdated());
+        assertEquals(1, row.getUpdateCount());
+    }
+
+    @Test
+    public void migrateFrom2_unparseableTimestampBecomesZero() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 2);
+        db.execSQL("INSERT INTO notifications (packageName, title, text, timestamp, isOngoing, category, actionCount) " +
+                "VALUES ('com.whatsapp', 'Alice', 'Hi', 'not a date', 1, 'msg', 0)");
+        db.close();
+
+        NotificationEntity row = openAndReadSingleRow();
+        assertEquals(0, row.getTimestamp());
+        assertTrue(row.isOngoing());
+    }
+
+    @Test
+    public void migrateFrom3_keepsCoalescingColumns() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 3);
+        db.execSQL("INSERT INTO notifications (packageName, title, text, timestamp, isOngoing, category, " +
+                "actionCount, lastUpdated, updateCount) VALUES ('com.spotify.music', 'Song', 'Artist', " +
+                "'2024-05-01 08:30:00', 1, 'transport', 3, '2024-05-01 09:00:00', 42)");
+        db.close();
+
+        NotificationEntity row = openAndReadSingleRow();
+        assertEquals(localMillis(2024, 5, 1, 8, 30), row.getTimestamp());
+        assertEquals(localMillis(2024, 5, 1, 9, 0), row.getLastUpdated());
+        assertEquals(42, row.getUpdateCount());
+    }
+
+    @Test
+    public void migrateFrom4_addsQueryIndexes() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 4);
+        db.execSQL("INSERT INTO notifications (packageName, title, text, timestamp, isOngoing, category, " +
+                "actionCount, lastUpdated, updateCount) VALUES ('com.slack', 'Team', 'Standup', " +
+                "1714552200000, 0, 'msg', 1, 1714552200000, 1)");
+        db.close();
+
+        AppDatabase room = AppDatabase.build(context, TEST_DB);
+        try {
+            assertEquals(1, room.dao().getTotalCount());
+
+            Set<String> indexes = new HashSet<>();
+            try (Cursor c = room.getOpenHelper().getReadableDatabase().query(
+                    "SELECT name FROM sqlite_master WHERE type = 'index' AND tbl_name = 'notifications'")) {
+                while (c.moveToNext()) {
+                    indexes.add(c.getString(0));
+                }
+            }
+            assertTrue(indexes.contains("index_notifications_timestamp"));
+            assertTrue(indexes.contains("index_notifications_packageName_timestamp"));
+            assertTrue(indexes.contains("index_notifications_category_timestamp"));
+            assertTrue(indexes.contains("index_notifications_isOngoing_timestamp"));
+        } finally {
+            room.close();
+        }
+    }
+
+    @Test
+    public void migrateFrom5_indexesExistingRowsForSearch() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 5);
+        db.execSQL("INSERT INTO notifications (packageName, title, text, timestamp, isOngoing, category, " +
+                "actionCount, lastUpdated, updateCount) VALUES ('com.slack', 'Team', 'Standup moved', " +
+                "1714552200000, 0, 'msg', 1, 1714552200000, 1)");
+        db.execSQL("INSERT INTO notifications (packageName, title, text, timestamp, isOngoing, category, " +
+                "actionCount, lastUpdated, updateCount) VALUES ('com.whatsapp', 'Alice', 'Lunch?', " +
+                "1714552300000, 0, 'msg', 0, 1714552300000, 1)");
+        db.close();
+
+        AppDatabase room = AppDatabase.build(context, TEST_DB);
+        try {
+            NotificationDao dao = room.dao();
+            assertEquals(1, countMatches(dao, "stand"));
+            assertEquals(1, countMatches(dao, "lunch"));
+
+            // Rows written after the migration are indexed by the sync triggers
+            NotificationEntity entity = new NotificationEntity("com.slack", "Team", "Standup again",
+                    1714552400000L, false, "msg", 0);
+            insert(room, entity);
+            List<NotificationEntity> hits = dao.searchWithFilters(
+                    new NotificationQuery.Builder().text("standup").build().toSelect());
+            assertEquals(2, hits.size());
+            assertEquals("Standup again", hits.get(0).getText());
+        } finally {
+            room.close();
+        }
+    }
+
+    @Test
+    public void migrateFrom5_backfillsRollups() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 5);
+        db.execSQL("INSERT INTO notifications (packageName, title, text, timestamp, isOngoing, category, " +
+                "actionCount, lastUpdated, updateCount) VALUES ('com.slack', 'Team', 'Standup', " +
+                "1714552200000, 0, 'msg', 1, 1714552200000, 1)");
+        db.execSQL("INSERT INTO notifications (packageName, title, text, timestamp, isOngoing, category, " +
+                "actionCount, lastUpdated, updateCount) VALUES ('com.slack', 'Team', 'Retro', " +
+                "1714552300000, 0, NULL, 1, 1714552300000, 1)");
+        db.execSQL("INSERT INTO notifications (packageName, title, text, timestamp, isOngoing, category, " +
+                "actionCount, lastUpdated, updateCount) VALUES ('com.spotify.music', 'Song', 'Artist', " +
+                "1714552400000, 1, 'transport', 3, 1714552400000, 1)");
+        db.close();
+
+        AppDatabase room = AppDatabase.build(context, TEST_DB);
+        try {
+            NotificationDao dao = room.dao();
+            assertEquals(3, dao.getTotalCount());
+            assertEquals(1, dao.getOngoingCount());
+            assertEquals(2, dao.getRegularCount());
+            List<NotificationDao.PackageCount> packages = dao.getTopPackages();
+            assertEquals("com.slack", packages.get(0).packageName);
+            assertEquals(2, packages.get(0).count);
+            // msg, transport and the '' bucket of the null category
+            assertEquals(3, dao.getCategoryBreakdown().size());
+            // v12 re-buckets the times as UTC quarter hours
+            long quarters = 0;
+            for (Rollup rollup : dao.getRollups()) {
+                assertNotEquals("hour", rollup.getKind());
+                assertNotEquals("day", rollup.getKind());
+                if (rollup.getKind().equals("quarter")) {
+                    quarters += rollup.getCount();
+                }
+            }
+            assertEquals(3, quarters);
+        } finally {
+            room.close();
+        }
+    }
+
+    @Test
+    public void migrateFrom5_movesNamesIntoDictionaries() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 5);
+        db.execSQL("INSERT INTO notifications (packageName, title, text, timestamp, isOngoing, category, " +
+                "actionCount, lastUpdated, updateCount) VALUES ('com.slack', 'Team', 'Standup', " +
+                "1714552200000, 0, 'msg', 1, 1714552200000, 1)");
+        db.execSQL("INSERT INTO notifications (packageName, title, text, timestamp, isOngoing, category, " +
+                "actionCount, lastUpdated, updateCount) VALUES ('com.slack', 'Team', 'Retro', " +
+                "1714552300000, 0, NULL, 1, 1714552300000, 1)");
+        db.execSQL("INSERT INTO notifications (packageName, title, text, timestamp, isOngoing, category, " +
+                "actionCount, lastUpdated, updateCount) VALUES (NULL, 'System', 'Update', " +
+                "1714552400000, 0, 'sys', 0, 1714552400000, 1)");
+        db.close();
+
+        AppDatabase room = AppDatabase.build(context, TEST_DB);
+        try {
+            NotificationDao dao = room.dao();
+            SupportSQLiteDatabase sqlite = room.getOpenHelper().getWritableDatabase();
+            assertEquals(1, count(sqlite, "SELECT COUNT(*) FROM packages"));
+            assertEquals(2, count(sqlite, "SELECT COUNT(*) FROM categories"));
+
+            // The view joins the names back in, nulls included
+            List<NotificationEntity> rows = dao.getAllSync();
+            assertEquals(3, rows.size());
+            assertNull(rows.get(0).getPackageName());
+            assertEquals("Retro", rows.get(1).getText());
+            assertEquals("com.slack", rows.get(1).getPackageName());
+            assertNull(rows.get(1).getCategory());
+            assertEquals("msg", rows.get(2).getCategory());
+
+            assertEquals(Collections.singletonList("com.slack"), dao.getAllPackages());
+            assertEquals(2, dao.getNotificationsByPackage("com.slack").size());
+            assertEquals(2, dao.getPackageHistory("com.slack").get(0).count);
+            assertEquals(1, dao.getCategoryHistory("sys").get(0).count);
+        } finally {
+            room.close();
+        }
+    }
+
+    @Test
+    public void migrateFrom5_compressesLongBodies() throws IOException {
+        StringBuilder longText = new StringBuilder("Quarterly report attached.");
+        while (longText.length() <= TextCodec.COMPRESS_THRESHOLD) {
+            longText.append(" Please review the numbers before the meeting on Friday.");
+        }
+        longText.append(" Closing remark.");
+
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 5);
+        db.execSQL("INSERT INTO notifications (packageName, title, text, timestamp, isOngoing, category, " +
+                "actionCount, lastUpdated, updateCount) VALUES ('com.google.android.gm', 'Bob', ?, " +
+                "1714552200000, 0, 'email', 2, 1714552200000, 1)", new Object[]{longText.toString()});
+        db.execSQL("INSERT INTO notifications (packageName, title, text, timestamp, isOngoing, category, " +
+                "actionCount, lastUpdated, updateCount) VALUES ('com.whatsapp', 'Alice', 'Lunch?', " +
+                "1714552300000, 0, 'msg', 0, 1714552300000, 1)");
+        db.close();
+
+        AppDatabase room = AppDatabase.build(context, TEST_DB);
+        try {
+            NotificationDao dao = room.dao();
+            List<NotificationEntity> rows = dao.getAllSync();
+            assertFalse(rows.get(0).isTruncated());
+            assertNull(dao.getBody(rows.get(0).getId()));
+
+            NotificationEntity stored = rows.get(1);
+            assertTrue(stored.isTruncated());
+            assertTrue(stored.getText().length() <= TextCodec.PREVIEW_LENGTH);
+            assertTrue(longText.toString().startsWith(stored.getText()));
+            assertEquals(longText.toString(), DataRepository.fullText(dao, stored));
+
+            // The index covers the preview and, through terms, the rest of the body
+            assertEquals(1, countMatches(dao, "quarterly"));
+            assertEquals(1, countMatches(dao, "closing remark"));
+        } finally {
+            room.close();
+        }
+    }
+
+    @Test
+    public void migrateFrom5_countsExistingRowsAsOnePostEach() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 5);
+        db.execSQL("INSERT INTO notifications (packageName, title, text, timestamp, isOngoing, category, " +
+                "actionCount, lastUpdated, updateCount) VALUES ('com.android.systemui', 'USB debugging connected', " +
+                "'Tap to turn off', 1714552200000, 0, 'sys', 0, 1714552200000, 1)");
+        db.close();
+
+        AppDatabase room = AppDatabase.build(context, TEST_DB);
+        try {
+            NotificationDao dao = room.dao();
+            assertEquals(1, dao.getAllSync().get(0).getOccurrences());
+            assertEquals(1, dao.getTotalCount());
+            assertEquals(1, dao.getCategoryHistory("sys").get(0).count);
+        } finally {
+            room.close();
+        }
+    }
+
+    private static void insert(AppDatabase room, NotificationEntity entity) {
+        NotificationDao dao = room.dao();
+        dao.insertAll(room.dictionaries().toRows(dao, Collections.singletonList(entity)));
+    }
+
+    private static int count(SupportSQLiteDatabase db, String sql) {
+        try (Cursor c = db.query(sql)) {
+            c.moveToFirst();
+            return c.getInt(0);
+        }
+    }
+
+    private static int countMatches(NotificationDao dao, String text) {
+        return dao.countWithFilters(new NotificationQuery.Builder().text(text).build().toCount());
+    }
+
+    private NotificationEntity openAndReadSingleRow() {
+        AppDatabase room = AppDatabase.build(context, TEST_DB);
+        try {
+            List<NotificationEntity> rows = room.dao().getAllSync();
+            assertEquals(1, rows.size());
+            return rows.get(0);
+        } finally {
+            room.close();
+        }
+    }
+
+    private static long localMillis(int year, int month, int day, int hour, int minute) {
+        return LocalDateTime.of(year, month, day, hour, minute)
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.notme.data;
+
+import android.database.Cursor;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.notme.util.TextCodec;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * The write path (dictionaries, compression, folded repeats) and the trigger-maintained
+ * rollups, on an empty in-memory database opened with the app's configuration.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NotificationDaoTest {
+
+    private AppDatabase room;
+    private NotificationDao dao;
+
+    @Before
+    public void setUp() {
+        room = AppDatabase.buildInMemory(InstrumentationRegistry.getInstrumentation().getTargetContext());
+        dao = room.dao();
+    }
+
+    @After
+    public void tearDown() {
+        room.close();
+    }
+
+    @Test
+    public void addsEachNameToItsDictionaryOnce() {
+        insert(new NotificationEntity("com.slack", "Team", "Standup", 1714552200000L, false, "msg", 1));
+        insert(new NotificationEntity("com.slack", "Team", "Retro", 1714552300000L, false, null, 1));
+        insert(new NotificationEntity(null, "System", "Update", 1714552400000L, false, "sys", 0));
+        insert(new NotificationEntity("org.telegram", "Bob", "Hi", 1714552500000L, false, "msg", 0));
+        insert(new NotificationEntity("org.telegram", "Bob", "Hi again", 1714552600000L, false, "msg", 0));
+
+        assertEquals(2, count("SELECT COUNT(*) FROM packages"));
+        assertEquals(2, count("SELECT COUNT(*) FROM categories"));
+        assertEquals(2, dao.getNotificationsByPackage("org.telegram").size());
+        assertEquals(2, dao.getPackagesOver(1).size());
+
+        // Stats and senders are aggregates: the null package is 'unknown', apps keep their counts
+        List<NotificationDao.SenderCount> senders = dao.getSenderCounts();
+        assertEquals(3, senders.size());
+        assertEquals(2, senders.get(0).count);
+        assertEquals("unknown", senders.get(2).appName);
+        NotificationDao.TimeRange range = dao.getTimeRange();
+        assertEquals(1714552200000L, (long) range.oldest);
+        assertEquals(1714552600000L, (long) range.newest);
+
+        // Retention by package still finds the null package
+        assertEquals(1, dao.deleteOldestOfPackage(null, 10));
+        assertEquals(4, dao.getTotalCount());
+    }
+
+    @Test
+    public void rollupsFollowInsertsUpdatesAndDeletes() {
+        insert(new NotificationEntity("com.slack", "Team", "Standup", 1714552200000L, false, "msg", 1));
+        insert(new NotificationEntity("com.spotify.music", "Song", "Next", 1714552500000L, true, "transport", 3));
+        assertEquals(2, dao.getTotalCount());
+        assertEquals(1, dao.getOngoingCount());
+
+        // An update re-buckets the row, a delete takes it out again
+        NotificationEntity stored = dao.getNotificationsByPackage("com.spotify.music").get(0);
+        stored.setOngoing(false);
+        dao.updateAll(room.dictionaries().toRows(dao, Collections.singletonList(stored)));
+        assertEquals(0, dao.getOngoingCount());
+        assertEquals(2, dao.getRegularCount());
+
+        dao.deleteAll();
+        assertEquals(0, dao.getTotalCount());
+        assertTrue(dao.getTopPackages().isEmpty());
+        assertTrue(dao.getRollups().isEmpty());
+    }
+
+    @Test
+    public void compressesLongBodiesOnTheWayIn() {
+        String longText = longText();
+        insert(new NotificationEntity("com.google.android.gm", "Carol", longText, 1714552400000L, false, "email", 1));
+
+        NotificationEntity stored = dao.getAllSync().get(0);
+        assertTrue(stored.isTruncated());
+        assertTrue(stored.getText().length() <= TextCodec.PREVIEW_LENGTH);
+        assertEquals(longText, DataRepository.fullText(dao, stored));
+        // Words past the preview are found too
+        assertEquals(1, countMatches("closing"));
+
+        // Rewriting a read-back row keeps its compressed body and its index terms
+        stored.setOngoing(true);
+        dao.updateAll(room.dictionaries().toRows(dao, Collections.singletonList(stored)));
+        assertEquals(longText, DataRepository.fullText(dao, dao.getAllSync().get(0)));
+        assertEquals(1, countMatches("closing"));
+    }
+
+    @Test
+    public void countsEveryFoldedRepeat() {
+        insert(new NotificationEntity("com.android.systemui", "USB debugging connected", "Tap to turn off",
+                1714552200000L, false, "sys", 0));
+        NotificationEntity stored = dao.getAllSync().get(0);
+
+        // Two later posts of the same content counted in the row, as the write-behind queue does
+        NotificationEntity repeat = new NotificationEntity("com.android.systemui", "USB debugging connected",
+                "Tap to turn off", 1714552500000L, false, "sys", 0);
+        assertTrue(repeat.isRepeatOf(stored));
+        stored.mergeRepeat(repeat);
+        stored.mergeRepeat(repeat);
+        dao.updateAll(room.dictionaries().toRows(dao, Collections.singletonList(stored)));
+
+        NotificationEntity folded = dao.getAllSync().get(0);
+        assertEquals(3, folded.getOccurrences());
+        assertEquals(1714552500000L, folded.getLastUpdated());
+
+        // Dashboard counts see every post; the per-package row limit still sees one row
+        assertEquals(3, dao.getTotalCount());
+        assertEquals(3, dao.getTopPackages().get(0).count);
+        assertEquals(3, dao.getCategoryHistory("sys").get(0).count);
+        assertEquals(1, dao.countRowsOfPackage("com.android.systemui"));
+    }
+
+    static String longText() {
+        StringBuilder text = new StringBuilder("Quarterly report attached.");
+        while (text.length() <= TextCodec.COMPRESS_THRESHOLD) {
+            text.append(" Please review the numbers before the meeting on Friday.");
+        }
+        return text.append(" Closing remark.").toString();
+    }
+
+    private void insert(NotificationEntity entity) {
+        dao.insertAll(room.dictionaries().toRows(dao, Collections.singletonList(entity)));
+    }
+
+    private int countMatches(String text) {
+        return dao.countWithFilters(new NotificationQuery.Builder().text(text).build().toCount());
+    }
+
+    private int count(String sql) {
+        try (Cursor c = room.getOpenHelper().getWritableDatabase().query(sql)) {
+            c.moveToFirst();
+            return c.getInt(0);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.notme.data;
+
+import android.database.Cursor;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Text-filtered exports over more rows than one chunk: every match is written once, in list
+ * order, also when rows are deleted while the export runs.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NotificationExporterTest {
+
+    private static final long FIRST_POST = 1714552200000L;
+    private static final int MATCHES = NotificationExporter.CHUNK_SIZE * 2 + 500;
+
+    private AppDatabase room;
+    private NotificationDao dao;
+
+    @Before
+    public void setUp() {
+        room = AppDatabase.buildInMemory(InstrumentationRegistry.getInstrumentation().getTargetContext());
+        dao = room.dao();
+        // Matches in runs of seven that share a post time, each followed by a row that does not match
+        List<NotificationEntity> rows = new ArrayList<>();
+        for (int i = 0; i < MATCHES; i++) {
+            long timestamp = postTime(i);
+            rows.add(new NotificationEntity("com.slack", "Team", "Lunch " + i, timestamp, false, "msg", 0));
+            rows.add(new NotificationEntity("com.slack", "Team", "Standup " + i, timestamp, false, "msg", 0));
+        }
+        dao.insertAll(room.dictionaries().toRows(dao, rows));
+    }
+
+    @After
+    public void tearDown() {
+        room.close();
+    }
+
+    @Test
+    public void exportsEachTextMatchOnce() throws IOException {
+        for (NotificationQuery.Sort sort : new NotificationQuery.Sort[] {
+                NotificationQuery.Sort.NEWEST_FIRST, NotificationQuery.Sort.OLDEST_FIRST}) {
+            NotificationQuery lunch = new NotificationQuery.Builder().text("lunch").sort(sort).build();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            NotificationExporter.Result result =
+                    new NotificationExporter(room).export(out, lunch, ExportFormat.COLUMNAR, null, null);
+            assertEquals(MATCHES, result.rows);
+            assertExported(dao.searchWithFilters(lunch.toSelect()), out);
+        }
+        assertEquals(0, count("SELECT COUNT(*) FROM sqlite_master WHERE name = 'export_matches'"));
+    }
+
+    @Test
+    public void skipsRowsDeletedWhileExporting() throws IOException {
+        NotificationQuery lunch = new NotificationQuery.Builder().text("lunch").build();
+        int[] deleted = new int[1];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // After the first chunk, delete more than a whole chunk of the matches still to come
+        NotificationExporter.Result result = new NotificationExporter(room).export(out, lunch, ExportFormat.COLUMNAR,
+                written -> {
+                    if (deleted[0] == 0) {
+                        int before = dao.countWithFilters(lunch.toCount());
+                        room.getOpenHelper().getWritableDatabase().execSQL(
+                                "DELETE FROM notifications WHERE timestamp BETWEEN ? AND ?",
+                                new Object[] {postTime(MATCHES - 2300), postTime(MATCHES - 1100)});
+                        deleted[0] = before - dao.countWithFilters(lunch.toCount());
+                    }
+                }, null);
+        assertTrue(deleted[0] > NotificationExporter.CHUNK_SIZE);
+        assertEquals(MATCHES - deleted[0], result.rows);
+        assertExported(dao.searchWithFilters(lunch.toSelect()), out);
+    }
+
+    private static long postTime(int match) {
+        return FIRST_POST + match / 7 * 1000L;
+    }
+
+    private static void assertExported(List<NotificationEntity> expected, ByteArrayOutputStream out)
+            throws IOException {
+        NotificationImporter.RowReader reader =
+                ExportFormat.COLUMNAR.openReader(new ByteArrayInputStream(out.toByteArray()));
+        NotificationExporter.Row row = new NotificationExporter.Row();
+        for (NotificationEntity entity : expected) {
+            assertTrue(reader.read(row));
+            assertEquals(entity.getText(), row.text);
+            assertEquals(entity.getTimestamp(), row.timestamp);
+        }
+        assertFalse(reader.read(row));
+    }
+
+    private int count(String sql) {
+        try (Cursor c = room.getOpenHelper().getWritableDatabase().query(sql)) {
+            c.moveToFirst();
+            return c.getInt(0);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.notme.data;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Exports read back through NotificationImporter on an in-memory database: rollups and the
+ * full-text index are filled in, stored rows are not imported twice, and imported history
+ * sorts by post time among the rows already there.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NotificationImporterTest {
+
+    private AppDatabase room;
+    private NotificationDao dao;
+
+    @Before
+    public void setUp() {
+        room = AppDatabase.buildInMemory(InstrumentationRegistry.getInstrumentation().getTargetContext());
+        dao = room.dao();
+        insert(new NotificationEntity("com.slack", "Team", "Standup", 1714552200000L, false, "msg", 1));
+        insert(new NotificationEntity("com.slack", "Team", "Retro", 1714552300000L, false, null, 1));
+        insert(new NotificationEntity(null, "Song", "Artist", 1714552400000L, true, "transport", 3));
+    }
+
+    @After
+    public void tearDown() {
+        room.close();
+    }
+
+    @Test
+    public void importsExportsOnce() throws IOException {
+        NotificationExporter exporter = new NotificationExporter(room);
+        ByteArrayOutputStream columnar = new ByteArrayOutputStream();
+        exporter.export(columnar, NotificationQuery.ALL, ExportFormat.COLUMNAR, null, null);
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        exporter.export(csv, NotificationQuery.ALL, ExportFormat.CSV, null, null);
+        dao.deleteAll();
+
+        // Rollups and the full-text index are filled in with the triggers suspended
+        NotificationImporter importer = new NotificationImporter(room);
+        NotificationImporter.Result result =
+                importer.importFrom(new ByteArrayInputStream(columnar.toByteArray()), null, null);
+        assertEquals(3, result.imported);
+        assertEquals(3, dao.getTotalCount());
+        assertEquals(1, dao.getOngoingCount());
+        assertEquals("com.slack", dao.getTopPackages().get(0).packageName);
+        assertEquals(2, dao.getTopPackages().get(0).count);
+        List<NotificationEntity> hits = dao.searchWithFilters(
+                new NotificationQuery.Builder().text("retro").build().toSelect());
+        assertEquals(1, hits.size());
+        assertNull(hits.get(0).getCategory());
+        // Exported newest first, imported in time order
+        assertEquals("Standup", dao.getAllSync().get(2).getText());
+
+        // The triggers are back for ordinary writes
+        insert(new NotificationEntity("com.slack", "Team", "Planning", 1714552500000L, false, "msg", 0));
+        assertEquals(4, dao.getTotalCount());
+
+        // Everything is already stored, whichever format it comes from
+        result = importer.importFrom(new ByteArrayInputStream(columnar.toByteArray()), null, null);
+        assertEquals(0, result.imported);
+        assertEquals(3, result.duplicates);
+        result = importer.importFrom(new ByteArrayInputStream(csv.toByteArray()), null, null);
+        assertEquals(0, result.imported);
+        assertEquals(3, result.duplicates);
+        assertEquals(4, dao.getTotalCount());
+        assertEquals(3, dao.getTopPackages().get(0).count);
+    }
+
+    @Test
+    public void comparesTextToFindStoredRows() throws IOException {
+        insert(new NotificationEntity("com.google.android.gm", "Carol", NotificationDaoTest.longText(),
+                1714552450000L, false, "email", 1));
+        ByteArrayOutputStream columnar = new ByteArrayOutputStream();
+        new NotificationExporter(room).export(columnar, NotificationQuery.ALL, ExportFormat.COLUMNAR, null, null);
+
+        // A compressed row is matched on its preview
+        NotificationImporter importer = new NotificationImporter(room);
+        NotificationImporter.Result result =
+                importer.importFrom(new ByteArrayInputStream(columnar.toByteArray()), null, null);
+        assertEquals(0, result.imported);
+        assertEquals(4, result.duplicates);
+
+        // Another post with the same package and title in the same second is not a duplicate
+        dao.deleteAll();
+        insert(new NotificationEntity("com.slack", "Team", "Standup moved", 1714552200000L, false, "msg", 1));
+        result = importer.importFrom(new ByteArrayInputStream(columnar.toByteArray()), null, null);
+        assertEquals(4, result.imported);
+        assertEquals(0, result.duplicates);
+    }
+
+    @Test
+    public void recognisesMultiLineRowsFromCsv() throws IOException {
+        insert(new NotificationEntity("com.slack", "Team\nStandup", "Notes:\r\n- ship it\n- retro", 1714552450000L,
+                false, "msg", 0));
+        insert(new NotificationEntity("com.google.android.gm", "Carol", NotificationDaoTest.longText().replace(". ", ".\n"),
+                1714552460000L, false, "email", 1));
+        assertTrue(dao.getNotificationsByPackage("com.google.android.gm").get(0).isTruncated());
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        new NotificationExporter(room).export(csv, NotificationQuery.ALL, ExportFormat.CSV, null, null);
+
+        // CSV writes line breaks flattened; the stored rows are still recognised
+        NotificationImporter.Result result = new NotificationImporter(room)
+                .importFrom(new ByteArrayInputStream(csv.toByteArray()), null, null);
+        assertEquals(0, result.imported);
+        assertEquals(5, result.duplicates);
+        assertEquals(5, dao.getAllSync().size());
+    }
+
+    @Test
+    public void sortsImportedHistoryByPostTime() throws IOException {
+        ByteArrayOutputStream columnar = new ByteArrayOutputStream();
+        new NotificationExporter(room).export(columnar, NotificationQuery.ALL, ExportFormat.COLUMNAR, null, null);
+        dao.deleteAll();
+        insert(new NotificationEntity("com.slack", "Team", "Planning", 1714552500000L, false, "msg", 0));
+
+        // The imported rows get ids after the live one but are older
+        new NotificationImporter(room).importFrom(new ByteArrayInputStream(columnar.toByteArray()), null, null);
+        List<NotificationEntity> page = dao.getPageBefore(Long.MAX_VALUE, Long.MAX_VALUE, 2);
+        assertEquals("Planning", page.get(0).getText());
+        assertEquals("Artist", page.get(1).getText());
+        NotificationEntity last = page.get(1);
+        assertEquals("Retro", dao.getPageBefore(last.getTimestamp(), last.getId(), 1).get(0).getText());
+        List<NotificationEntity> oldest = dao.searchWithFilters(new NotificationQuery.Builder()
+                .sort(NotificationQuery.Sort.OLDEST_FIRST).limit(1).build().toSelect());
+        assertEquals("Standup", oldest.get(0).getText());
+
+        // The row limit keeps the newest posts, not the newest ids
+        new RetentionEnforcer(room).run(new RetentionPolicy(0, 2, 0, 0), System.currentTimeMillis(), false);
+        List<NotificationEntity> kept = dao.getAllSync();
+        assertEquals(2, kept.size());
+        assertEquals("Planning", kept.get(0).getText());
+        assertEquals("Artist", kept.get(1).getText());
+    }
+
+    private void insert(NotificationEntity entity) {
+        dao.insertAll(room.dictionaries().toRows(dao, Collections.singletonList(entity)));
+    }
+}
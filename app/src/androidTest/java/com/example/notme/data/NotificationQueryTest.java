@@ -0,0 +1,125 @@
+package com.example.notme.data;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * NotificationQuery run through NotificationDao on an in-memory database: paging, list
+ * filters, text and the added-since range the research screen merges in.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NotificationQueryTest {
+
+    private AppDatabase room;
+    private NotificationDao dao;
+
+    @Before
+    public void setUp() {
+        room = AppDatabase.buildInMemory(InstrumentationRegistry.getInstrumentation().getTargetContext());
+        dao = room.dao();
+        insert(new NotificationEntity("com.slack", "Team", "Standup", 1714552200000L, false, "msg", 1));
+        insert(new NotificationEntity("com.whatsapp", "Alice", "Lunch?", 1714552300000L, false, "msg", 0));
+        insert(new NotificationEntity("com.slack", "Team", "Retro", 1714552400000L, false, null, 1));
+        insert(new NotificationEntity(null, "System", "Update", 1714552500000L, true, "sys", 0));
+    }
+
+    @After
+    public void tearDown() {
+        room.close();
+    }
+
+    @Test
+    public void pagesByPackageWithKeysetCursor() {
+        // The null package comes first
+        NotificationQuery byPackage = new NotificationQuery.Builder()
+                .sort(NotificationQuery.Sort.PACKAGE_ASC).limit(2).build();
+        List<NotificationEntity> first = dao.searchWithFilters(byPackage.toSelect());
+        assertEquals(2, first.size());
+        assertNull(first.get(0).getPackageName());
+        assertEquals("Retro", first.get(1).getText());
+        List<NotificationEntity> second = dao.searchWithFilters(byPackage.after(first.get(1)).toSelect());
+        assertEquals(2, second.size());
+        assertEquals("Standup", second.get(0).getText());
+        assertEquals("com.whatsapp", second.get(1).getPackageName());
+        assertEquals(4, dao.countWithFilters(byPackage.toCount()));
+    }
+
+    @Test
+    public void filtersOnListsAndText() {
+        // Three packages take a padded four-slot IN list
+        NotificationQuery three = new NotificationQuery.Builder()
+                .packageName("com.slack").packageName("com.whatsapp").packageName("com.spotify.music")
+                .ongoing(false).build();
+        assertEquals(3, dao.searchWithFilters(three.toSelect()).size());
+
+        NotificationQuery filtered = new NotificationQuery.Builder()
+                .category("msg").text("lunch").build();
+        List<NotificationEntity> hits = dao.searchWithFilters(filtered.toSelect());
+        assertEquals(1, hits.size());
+        assertEquals("Alice", hits.get(0).getTitle());
+        assertEquals(filtered, new NotificationQuery.Builder().text("Lunch!").category("msg").build());
+    }
+
+    @Test
+    public void matchesPackageNamesInText() {
+        // The index holds titles and texts only; package names match through the dictionary
+        NotificationQuery whatsapp = new NotificationQuery.Builder().text("whatsapp").build();
+        List<NotificationEntity> hits = dao.searchWithFilters(whatsapp.toSelect());
+        assertEquals(1, hits.size());
+        assertEquals("Alice", hits.get(0).getTitle());
+
+        // A row that matches both ways is found once
+        insert(new NotificationEntity("com.whatsapp", "Bob", "Call me on WhatsApp", 1714552600000L, false, "msg", 0));
+        insert(new NotificationEntity("com.slack", "Carol", "Moved to WhatsApp", 1714552700000L, false, "msg", 0));
+        assertEquals(3, dao.countWithFilters(whatsapp.toCount()));
+        NotificationQuery paged = whatsapp.toBuilder().limit(2).build();
+        List<NotificationEntity> page = dao.searchWithFilters(paged.toSelect());
+        assertEquals(2, page.size());
+        assertEquals("Moved to WhatsApp", page.get(0).getText());
+        assertEquals("Call me on WhatsApp", page.get(1).getText());
+        page = dao.searchWithFilters(paged.after(page.get(1)).toSelect());
+        assertEquals(1, page.size());
+        assertEquals("Lunch?", page.get(0).getText());
+
+        // Each word matches in the text or the package name, by word prefix in both
+        List<NotificationEntity> mixed = dao.searchWithFilters(
+                new NotificationQuery.Builder().text("whatsapp lunch").build().toSelect());
+        assertEquals(1, mixed.size());
+        assertEquals("Alice", mixed.get(0).getTitle());
+        assertEquals(2, dao.countWithFilters(new NotificationQuery.Builder().text("slack team").build().toCount()));
+        assertEquals(0, dao.countWithFilters(new NotificationQuery.Builder().text("atsapp").build().toCount()));
+    }
+
+    @Test
+    public void readsOnlyRowsAddedSinceLastSeen() {
+        NotificationQuery byPackage = new NotificationQuery.Builder()
+                .sort(NotificationQuery.Sort.PACKAGE_ASC).limit(2).build();
+        List<NotificationEntity> first = dao.searchWithFilters(byPackage.toSelect());
+        List<NotificationEntity> second = dao.searchWithFilters(byPackage.after(first.get(1)).toSelect());
+
+        // Only rows added after the last seen id are read, and they sort into the loaded page
+        long seenId = dao.getLatestId();
+        insert(new NotificationEntity("com.slack", "Team", "Planning", 1714552600000L, false, "msg", 0));
+        insert(new NotificationEntity("com.whatsapp", "Bob", "Hi", 1714552700000L, false, "msg", 0));
+        NotificationQuery slack = new NotificationQuery.Builder().packageName("com.slack").build();
+        List<NotificationEntity> added = dao.searchWithFilters(
+                slack.toBuilder().addedBetween(seenId, dao.getLatestId()).build().toSelect());
+        assertEquals(1, added.size());
+        assertEquals("Planning", added.get(0).getText());
+        assertTrue(byPackage.comparator().compare(added.get(0), second.get(0)) < 0);
+    }
+
+    private void insert(NotificationEntity entity) {
+        dao.insertAll(room.dictionaries().toRows(dao, Collections.singletonList(entity)));
+    }
+}
@@ -6,10 +6,13 @@ import android.widget.Button;
 import android.widget.TextView;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
-import com.example.notme.data.AppDatabase;
+import com.example.notme.data.DashboardSnapshot;
+import com.example.notme.data.DataRepository;
 import com.example.notme.data.NotificationDao;
-import com.example.notme.data.NotificationEntity;
+import com.example.notme.util.AppNames;
+import com.example.notme.util.TextBars;
 import com.google.android.material.card.MaterialCardView;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.ExecutorService;
@@ -31,11 +34,9 @@ public class DashboardActivity extends AppCompatActivity {
     private MaterialCardView cardLast7Days;
 
     private ExecutorService executor;
-    private NotificationDao dao;
 
-    private List<NotificationDao.PackageCount> topPackages;
-    private List<NotificationDao.CategoryCount> categories;
-    private List<NotificationDao.DayCount> last7Days;
+    // Last loaded snapshot; the drill-down dialogs read from it instead of querying again
+    private DashboardSnapshot snapshot;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -59,9 +60,8 @@ public class DashboardActivity extends AppCompatActivity {
         Button btnBack = findViewById(R.id.btn_back);
         btnBack.setOnClickListener(v -> finish());
 
-        // Initialize database access
+        // Initialize background loading
         executor = Executors.newSingleThreadExecutor();
-        dao = AppDatabase.getInstance(this).dao();
 
         // Set up click listeners for drill-down
         setupClickListeners();
@@ -97,36 +97,37 @@ public class DashboardActivity extends AppCompatActivity {
 
     private void loadDashboardData() {
         executor.execute(() -> {
-            // Get counts
-            int totalCount = dao.getTotalCount();
-            int ongoingCount = dao.getOngoingCount();
-            int regularCount = dao.getRegularCount();
-
-            // Get top packages
-            topPackages = dao.getTopPackages();
+            // All numbers come from one cached snapshot
+            DashboardSnapshot loaded = DataRepository.getDashboardSnapshot(this);
+            int totalCount = loaded.getTotalCount();
+            int ongoingCount = loaded.getOngoingCount();
+            int regularCount = loaded.getRegularCount();
+
+            // Top packages
+            List<NotificationDao.PackageCount> topPackages = loaded.getTopPackages();
             StringBuilder topAppsText = new StringBuilder();
             int maxCount = topPackages.isEmpty() ? 1 : topPackages.get(0).count;
             for (NotificationDao.PackageCount pc : topPackages) {
-                String appName = extractAppName(pc.packageName);
-                String bar = createBar(pc.count, maxCount);
+                String appName = AppNames.shortName(pc.packageName);
+                String bar = TextBars.bar(pc.count, maxCount);
                 topAppsText.append(String.format(Locale.getDefault(),
                     "%s %s (%,d)\n", bar, appName, pc.count));
             }
 
-            // Get categories
-            categories = dao.getCategoryBreakdown();
+            // Categories
+            List<NotificationDao.CategoryCount> categories = loaded.getCategories();
             StringBuilder categoriesText = new StringBuilder();
             maxCount = categories.isEmpty() ? 1 : categories.get(0).count;
             for (NotificationDao.CategoryCount cc : categories) {
                 String category = cc.category == null || cc.category.isEmpty() ?
                     "Uncategorized" : cc.category;
-                String bar = createBar(cc.count, maxCount);
+                String bar = TextBars.bar(cc.count, maxCount);
                 categoriesText.append(String.format(Locale.getDefault(),
                     "%s %s (%,d)\n", bar, category, cc.count));
             }
 
-            // Get hourly distribution
-            List<NotificationDao.HourCount> hourly = dao.getHourlyDistribution();
+            // Hourly distribution (copied, the snapshot list is in hour order)
+            List<NotificationDao.HourCount> hourly = new ArrayList<>(loaded.getHourly());
             StringBuilder hourlyText = new StringBuilder();
             maxCount = 1;
             for (NotificationDao.HourCount hc : hourly) {
@@ -137,27 +138,29 @@ public class DashboardActivity extends AppCompatActivity {
             hourly.sort((a, b) -> Integer.compare(b.count, a.count));
             for (int i = 0; i < Math.min(8, hourly.size()); i++) {
                 NotificationDao.HourCount hc = hourly.get(i);
-                String bar = createBar(hc.count, maxCount);
+                String bar = TextBars.bar(hc.count, maxCount);
                 String timeLabel = String.format(Locale.getDefault(), "%s:00", hc.hour);
                 hourlyText.append(String.format(Locale.getDefault(),
                     "%s %s (%,d)\n", bar, timeLabel, hc.count));
             }
 
-            // Get last 7 days
-            last7Days = dao.getLast7Days();
+            // Last 7 days
+            List<NotificationDao.DayCount> last7Days = loaded.getLastDays();
             StringBuilder daysText = new StringBuilder();
             maxCount = 1;
             for (NotificationDao.DayCount dc : last7Days) {
                 if (dc.count > maxCount) maxCount = dc.count;
             }
             for (NotificationDao.DayCount dc : last7Days) {
-                String bar = createBar(dc.count, maxCount);
+                String bar = TextBars.bar(dc.count, maxCount);
                 daysText.append(String.format(Locale.getDefault(),
                     "%s %s (%,d)\n", bar, dc.date, dc.count));
             }
 
             // Update UI on main thread
             runOnUiThread(() -> {
+                snapshot = loaded;
+
                 txtTotalCount.setText(String.format(Locale.getDefault(), "%,d", totalCount));
                 txtOngoingCount.setText(String.format(Locale.getDefault(), "%,d", ongoingCount));
                 txtRegularCount.setText(String.format(Locale.getDefault(), "%,d", regularCount));
@@ -175,6 +178,7 @@ public class DashboardActivity extends AppCompatActivity {
     }
 
     private void showTopAppsDetails() {
+        List<NotificationDao.PackageCount> topPackages = snapshot != null ? snapshot.getTopPackages() : null;
         if (topPackages == null || topPackages.isEmpty()) {
             showMessage("No Data", "No app data available yet.");
             return;
@@ -184,7 +188,7 @@ public class DashboardActivity extends AppCompatActivity {
         for (int i = 0; i < topPackages.size(); i++) {
             NotificationDao.PackageCount pc = topPackages.get(i);
             items[i] = String.format(Locale.getDefault(), "%s (%,d notifications)",
-                extractAppName(pc.packageName), pc.count);
+                AppNames.shortName(pc.packageName), pc.count);
         }
 
         new AlertDialog.Builder(this, R.style.DialogTheme)
@@ -204,6 +208,7 @@ public class DashboardActivity extends AppCompatActivity {
     }
 
     private void showCategoriesDetails() {
+        List<NotificationDao.CategoryCount> categories = snapshot != null ? snapshot.getCategories() : null;
         if (categories == null || categories.isEmpty()) {
             showMessage("No Data", "No category data available yet.");
             return;
@@ -235,41 +240,35 @@ public class DashboardActivity extends AppCompatActivity {
     }
 
     private void showHourlyDetails() {
-        executor.execute(() -> {
-            List<NotificationDao.HourCount> hourly = dao.getHourlyDistribution();
-            StringBuilder detailText = new StringBuilder();
-
-            if (hourly.isEmpty()) {
-                detailText.append("No hourly data available");
-            } else {
-                int maxCount = 1;
-                for (NotificationDao.HourCount hc : hourly) {
-                    if (hc.count > maxCount) maxCount = hc.count;
-                }
-
-                // Sort by hour
-                hourly.sort((a, b) -> Integer.compare(
-                    Integer.parseInt(a.hour), Integer.parseInt(b.hour)));
-
-                for (NotificationDao.HourCount hc : hourly) {
-                    String bar = createBar(hc.count, maxCount);
-                    String timeLabel = String.format(Locale.getDefault(), "%s:00", hc.hour);
-                    detailText.append(String.format(Locale.getDefault(),
-                        "%s  %s (%,d)\n", bar, timeLabel, hc.count));
-                }
+        // Served from the loaded snapshot, which is already in hour order
+        List<NotificationDao.HourCount> hourly = snapshot != null ? snapshot.getHourly() : null;
+        StringBuilder detailText = new StringBuilder();
+
+        if (hourly == null || hourly.isEmpty()) {
+            detailText.append("No hourly data available");
+        } else {
+            int maxCount = 1;
+            for (NotificationDao.HourCount hc : hourly) {
+                if (hc.count > maxCount) maxCount = hc.count;
             }
 
-            runOnUiThread(() -> {
-                new AlertDialog.Builder(this, R.style.DialogTheme)
-                    .setTitle("🕐 24-Hour Activity Distribution")
-                    .setMessage(detailText.toString().trim())
-                    .setPositiveButton("OK", null)
-                    .show();
-            });
-        });
+            for (NotificationDao.HourCount hc : hourly) {
+                String bar = TextBars.bar(hc.count, maxCount);
+                String timeLabel = String.format(Locale.getDefault(), "%s:00", hc.hour);
+                detailText.append(String.format(Locale.getDefault(),
+                    "%s  %s (%,d)\n", bar, timeLabel, hc.count));
+            }
+        }
+
+        new AlertDialog.Builder(this, R.style.DialogTheme)
+            .setTitle("🕐 24-Hour Activity Distribution")
+            .setMessage(detailText.toString().trim())
+            .setPositiveButton("OK", null)
+            .show();
     }
 
     private void showDaysDetails() {
+        List<NotificationDao.DayCount> last7Days = snapshot != null ? snapshot.getLastDays() : null;
         if (last7Days == null || last7Days.isEmpty()) {
             showMessage("No Data", "No daily data available yet.");
             return;
@@ -306,43 +305,6 @@ public class DashboardActivity extends AppCompatActivity {
             .show();
     }
 
-    private String extractAppName(String packageName) {
-        if (packageName == null) return "Unknown";
-
-        // Remove common prefixes
-        String name = packageName;
-        if (name.startsWith("com.")) name = name.substring(4);
-        if (name.startsWith("android.")) name = name.substring(8);
-        if (name.startsWith("google.android.")) name = name.substring(15);
-
-        // Get first part after prefix
-        int dotIndex = name.indexOf('.');
-        if (dotIndex > 0) {
-            name = name.substring(0, dotIndex);
-        }
-
-        return name;
-    }
-
-    private String createBar(int count, int maxCount) {
-        if (maxCount == 0) return "";
-
-        int barLength = (int) ((count * 15.0) / maxCount);
-        if (barLength < 1 && count > 0) barLength = 1;
-
-        StringBuilder bar = new StringBuilder();
-        for (int i = 0; i < barLength; i++) {
-            bar.append("█");
-        }
-
-        // Add lighter bars for remaining space
-        for (int i = barLength; i < 15; i++) {
-            bar.append("░");
-        }
-
-        return bar.toString();
-    }
-
     @Override
     protected void onDestroy() {
         super.onDestroy();
@@ -0,0 +1,32 @@
+package com.example.notme;
+
+import android.content.Context;
+
+/**
+ * The minimum LogWrapper level chosen in the Logcat console, saved in SharedPreferences so it
+ * holds across restarts. LogWrapper itself takes no Context: the benchmarks compile it on the JVM.
+ */
+final class LogSettings {
+
+    private static final String PREFS_NAME = "Logging";
+    private static final String KEY_MIN_LEVEL = "minLevel";
+
+    // Labels for LogWrapper.DEBUG to ERROR, in level order
+    static final String[] LEVELS = {"DEBUG", "INFO", "WARN", "ERROR"};
+
+    private LogSettings() {
+    }
+
+    // Apply the saved level; call before the first log line of the app and of the listener service
+    static void apply(Context context) {
+        LogWrapper.setMinLevel(context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .getInt(KEY_MIN_LEVEL, LogWrapper.DEBUG));
+    }
+
+    static void save(Context context, int level) {
+        LogWrapper.setMinLevel(level);
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putInt(KEY_MIN_LEVEL, level)
+                .apply();
+    }
+}
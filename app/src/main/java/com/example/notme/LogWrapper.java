@@ -2,42 +2,90 @@ package com.example.notme;
 
 import android.util.Log;
 
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
 
 /**
  * LogWrapper provides an internal log buffer for the app.
  * All logs are written to both standard Logcat and an in-memory circular buffer.
+ *
+ * The buffer is a lock-free ring: each writer claims the next sequence number and
+ * stores its entry in slot (sequence % capacity), overwriting the oldest one. Readers
+ * copy the slots without blocking writers and keep only entries whose sequence matches
+ * the slot they expected, so a snapshot is always in order. A read stops at the first
+ * slot whose writer has claimed it but not stored its entry yet, and reports how far it
+ * got, so the next read picks that entry up. Under extreme contention a writer that is
+ * lapped by another before it stores its entry is dropped.
+ *
+ * Calls below the runtime minimum level return before doing any work. The level is set
+ * in the Logcat console and applied at startup (see LogSettings).
+ * The parameterized overloads substitute "{}" placeholders and the Supplier overloads
+ * build the message only when the level is enabled, so a disabled call allocates
+ * nothing as long as its arguments are already objects (or cached boxes) and a
+ * supplier lambda captures nothing. Per-notification logging is additionally guarded
+ * by HOT_PATH, which is false in release builds.
  */
 public class LogWrapper {
-    private static final int MAX_BUFFER_SIZE = 500;
-    private static LogWrapper instance;
+    // Power of two so the slot index is a mask
+    private static final int MAX_BUFFER_SIZE = 512;
+    private static final int MASK = MAX_BUFFER_SIZE - 1;
+    private static final LogWrapper instance = new LogWrapper();
 
-    private final List<LogEntry> buffer;
-    private final Object lock = new Object();
+    public static final int DEBUG = 0;
+    public static final int INFO = 1;
+    public static final int WARN = 2;
+    public static final int ERROR = 3;
+
+    // Compile-time constant (BuildConfig.HOT_PATH_LOGS): code inside `if (LogWrapper.HOT_PATH)`
+    // is removed by javac in release builds
+    public static final boolean HOT_PATH = BuildConfig.HOT_PATH_LOGS;
+
+    private static volatile int minLevel = DEBUG;
+
+    private final AtomicReferenceArray<LogEntry> slots = new AtomicReferenceArray<>(MAX_BUFFER_SIZE);
+    // Next sequence number to hand out
+    private final AtomicLong nextSequence = new AtomicLong();
+    // Entries below this sequence were cleared
+    private volatile long clearedBefore;
 
     private LogWrapper() {
-        buffer = new ArrayList<>();
     }
 
     public static LogWrapper getInstance() {
-        if (instance == null) {
-            synchronized (LogWrapper.class) {
-                if (instance == null) {
-                    instance = new LogWrapper();
-                }
-            }
-        }
         return instance;
     }
 
+    /**
+     * Drop messages below level (DEBUG, INFO, WARN or ERROR) from both Logcat and the buffer
+     */
+    public static void setMinLevel(int level) {
+        minLevel = level;
+    }
+
+    public static int getMinLevel() {
+        return minLevel;
+    }
+
+    public static boolean isLoggable(int level) {
+        return level >= minLevel;
+    }
+
+    public static boolean isDebugEnabled() {
+        return DEBUG >= minLevel;
+    }
+
     /**
      * Log a debug message
      */
     public static void d(String tag, String message) {
+        if (DEBUG < minLevel) return;
         Log.d(tag, message);
         getInstance().addToBuffer("D", tag, message);
     }
@@ -46,6 +94,7 @@ public class LogWrapper {
      * Log an info message
      */
     public static void i(String tag, String message) {
+        if (INFO < minLevel) return;
         Log.i(tag, message);
         getInstance().addToBuffer("I", tag, message);
     }
@@ -54,6 +103,7 @@ public class LogWrapper {
      * Log a warning message
      */
     public static void w(String tag, String message) {
+        if (WARN < minLevel) return;
         Log.w(tag, message);
         getInstance().addToBuffer("W", tag, message);
     }
@@ -62,14 +112,112 @@ public class LogWrapper {
      * Log an error message
      */
     public static void e(String tag, String message) {
+        if (ERROR < minLevel) return;
         Log.e(tag, message);
         getInstance().addToBuffer("E", tag, message);
     }
 
+    /**
+     * Log a debug message built only if the level is enabled
+     */
+    public static void d(String tag, Supplier<String> message) {
+        if (DEBUG < minLevel) return;
+        d(tag, message.get());
+    }
+
+    /**
+     * Log a debug message, replacing "{}" with arg
+     */
+    public static void d(String tag, String pattern, Object arg) {
+        if (DEBUG < minLevel) return;
+        d(tag, format(pattern, arg, null, null, 1));
+    }
+
+    /**
+     * Log a debug message, replacing each "{}" with the next argument
+     */
+    public static void d(String tag, String pattern, Object arg1, Object arg2) {
+        if (DEBUG < minLevel) return;
+        d(tag, format(pattern, arg1, arg2, null, 2));
+    }
+
+    /**
+     * Log a debug message, replacing each "{}" with the next argument
+     */
+    public static void d(String tag, String pattern, Object arg1, Object arg2, Object arg3) {
+        if (DEBUG < minLevel) return;
+        d(tag, format(pattern, arg1, arg2, arg3, 3));
+    }
+
+    /**
+     * Log an info message built only if the level is enabled
+     */
+    public static void i(String tag, Supplier<String> message) {
+        if (INFO < minLevel) return;
+        i(tag, message.get());
+    }
+
+    /**
+     * Log an info message, replacing "{}" with arg
+     */
+    public static void i(String tag, String pattern, Object arg) {
+        if (INFO < minLevel) return;
+        i(tag, format(pattern, arg, null, null, 1));
+    }
+
+    /**
+     * Log an info message, replacing each "{}" with the next argument
+     */
+    public static void i(String tag, String pattern, Object arg1, Object arg2) {
+        if (INFO < minLevel) return;
+        i(tag, format(pattern, arg1, arg2, null, 2));
+    }
+
+    /**
+     * Log an info message, replacing each "{}" with the next argument
+     */
+    public static void i(String tag, String pattern, Object arg1, Object arg2, Object arg3) {
+        if (INFO < minLevel) return;
+        i(tag, format(pattern, arg1, arg2, arg3, 3));
+    }
+
+    /**
+     * Log a warning message built only if the level is enabled
+     */
+    public static void w(String tag, Supplier<String> message) {
+        if (WARN < minLevel) return;
+        w(tag, message.get());
+    }
+
+    /**
+     * Log a warning message, replacing "{}" with arg
+     */
+    public static void w(String tag, String pattern, Object arg) {
+        if (WARN < minLevel) return;
+        w(tag, format(pattern, arg, null, null, 1));
+    }
+
+    /**
+     * Log a warning message, replacing each "{}" with the next argument
+     */
+    public static void w(String tag, String pattern, Object arg1, Object arg2) {
+        if (WARN < minLevel) return;
+        w(tag, format(pattern, arg1, arg2, null, 2));
+    }
+
+    /**
+     * Log a warning message, replacing each "{}" with the next argument
+     */
+    public static void w(String tag, String pattern, Object arg1, Object arg2, Object arg3) {
+        if (WARN < minLevel) return;
+        w(tag, format(pattern, arg1, arg2, arg3, 3));
+    }
+
     /**
      * Log an error message with exception
      */
     public static void e(String tag, String message, Throwable throwable) {
+        if (ERROR < minLevel) return;
         Log.e(tag, message, throwable);
 
         // Capture full stack trace
@@ -104,64 +252,108 @@ public class LogWrapper {
         getInstance().addToBuffer("E", tag, fullMessage.toString());
     }
 
-    private void addToBuffer(String level, String tag, String message) {
-        synchronized (lock) {
-            String timestamp = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.US)
-                .format(new Date());
-
-            LogEntry entry = new LogEntry(timestamp, level, tag, message);
-            buffer.add(entry);
-
-            // Remove oldest entries if buffer is full
-            while (buffer.size() > MAX_BUFFER_SIZE) {
-                buffer.remove(0);
-            }
+    // Replace the first count "{}" placeholders with the arguments; extra placeholders stay as-is
+    private static String format(String pattern, Object arg1, Object arg2, Object arg3, int count) {
+        StringBuilder sb = new StringBuilder(pattern.length() + 32);
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            int at = pattern.indexOf("{}", start);
+            if (at < 0) break;
+            sb.append(pattern, start, at).append(i == 0 ? arg1 : i == 1 ? arg2 : arg3);
+            start = at + 2;
         }
+        return sb.append(pattern, start, pattern.length()).toString();
+    }
+
+    private void addToBuffer(String level, String tag, String message) {
+        long sequence = nextSequence.getAndIncrement();
+        slots.set((int) (sequence & MASK),
+            new LogEntry(sequence, System.currentTimeMillis(), level, tag, message));
     }
 
     /**
-     * Get all log entries
+     * Get all log entries, oldest first
      */
     public List<LogEntry> getAllLogs() {
-        synchronized (lock) {
-            return new ArrayList<>(buffer);
-        }
+        return getLogsSince(-1, null).entries;
     }
 
     /**
      * Get filtered logs by level
      */
     public List<LogEntry> getFilteredLogs(String level) {
-        synchronized (lock) {
-            if (level == null || level.equals("ALL")) {
-                return new ArrayList<>(buffer);
-            }
+        return getLogsSince(-1, level).entries;
+    }
 
-            List<LogEntry> filtered = new ArrayList<>();
-            for (LogEntry entry : buffer) {
-                if (entry.level.equals(level)) {
-                    filtered.add(entry);
-                }
+    /**
+     * Get entries with a sequence number above afterSequence, oldest first, optionally
+     * filtered by level (null or "ALL" for every level). Pass -1 for the whole buffer.
+     * Pass the returned lastSequence as afterSequence to read only what was added since.
+     */
+    public Batch getLogsSince(long afterSequence, String level) {
+        boolean all = level == null || level.equals("ALL");
+        long end = nextSequence.get();
+        long start = Math.max(Math.max(afterSequence + 1, clearedBefore), end - MAX_BUFFER_SIZE);
+
+        List<LogEntry> entries = new ArrayList<>((int) Math.max(0, end - start));
+        long sequence = start;
+        for (; sequence < end; sequence++) {
+            LogEntry entry = slots.get((int) (sequence & MASK));
+            // Claimed but not stored yet: stop here so the next read starts with it
+            if (entry == null || entry.sequence < sequence) {
+                break;
+            }
+            // Already overwritten by a newer entry
+            if (entry.sequence != sequence) {
+                continue;
+            }
+            if (all || entry.level.equals(level)) {
+                entries.add(entry);
             }
-            return filtered;
         }
+        return new Batch(entries, sequence - 1);
+    }
+
+    /**
+     * Sequence number of the newest entry, or -1 if nothing was logged yet.
+     * Unchanged between two calls means no entry was added in between.
+     */
+    public long getLastSequence() {
+        return nextSequence.get() - 1;
+    }
+
+    /**
+     * Maximum number of entries kept
+     */
+    public static int getCapacity() {
+        return MAX_BUFFER_SIZE;
     }
 
     /**
      * Clear the buffer
      */
     public void clear() {
-        synchronized (lock) {
-            buffer.clear();
-        }
+        clearedBefore = nextSequence.get();
     }
 
     /**
      * Get buffer size
      */
     public int getSize() {
-        synchronized (lock) {
-            return buffer.size();
+        long end = nextSequence.get();
+        return (int) Math.min(end - clearedBefore, MAX_BUFFER_SIZE);
+    }
+
+    /**
+     * Entries read by getLogsSince, and the sequence number of the last slot it read
+     */
+    public static class Batch {
+        public final List<LogEntry> entries;
+        public final long lastSequence;
+
+        Batch(List<LogEntry> entries, long lastSequence) {
+            this.entries = entries;
+            this.lastSequence = lastSequence;
         }
     }
 
@@ -169,21 +361,38 @@ public class LogWrapper {
      * Log entry data class
      */
     public static class LogEntry {
-        public final String timestamp;
+        private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("MM-dd HH:mm:ss.SSS", Locale.US).withZone(ZoneId.systemDefault());
+
+        public final long sequence;
+        public final long timeMillis;
         public final String level;
         public final String tag;
         public final String message;
 
-        public LogEntry(String timestamp, String level, String tag, String message) {
-            this.timestamp = timestamp;
+        // Formatted on first use; only entries that are displayed pay for it
+        private String timestamp;
+
+        public LogEntry(long sequence, long timeMillis, String level, String tag, String message) {
+            this.sequence = sequence;
+            this.timeMillis = timeMillis;
             this.level = level;
             this.tag = tag;
             this.message = message;
         }
 
+        public String getTimestamp() {
+            String formatted = timestamp;
+            if (formatted == null) {
+                formatted = TIME_FORMAT.format(Instant.ofEpochMilli(timeMillis));
+                timestamp = formatted;
+            }
+            return formatted;
+        }
+
         @Override
         public String toString() {
-            return timestamp + " " + level + "/" + tag + ": " + message;
+            return getTimestamp() + " " + level + "/" + tag + ": " + message;
         }
 
         public int getColor() {
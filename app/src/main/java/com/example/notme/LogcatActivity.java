@@ -6,32 +6,38 @@ import android.content.Context;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
-import android.text.SpannableStringBuilder;
-import android.text.Spanned;
-import android.text.style.ForegroundColorSpan;
+import android.view.LayoutInflater;
 import android.view.View;
+import android.view.ViewGroup;
 import android.view.animation.Animation;
 import android.view.animation.Transformation;
 import android.widget.Button;
 import android.widget.LinearLayout;
-import android.widget.ScrollView;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.DividerItemDecoration;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class LogcatActivity extends AppCompatActivity {
     private static final String TAG = "NotMe_LogcatActivity";
     private static final int UPDATE_INTERVAL_MS = 3000; // 3 seconds
 
-    private TextView logText;
+    private TextView emptyText;
     private TextView statusText;
     private TextView logCountText;
     private TextView currentFilterText;
+    private TextView minLevelText;
     private TextView expandIcon;
-    private ScrollView logScrollView;
+    private RecyclerView logList;
+    private LogAdapter adapter;
     private LinearLayout filterPanel;
 
     private Handler updateHandler;
@@ -42,6 +48,9 @@ public class LogcatActivity extends AppCompatActivity {
     private boolean filterExpanded = false;
     private int myPid;
 
+    // Newest sequence already read from LogWrapper; -1 before the first read
+    private long lastSequence = -1;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -62,21 +71,30 @@ public class LogcatActivity extends AppCompatActivity {
     }
 
     private void initializeViews() {
-        logText = findViewById(R.id.txt_log_content);
+        emptyText = findViewById(R.id.txt_log_empty);
         statusText = findViewById(R.id.txt_status);
         logCountText = findViewById(R.id.txt_log_count);
         currentFilterText = findViewById(R.id.txt_current_filter);
+        minLevelText = findViewById(R.id.txt_min_level);
+        showMinLevel();
         expandIcon = findViewById(R.id.txt_expand_icon);
-        logScrollView = findViewById(R.id.log_scroll_view);
+        logList = findViewById(R.id.log_list);
         filterPanel = findViewById(R.id.filter_panel);
 
         statusText.setText("Showing app logs since launch (PID: " + myPid + ", updates every 3s)");
 
-        // Detect manual scrolling
-        logScrollView.getViewTreeObserver().addOnScrollChangedListener(() -> {
-            int scrollY = logScrollView.getScrollY();
-            int maxScrollY = logText.getHeight() - logScrollView.getHeight();
-            autoScroll = (maxScrollY <= 0 || scrollY >= maxScrollY - 50);
+        adapter = new LogAdapter();
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        logList.setLayoutManager(layoutManager);
+        logList.addItemDecoration(new DividerItemDecoration(this, layoutManager.getOrientation()));
+        logList.setAdapter(adapter);
+
+        // Follow new lines only while the user is at the bottom
+        logList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                autoScroll = !recyclerView.canScrollVertically(1);
+            }
         });
     }
 
@@ -100,6 +118,9 @@ public class LogcatActivity extends AppCompatActivity {
         findViewById(R.id.btn_filter_info).setOnClickListener(v -> setFilter("I"));
         findViewById(R.id.btn_filter_warn).setOnClickListener(v -> setFilter("W"));
         findViewById(R.id.btn_filter_error).setOnClickListener(v -> setFilter("E"));
+
+        // Minimum level recorded at all, unlike the filter, which only hides lines
+        minLevelText.setOnClickListener(v -> chooseMinLevel());
     }
 
     private void startPeriodicUpdates() {
@@ -119,45 +140,45 @@ public class LogcatActivity extends AppCompatActivity {
         }
     }
 
+    // Append entries logged since the last refresh; does nothing if there are none
     private void updateLogDisplay() {
-        List<LogWrapper.LogEntry> entries = LogWrapper.getInstance().getFilteredLogs(currentFilter);
-
-        SpannableStringBuilder builder = new SpannableStringBuilder();
-
-        for (int i = 0; i < entries.size(); i++) {
-            LogWrapper.LogEntry entry = entries.get(i);
-            String line = entry.toString();
-            int start = builder.length();
-
-            // Add visual separator line
-            builder.append("─────────────────────────────────\n");
-
-            builder.append(line);
-            builder.append("\n");
-            int end = builder.length() - 1;
-
-            // Color the entire log entry
-            builder.setSpan(
-                new ForegroundColorSpan(entry.getColor()),
-                start,
-                end,
-                Spanned.SPAN_EXCLUSIVE_EXCLUSIVE
-            );
+        LogWrapper logs = LogWrapper.getInstance();
+        long latest = logs.getLastSequence();
+        if (latest == lastSequence) {
+            return;
         }
 
-        // Add final separator
-        if (entries.size() > 0) {
-            builder.append("─────────────────────────────────\n");
+        LogWrapper.Batch batch = logs.getLogsSince(lastSequence, currentFilter);
+        List<LogWrapper.LogEntry> added = batch.entries;
+        // Continue after the last slot actually read: an entry still being written is read next time
+        lastSequence = batch.lastSequence;
+        if (added.isEmpty()) {
+            return;
         }
 
-        logText.setText(builder);
-        logCountText.setText(entries.size() + " lines");
+        adapter.append(added, LogWrapper.getCapacity());
+        showCount();
 
         if (autoScroll) {
-            logScrollView.post(() -> logScrollView.fullScroll(View.FOCUS_DOWN));
+            logList.scrollToPosition(adapter.getItemCount() - 1);
         }
     }
 
+    // Start over from the whole buffer (after a filter change)
+    private void reloadLogDisplay() {
+        adapter.clear();
+        lastSequence = -1;
+        autoScroll = true;
+        showCount();
+        updateLogDisplay();
+    }
+
+    private void showCount() {
+        int count = adapter.getItemCount();
+        logCountText.setText(count + " lines");
+        emptyText.setVisibility(count == 0 ? View.VISIBLE : View.GONE);
+    }
+
     private void toggleFilterPanel() {
         if (filterExpanded) {
             collapse(filterPanel);
@@ -219,6 +240,22 @@ public class LogcatActivity extends AppCompatActivity {
         view.startAnimation(animation);
     }
 
+    private void chooseMinLevel() {
+        new AlertDialog.Builder(this, R.style.DialogTheme)
+                .setTitle("Record messages from")
+                .setSingleChoiceItems(LogSettings.LEVELS, LogWrapper.getMinLevel(), (dialog, which) -> {
+                    LogSettings.save(this, which);
+                    showMinLevel();
+                    dialog.dismiss();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void showMinLevel() {
+        minLevelText.setText("Record: " + LogSettings.LEVELS[LogWrapper.getMinLevel()] + "+");
+    }
+
     private void setFilter(String filter) {
         currentFilter = filter;
         currentFilterText.setText(filter);
@@ -230,13 +267,14 @@ public class LogcatActivity extends AppCompatActivity {
         }
 
         // Immediately update display
-        updateLogDisplay();
+        reloadLogDisplay();
     }
 
     private void clearLogs() {
         LogWrapper.getInstance().clear();
-        logText.setText("Logs cleared. Waiting for new logs...");
-        logCountText.setText("0 lines");
+        adapter.clear();
+        showCount();
+        emptyText.setText("Logs cleared. Waiting for new logs...");
         Toast.makeText(this, "Internal buffer cleared", Toast.LENGTH_SHORT).show();
         LogWrapper.d(TAG, "clearLogs: Internal buffer cleared");
     }
@@ -287,4 +325,58 @@ public class LogcatActivity extends AppCompatActivity {
             updateHandler.removeCallbacksAndMessages(null);
         }
     }
+
+    // Lines shown in the console, oldest first; capped like the buffer itself
+    static class LogAdapter extends RecyclerView.Adapter<LogAdapter.LineHolder> {
+
+        private final List<LogWrapper.LogEntry> entries = new ArrayList<>();
+
+        void append(List<LogWrapper.LogEntry> added, int capacity) {
+            int start = entries.size();
+            entries.addAll(added);
+            notifyItemRangeInserted(start, added.size());
+
+            int overflow = entries.size() - capacity;
+            if (overflow > 0) {
+                entries.subList(0, overflow).clear();
+                notifyItemRangeRemoved(0, overflow);
+            }
+        }
+
+        void clear() {
+            int count = entries.size();
+            entries.clear();
+            notifyItemRangeRemoved(0, count);
+        }
+
+        @Override
+        public int getItemCount() {
+            return entries.size();
+        }
+
+        @NonNull
+        @Override
+        public LineHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_log, parent, false);
+            return new LineHolder((TextView) view);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull LineHolder holder, int position) {
+            // Only bound (visible) lines format their timestamp
+            LogWrapper.LogEntry entry = entries.get(position);
+            holder.text.setText(entry.toString());
+            holder.text.setTextColor(entry.getColor());
+        }
+
+        static class LineHolder extends RecyclerView.ViewHolder {
+            final TextView text;
+
+            LineHolder(TextView itemView) {
+                super(itemView);
+                text = itemView;
+            }
+        }
+    }
 }
@@ -1,52 +1,80 @@
 package com.example.notme;
 
 import android.os.Bundle;
+import android.os.CancellationSignal;
 import android.util.Log;
 import com.example.notme.LogWrapper;
 
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.PopupMenu;
-import androidx.lifecycle.LiveData;
-import androidx.lifecycle.Observer;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
 
 import android.content.ComponentName;
 import android.content.Intent;
 import android.provider.Settings;
 import android.text.InputType;
+import android.view.View;
+import android.view.ViewGroup;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import com.example.notme.data.DataRepository;
+import com.example.notme.data.ExportFormat;
+import com.example.notme.data.IngestSettings;
 import com.example.notme.data.NotificationEntity;
+import com.example.notme.data.NotificationFeed;
+import com.example.notme.data.RetentionPolicy;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainActivity extends AppCompatActivity {
 
     private static final String TAG = "NotMe_MainActivity";
 
-    private TextView txtView;
+    // Start loading the next page when this many rows are left before either end
+    private static final int PREFETCH_DISTANCE = 10;
+
+    private RecyclerView feedList;
+    private TextView emptyText;
     private TextView statusText;
     private Button dashboardBtn;
     private Button researchBtn;
     private Button testBtn;
     private Button moreBtn;
 
+    private ExecutorService executor;
+    private NotificationFeed feed;
+    private FeedAdapter feedAdapter;
+    private LinearLayoutManager feedLayout;
+    private boolean feedLoading;
+
+    // Format picked for the export whose file is being chosen
+    private ExportFormat exportFormat = ExportFormat.CSV;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
+        LogSettings.apply(this);
         LogWrapper.d(TAG, "onCreate: App started");
 
         // Find all views
-        txtView = findViewById(R.id.notificationLog);
+        feedList = findViewById(R.id.notificationList);
+        emptyText = findViewById(R.id.emptyText);
         statusText = findViewById(R.id.statusText);
         dashboardBtn = findViewById(R.id.dashboardBtn);
         researchBtn = findViewById(R.id.researchBtn);
@@ -59,37 +87,74 @@ public class MainActivity extends AppCompatActivity {
         testBtn.setOnClickListener(v -> testBroadcast());
         moreBtn.setOnClickListener(v -> showMoreMenu());
 
-        // Set up reactive UI using LiveData observer
-        LiveData<List<NotificationEntity>> notificationsLiveData = DataRepository.getAllNotificationsLive(this);
-        notificationsLiveData.observe(this, new Observer<List<NotificationEntity>>() {
+        // Paged feed: only a bounded window of rows is loaded, more on scroll
+        executor = Executors.newSingleThreadExecutor();
+        feed = new NotificationFeed(this);
+        feedAdapter = new FeedAdapter();
+        feedLayout = new LinearLayoutManager(this);
+        feedList.setLayoutManager(feedLayout);
+        feedList.setAdapter(feedAdapter);
+        feedList.addOnScrollListener(new RecyclerView.OnScrollListener() {
             @Override
-            public void onChanged(List<NotificationEntity> entities) {
-                LogWrapper.d(TAG, "LiveData observer triggered: " + (entities != null ? entities.size() : 0) + " notifications");
-                updateUI(entities);
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                loadMoreIfNeeded(dy);
             }
         });
+
+        // The table only signals that something changed; the feed re-reads its own window
+        DataRepository.getLatestIdLive(this).observe(this, latestId -> {
+            LogWrapper.d(TAG, "LiveData observer triggered: latest id " + latestId);
+            loadFeed(feed::refresh, true);
+        });
         LogWrapper.d(TAG, "onCreate: LiveData observer initialized (Mode: " + DataRepository.getStorageMode() + ")");
 
         // Check permission on startup
         checkPermissionStatus(false);
+
+        DataRepository.scheduleRetention(this);
     }
 
-    // Update UI with notification data
-    private void updateUI(List<NotificationEntity> entities) {
-        if (entities == null || entities.isEmpty()) {
-            txtView.setText("Waiting for notifications...");
+    // Page in older rows near the bottom of the list, newer rows near the top
+    private void loadMoreIfNeeded(int dy) {
+        if (feedLoading) {
             return;
         }
-
-        StringBuilder sb = new StringBuilder();
-        for (NotificationEntity entity : entities) {
-            sb.append(entity.getTimestamp()).append("\n")
-              .append("App: ").append(entity.getPackageName()).append("\n")
-              .append("Title: ").append(entity.getTitle()).append("\n")
-              .append("Text: ").append(entity.getText()).append("\n")
-              .append("------\n");
+        if (dy > 0 && !feed.isAtTail()
+                && feedLayout.findLastVisibleItemPosition() >= feedAdapter.getItemCount() - PREFETCH_DISTANCE) {
+            loadFeed(feed::loadOlder, false);
+        } else if (dy < 0 && !feed.isAtHead()
+                && feedLayout.findFirstVisibleItemPosition() <= PREFETCH_DISTANCE) {
+            loadFeed(feed::loadNewer, false);
         }
-        txtView.setText(sb.toString());
+    }
+
+    // Run a feed operation on the background executor and show its result.
+    // followHead keeps the newest row in view when the user is already at the top.
+    private void loadFeed(Callable<List<NotificationEntity>> load, boolean followHead) {
+        feedLoading = true;
+        executor.execute(() -> {
+            List<NotificationEntity> rows;
+            try {
+                rows = load.call();
+            } catch (Exception e) {
+                LogWrapper.e(TAG, "loadFeed: Database error", e);
+                runOnUiThread(() -> feedLoading = false);
+                return;
+            }
+            runOnUiThread(() -> updateUI(rows, followHead));
+        });
+    }
+
+    // Update UI with the current feed window
+    private void updateUI(List<NotificationEntity> rows, boolean followHead) {
+        boolean showNewest = followHead && feedLayout.findFirstVisibleItemPosition() <= 0;
+        emptyText.setVisibility(rows.isEmpty() ? View.VISIBLE : View.GONE);
+        feedAdapter.submitList(rows, () -> {
+            feedLoading = false;
+            if (showNewest) {
+                feedList.scrollToPosition(0);
+            }
+        });
     }
 
     // Helper method to check if notification access is granted
@@ -138,11 +203,9 @@ public class MainActivity extends AppCompatActivity {
     private void testBroadcast() {
         LogWrapper.d(TAG, "testBroadcast: Sending test notification");
 
-        String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date());
-
         // Save test notification using DataRepository with new metadata fields
         DataRepository.save(this, "com.example.test", "Test", "This is a test notification!",
-                timestamp, false, "Test", 2);
+                System.currentTimeMillis(), false, "Test", 2);
 
         Toast.makeText(this, "Test notification saved (" + DataRepository.getStorageMode() + ")", Toast.LENGTH_SHORT).show();
     }
@@ -156,7 +219,7 @@ public class MainActivity extends AppCompatActivity {
                 LogWrapper.d(TAG, "clearLog: Clearing notification log");
 
                 // Clear using DataRepository
-                // LiveData will automatically update the UI when data changes
+                // LiveData will signal the feed to reload when data changes
                 DataRepository.clear(this);
 
                 Toast.makeText(this, "Log cleared (" + DataRepository.getStorageMode() + ")", Toast.LENGTH_SHORT).show();
@@ -183,7 +246,10 @@ public class MainActivity extends AppCompatActivity {
                 showStats();
                 return true;
             } else if (id == R.id.menu_export) {
-                exportCSV();
+                chooseExportFormat();
+                return true;
+            } else if (id == R.id.menu_import) {
+                chooseImportFile();
                 return true;
             } else if (id == R.id.menu_senders) {
                 showSenders();
@@ -194,8 +260,11 @@ public class MainActivity extends AppCompatActivity {
             } else if (id == R.id.menu_logcat) {
                 openLogcatConsole();
                 return true;
-            } else if (id == R.id.menu_compact) {
-                compactDB();
+            } else if (id == R.id.menu_retention) {
+                showRetention();
+                return true;
+            } else if (id == R.id.menu_storage) {
+                showStorage();
                 return true;
             } else if (id == R.id.menu_clear) {
                 clearLog();
@@ -234,16 +303,33 @@ public class MainActivity extends AppCompatActivity {
         }).start();
     }
 
-    // Menu: Export CSV
-    private void exportCSV() {
+    // Menu: Export
+    private void chooseExportFormat() {
+        new AlertDialog.Builder(this, R.style.DialogTheme)
+            .setTitle("Export Format")
+            .setItems(ExportFormat.labels(), (dialog, which) -> export(ExportFormat.values()[which]))
+            .setNegativeButton("Cancel", null)
+            .show();
+    }
+
+    private void export(ExportFormat format) {
+        exportFormat = format;
         Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
         intent.addCategory(Intent.CATEGORY_OPENABLE);
-        intent.setType("text/csv");
+        intent.setType(format.getMimeType());
         String timestamp = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss", Locale.getDefault()).format(new Date());
-        intent.putExtra(Intent.EXTRA_TITLE, "notme_export_" + timestamp + ".csv");
+        intent.putExtra(Intent.EXTRA_TITLE, "notme_export_" + timestamp + "." + format.getExtension());
         startActivityForResult(intent, 100);
     }
 
+    // Menu: Import (CSV or columnar export; the format is detected from the file)
+    private void chooseImportFile() {
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType("*/*");
+        startActivityForResult(intent, 101);
+    }
+
     // Menu: Senders
     private void showSenders() {
         new Thread(() -> {
@@ -292,17 +378,34 @@ public class MainActivity extends AppCompatActivity {
         startActivity(intent);
     }
 
-    // Menu: Compact DB
-    private void compactDB() {
+    // Menu: Retention
+    private void showRetention() {
+        View form = getLayoutInflater().inflate(R.layout.dialog_retention, null);
+        EditText maxAgeDays = form.findViewById(R.id.edit_max_age_days);
+        EditText ongoingMaxAgeHours = form.findViewById(R.id.edit_ongoing_max_age_hours);
+        EditText maxRowsPerPackage = form.findViewById(R.id.edit_max_rows_per_package);
+        EditText maxRows = form.findViewById(R.id.edit_max_rows);
+
+        RetentionPolicy current = RetentionPolicy.load(this);
+        showLimit(maxAgeDays, current.getMaxAgeDays());
+        showLimit(ongoingMaxAgeHours, current.getOngoingMaxAgeHours());
+        showLimit(maxRowsPerPackage, current.getMaxRowsPerPackage());
+        showLimit(maxRows, current.getMaxRows());
+
         new AlertDialog.Builder(this, R.style.DialogTheme)
-            .setTitle("Compact Database")
-            .setMessage("This will reclaim unused space and optimize the database. Continue?")
-            .setPositiveButton("Compact", (dialog, which) -> {
+            .setTitle("Retention")
+            .setView(form)
+            .setPositiveButton("Save & Apply", (dialog, which) -> {
+                RetentionPolicy policy = new RetentionPolicy(
+                    readLimit(maxAgeDays),
+                    readLimit(maxRows),
+                    readLimit(maxRowsPerPackage),
+                    readLimit(ongoingMaxAgeHours));
                 new Thread(() -> {
-                    String result = DataRepository.compactDB(this);
+                    String result = DataRepository.applyRetention(this, policy);
                     runOnUiThread(() -> {
                         new AlertDialog.Builder(this, R.style.DialogTheme)
-                            .setTitle("Compact Complete")
+                            .setTitle("Retention Complete")
                             .setMessage(result)
                             .setPositiveButton("OK", null)
                             .show();
@@ -313,6 +416,38 @@ public class MainActivity extends AppCompatActivity {
             .show();
     }
 
+    // Menu: Storage Settings
+    private void showStorage() {
+        View form = getLayoutInflater().inflate(R.layout.dialog_storage, null);
+        EditText coalesceWindow = form.findViewById(R.id.edit_coalesce_window_seconds);
+        CheckBox foldRepeats = form.findViewById(R.id.check_fold_repeats);
+
+        IngestSettings current = IngestSettings.load(this);
+        showLimit(coalesceWindow, (int) (current.getCoalesceWindowMs() / 1000));
+        foldRepeats.setChecked(current.isFoldRepeats());
+
+        new AlertDialog.Builder(this, R.style.DialogTheme)
+            .setTitle("Storage Settings")
+            .setView(form)
+            .setPositiveButton("Save", (dialog, which) -> DataRepository.setIngestSettings(this,
+                new IngestSettings(readLimit(coalesceWindow) * 1000L, foldRepeats.isChecked())))
+            .setNegativeButton("Cancel", null)
+            .show();
+    }
+
+    private static void showLimit(EditText field, int value) {
+        field.setText(value > 0 ? String.valueOf(value) : "");
+    }
+
+    // Empty or unparsable input turns the limit off
+    private static int readLimit(EditText field) {
+        try {
+            return Integer.parseInt(field.getText().toString().trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     // Re-check permission when app becomes visible (e.g., returning from Settings)
     @Override
     protected void onResume() {
@@ -321,7 +456,15 @@ public class MainActivity extends AppCompatActivity {
         checkPermissionStatus(false);
     }
 
-    // Handle file picker result for CSV export
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (executor != null && !executor.isShutdown()) {
+            executor.shutdown();
+        }
+    }
+
+    // Handle file picker results for export and import
     @Override
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
@@ -329,9 +472,22 @@ public class MainActivity extends AppCompatActivity {
         if (requestCode == 100 && resultCode == RESULT_OK && data != null) {
             android.net.Uri uri = data.getData();
             if (uri != null) {
+                // Progress dialog; Cancel stops the export after the current chunk
+                CancellationSignal cancel = new CancellationSignal();
+                AlertDialog progress = new AlertDialog.Builder(this, R.style.DialogTheme)
+                    .setTitle("Exporting")
+                    .setMessage("Starting export...")
+                    .setCancelable(false)
+                    .setNegativeButton("Cancel", (dialog, which) -> cancel.cancel())
+                    .show();
+
                 new Thread(() -> {
-                    String result = DataRepository.exportToCSV(this, uri);
+                    String result = DataRepository.export(this, uri, exportFormat,
+                        rows -> runOnUiThread(() -> progress.setMessage(String.format(Locale.getDefault(),
+                            "Exported %,d notifications...", rows))),
+                        cancel);
                     runOnUiThread(() -> {
+                        progress.dismiss();
                         new AlertDialog.Builder(this, R.style.DialogTheme)
                             .setTitle("Export Complete")
                             .setMessage(result)
@@ -340,6 +496,60 @@ public class MainActivity extends AppCompatActivity {
                     });
                 }).start();
             }
+        } else if (requestCode == 101 && resultCode == RESULT_OK && data != null) {
+            android.net.Uri uri = data.getData();
+            if (uri != null) {
+                // Cancel discards the import while the file is still being read; saving the
+                // rows that were read runs to the end
+                CancellationSignal cancel = new CancellationSignal();
+                AlertDialog progress = new AlertDialog.Builder(this, R.style.DialogTheme)
+                    .setTitle("Importing")
+                    .setMessage("Reading file...")
+                    .setCancelable(false)
+                    .setNegativeButton("Cancel", (dialog, which) -> cancel.cancel())
+                    .show();
+
+                new Thread(() -> {
+                    String result = DataRepository.importFrom(this, uri,
+                        (read, imported) -> runOnUiThread(() -> progress.setMessage(imported == 0
+                            ? String.format(Locale.getDefault(), "Read %,d notifications...", read)
+                            : String.format(Locale.getDefault(), "Saved %,d new notifications...", imported))),
+                        cancel);
+                    runOnUiThread(() -> {
+                        progress.dismiss();
+                        new AlertDialog.Builder(this, R.style.DialogTheme)
+                            .setTitle("Import Complete")
+                            .setMessage(result)
+                            .setPositiveButton("OK", null)
+                            .show();
+                    });
+                }).start();
+            }
+        }
+    }
+
+    // RecyclerView Adapter for the main feed; diffs each new window off the UI thread
+    static class FeedAdapter extends ListAdapter<NotificationEntity, NotificationViewHolder> {
+
+        FeedAdapter() {
+            super(NotificationViewHolder.DIFF_CALLBACK);
+            setHasStableIds(true);
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return getItem(position).getId();
+        }
+
+        @NonNull
+        @Override
+        public NotificationViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            return NotificationViewHolder.create(parent);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull NotificationViewHolder holder, int position) {
+            holder.bind(getItem(position));
         }
     }
 }
\ No newline at end of file
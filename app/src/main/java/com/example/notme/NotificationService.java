@@ -7,10 +7,6 @@ import com.example.notme.LogWrapper;
 
 import com.example.notme.data.DataRepository;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
-
 public class NotificationService extends NotificationListenerService {
 
     private static final String TAG = "NotMe_NotifService";
@@ -18,7 +14,10 @@ public class NotificationService extends NotificationListenerService {
     @Override
     public void onCreate() {
         super.onCreate();
+        LogSettings.apply(this);
         LogWrapper.d(TAG, "onCreate: NotificationService started");
+        DataRepository.loadIngestSettings(this);
+        DataRepository.scheduleRetention(this);
     }
 
     @Override
@@ -32,7 +31,8 @@ public class NotificationService extends NotificationListenerService {
         String titleStr = (title != null) ? title.toString() : "No title";
         String textStr = (text != null) ? text.toString() : "No text";
 
-        String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date());
+        // Stored as epoch millis; formatted only when displayed
+        long timestamp = sbn.getPostTime();
 
         // Extract new metadata fields
         boolean isOngoing = (sbn.getNotification().flags & android.app.Notification.FLAG_ONGOING_EVENT) != 0;
@@ -49,22 +49,32 @@ public class NotificationService extends NotificationListenerService {
             actionCount = sbn.getNotification().actions.length;
         }
 
-        // Log consolidated notification info
-        LogWrapper.d(TAG, String.format("onNotificationPosted: pkg=%s, title='%s', ongoing=%b, category=%s, actions=%d",
-            packageName, titleStr, isOngoing, category, actionCount));
+        // Log consolidated notification info (compiled out of release builds)
+        if (LogWrapper.HOT_PATH && LogWrapper.isDebugEnabled()) {
+            LogWrapper.d(TAG, "onNotificationPosted: pkg=" + packageName + ", title='" + titleStr +
+                "', ongoing=" + isOngoing + ", category=" + category + ", actions=" + actionCount);
+        }
+
+        // Ongoing notifications (progress bars, media players) update often: coalesce them by key
+        String key = isOngoing ? sbn.getKey() : null;
 
         // Save using DataRepository with new metadata fields
-        DataRepository.save(this, packageName, titleStr, textStr, timestamp, isOngoing, category, actionCount);
+        DataRepository.save(this, key, packageName, titleStr, textStr, timestamp, isOngoing, category, actionCount);
     }
 
     @Override
     public void onNotificationRemoved(StatusBarNotification sbn) {
-        LogWrapper.d(TAG, "onNotificationRemoved: " + sbn.getPackageName());
+        if (LogWrapper.HOT_PATH) {
+            LogWrapper.d(TAG, "onNotificationRemoved: {}", sbn.getPackageName());
+        }
+        DataRepository.forget(sbn.getKey());
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
+        // Don't leave queued rows waiting on the flush timer
+        DataRepository.flush();
         LogWrapper.d(TAG, "onDestroy: NotificationService stopped");
     }
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.example.notme;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.notme.data.NotificationEntity;
+import com.example.notme.data.Timestamps;
+
+/**
+ * One row of item_notification, shared by the main feed and the research results.
+ */
+class NotificationViewHolder extends RecyclerView.ViewHolder {
+
+    // Rows only change in place when an ongoing notification or a repeat is folded into them
+    static final DiffUtil.ItemCallback<NotificationEntity> DIFF_CALLBACK =
+        new DiffUtil.ItemCallback<NotificationEntity>() {
+            @Override
+            public boolean areItemsTheSame(@NonNull NotificationEntity oldItem, @NonNull NotificationEntity newItem) {
+                return oldItem.getId() == newItem.getId();
+            }
+
+            @Override
+            public boolean areContentsTheSame(@NonNull NotificationEntity oldItem, @NonNull NotificationEntity newItem) {
+                return oldItem.getUpdateCount() == newItem.getUpdateCount()
+                    && oldItem.getOccurrences() == newItem.getOccurrences()
+                    && oldItem.getLastUpdated() == newItem.getLastUpdated();
+            }
+        };
+
+    final TextView txtTime, txtApp, txtCategory, txtOngoing, txtTitle, txtText;
+
+    private NotificationViewHolder(View itemView) {
+        super(itemView);
+        txtTime = itemView.findViewById(R.id.txt_time);
+        txtApp = itemView.findViewById(R.id.txt_app);
+        txtCategory = itemView.findViewById(R.id.txt_category);
+        txtOngoing = itemView.findViewById(R.id.txt_ongoing);
+        txtTitle = itemView.findViewById(R.id.txt_title);
+        txtText = itemView.findViewById(R.id.txt_text);
+    }
+
+    static NotificationViewHolder create(@NonNull ViewGroup parent) {
+        View view = LayoutInflater.from(parent.getContext())
+            .inflate(R.layout.item_notification, parent, false);
+        return new NotificationViewHolder(view);
+    }
+
+    void bind(NotificationEntity item) {
+        // Full timestamp (YYYY-MM-DD HH:MM:SS), with the number of posts when repeats were folded in
+        String time = Timestamps.format(item.getTimestamp());
+        txtTime.setText(item.getOccurrences() > 1 ? time + "  ×" + item.getOccurrences() : time);
+
+        // Full package name
+        txtApp.setText(item.getPackageName());
+
+        // Category
+        String category = item.getCategory();
+        if (category != null && !category.isEmpty()) {
+            txtCategory.setText(category);
+            txtCategory.setVisibility(View.VISIBLE);
+        } else {
+            txtCategory.setVisibility(View.GONE);
+        }
+
+        // Ongoing indicator
+        txtOngoing.setVisibility(item.isOngoing() ? View.VISIBLE : View.GONE);
+
+        // Title
+        String title = item.getTitle();
+        if (title != null && !title.isEmpty()) {
+            txtTitle.setText(title);
+        } else {
+            txtTitle.setText("No title");
+        }
+        txtTitle.setVisibility(View.VISIBLE);
+
+        // Text (a preview for long bodies, which is more than the two lines shown)
+        String text = item.getText();
+        if (text != null && !text.isEmpty()) {
+            txtText.setText(item.isTruncated() ? text + "…" : text);
+            txtText.setVisibility(View.VISIBLE);
+        } else {
+            txtText.setVisibility(View.GONE);
+        }
+    }
+}
@@ -5,7 +5,6 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.net.Uri;
 import android.os.Bundle;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
@@ -17,19 +16,25 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
-import androidx.sqlite.db.SimpleSQLiteQuery;
 
 import com.example.notme.data.AppDatabase;
+import com.example.notme.data.DataRepository;
+import com.example.notme.data.ExportFormat;
 import com.example.notme.data.NotificationDao;
 import com.example.notme.data.NotificationEntity;
+import com.example.notme.data.NotificationPage;
+import com.example.notme.data.NotificationQuery;
 
-import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.ExecutorService;
@@ -39,6 +44,11 @@ public class ResearchActivity extends AppCompatActivity {
 
     private static final int EXPORT_REQUEST_CODE = 1001;
     private static final String PREFS_NAME = "ResearchFilters";
+    private static final int PAGE_SIZE = 200;
+    // Load the next page when the last visible row is this close to the end
+    private static final int PREFETCH_DISTANCE = 20;
+    // More new rows than this at once (e.g. a burst after a restore) re-run the whole query
+    private static final int MAX_NEW_ROWS = 200;
 
     private EditText editDateFrom, editDateTo, editTextSearch;
     private Spinner spinnerApp, spinnerCategory, spinnerOngoing, spinnerSort;
@@ -50,7 +60,20 @@ public class ResearchActivity extends AppCompatActivity {
     private NotificationDao dao;
     private ExecutorService executor;
     private NotificationAdapter adapter;
-    private List<NotificationEntity> currentResults = new ArrayList<>();
+    private List<NotificationEntity> currentResults = new ArrayList<>(); // handed to the adapter, never modified
+    private LinearLayoutManager resultsLayout;
+
+    // Filter of the rows shown; results of an older filter that arrive late are dropped
+    private NotificationQuery activeQuery;
+    private boolean pageLoading;
+    private boolean reachedEnd;
+    private int resultsTotal;
+    private ExportFormat exportFormat = ExportFormat.CSV;
+
+    // Newest id in the table when the shown results were read, and the newest id reported since;
+    // rows in between are fetched on their own and merged in (see loadNewRows)
+    private long seenId;
+    private long latestId;
 
     private List<String> allPackages = new ArrayList<>();
     private List<String> allCategories = new ArrayList<>();
@@ -86,9 +109,19 @@ public class ResearchActivity extends AppCompatActivity {
         dao = AppDatabase.getInstance(this).dao();
 
         // Setup RecyclerView
-        adapter = new NotificationAdapter(currentResults);
-        resultsList.setLayoutManager(new LinearLayoutManager(this));
+        adapter = new NotificationAdapter();
+        resultsLayout = new LinearLayoutManager(this);
+        resultsList.setLayoutManager(resultsLayout);
         resultsList.setAdapter(adapter);
+        resultsList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && !pageLoading && !reachedEnd
+                        && resultsLayout.findLastVisibleItemPosition() >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
 
         // Setup filter collapse/expand
         findViewById(R.id.filter_header).setOnClickListener(v -> toggleFiltersPanel());
@@ -102,6 +135,12 @@ public class ResearchActivity extends AppCompatActivity {
         btnClearFilters.setOnClickListener(v -> clearFilters());
         btnExport.setOnClickListener(v -> exportResults());
 
+        // Live results: every write reports the newest id, and only rows beyond seenId are read
+        DataRepository.getLatestIdLive(this).observe(this, latest -> {
+            latestId = latest != null ? latest : 0;
+            loadNewRows();
+        });
+
         // Load filter options
         loadFilterOptions();
     }
@@ -255,81 +294,164 @@ public class ResearchActivity extends AppCompatActivity {
     private void applyFilters() {
         saveFilters();
 
-        executor.execute(() -> {
-            // Build dynamic SQL query
-            StringBuilder sql = new StringBuilder("SELECT * FROM notifications WHERE 1=1");
-            List<Object> args = new ArrayList<>();
-
-            // Date from
-            String dateFrom = editDateFrom.getText().toString().trim();
-            if (!dateFrom.isEmpty()) {
-                sql.append(" AND timestamp >= ?");
-                args.add(dateFrom + " 00:00:00");
-            }
+        // Read the filter views here on the UI thread, query in the background
+        NotificationQuery query = buildQuery();
+        activeQuery = query;
+        pageLoading = true;
 
-            // Date to
-            String dateTo = editDateTo.getText().toString().trim();
-            if (!dateTo.isEmpty()) {
-                sql.append(" AND timestamp <= ?");
-                args.add(dateTo + " 23:59:59");
-            }
+        executor.execute(() -> {
+            // First page, and the total only when there is more than one page.
+            // The page comes with the newest id of its read (cached or not): newer rows count as new.
+            NotificationPage firstPage = DataRepository.findNotifications(this, query);
+            List<NotificationEntity> results = firstPage.getRows();
+            long seen = firstPage.getLatestId();
+            int total = results.size() < PAGE_SIZE ? results.size() : DataRepository.countNotifications(this, query);
 
-            // App filter
-            int appPos = spinnerApp.getSelectedItemPosition();
-            if (appPos > 0) {
-                String packageName = allPackages.get(appPos - 1);
-                sql.append(" AND packageName = ?");
-                args.add(packageName);
-            }
+            runOnUiThread(() -> {
+                if (query != activeQuery) {
+                    return;
+                }
+                // Diffed off the UI thread; refining a filter only removes, adds or moves the rows that changed
+                currentResults = results;
+                reachedEnd = results.size() < PAGE_SIZE;
+                seenId = seen;
+                resultsTotal = total;
+                adapter.submitList(results, this::onListShown);
+                showResultsCount();
+                updateFilterCount();
+            });
+        });
+    }
 
-            // Category filter
-            int catPos = spinnerCategory.getSelectedItemPosition();
-            if (catPos > 0) {
-                String category = allCategories.get(catPos - 1);
-                sql.append(" AND category = ?");
-                args.add(category);
-            }
+    // Append the page after the last row shown
+    private void loadNextPage() {
+        NotificationQuery query = activeQuery;
+        NotificationEntity last = currentResults.get(currentResults.size() - 1);
+        pageLoading = true;
 
-            // Text search
-            String textSearch = editTextSearch.getText().toString().trim();
-            if (!textSearch.isEmpty()) {
-                sql.append(" AND (title LIKE ? OR text LIKE ?)");
-                String searchPattern = "%" + textSearch + "%";
-                args.add(searchPattern);
-                args.add(searchPattern);
-            }
+        executor.execute(() -> {
+            List<NotificationEntity> page = DataRepository.findNotifications(this, query.after(last)).getRows();
 
-            // Ongoing filter
-            int ongoingPos = spinnerOngoing.getSelectedItemPosition();
-            if (ongoingPos == 1) { // Ongoing Only
-                sql.append(" AND isOngoing = 1");
-            } else if (ongoingPos == 2) { // Regular Only
-                sql.append(" AND isOngoing = 0");
-            }
+            runOnUiThread(() -> {
+                if (query != activeQuery) {
+                    return;
+                }
+                List<NotificationEntity> rows = new ArrayList<>(currentResults.size() + page.size());
+                rows.addAll(currentResults);
+                rows.addAll(page);
+                currentResults = rows;
+                reachedEnd = page.size() < PAGE_SIZE;
+                adapter.submitList(rows, this::onListShown);
+            });
+        });
+    }
 
-            // Sort order
-            int sortPos = spinnerSort.getSelectedItemPosition();
-            switch (sortPos) {
-                case 0: sql.append(" ORDER BY id DESC"); break;
-                case 1: sql.append(" ORDER BY id ASC"); break;
-                case 2: sql.append(" ORDER BY packageName ASC, id DESC"); break;
-                case 3: sql.append(" ORDER BY packageName DESC, id DESC"); break;
-            }
+    // Read only the rows added since the results were read and merge them in, instead of
+    // running the whole query again: the cost depends on how many rows arrived
+    private void loadNewRows() {
+        if (activeQuery == null || pageLoading || latestId <= seenId) {
+            return;
+        }
+        NotificationQuery query = activeQuery;
+        long since = seenId;
+        long upTo = latestId;
+        pageLoading = true;
 
-            // Execute query
-            SimpleSQLiteQuery query = new SimpleSQLiteQuery(sql.toString(), args.toArray());
-            List<NotificationEntity> results = dao.searchWithFilters(query);
+        executor.execute(() -> {
+            List<NotificationEntity> added =
+                DataRepository.findNewNotifications(this, query, since, upTo, MAX_NEW_ROWS + 1);
 
             runOnUiThread(() -> {
-                currentResults.clear();
-                currentResults.addAll(results);
-                adapter.notifyDataSetChanged();
-                txtResultsCount.setText(String.format(Locale.getDefault(), "%,d results", results.size()));
-                updateFilterCount();
+                if (query != activeQuery) {
+                    return;
+                }
+                if (added.size() > MAX_NEW_ROWS) {
+                    pageLoading = false;
+                    applyFilters();
+                    return;
+                }
+                seenId = upTo;
+                if (added.isEmpty()) {
+                    onListShown();
+                    return;
+                }
+                resultsTotal += mergeNewRows(query, added);
+                showResultsCount();
+                adapter.submitList(currentResults, this::onListShown);
             });
         });
     }
 
+    // Put the new rows in their sorted places among the loaded ones and return how many were not
+    // shown yet. A new row that sorts after the last loaded one is left out while more pages
+    // remain; the keyset page that reaches it brings it in.
+    private int mergeNewRows(NotificationQuery query, List<NotificationEntity> added) {
+        Comparator<NotificationEntity> order = query.comparator();
+        List<NotificationEntity> rows = new ArrayList<>(currentResults.size() + added.size());
+        rows.addAll(currentResults);
+        int newRows = 0;
+        for (NotificationEntity row : added) {
+            int pos = Collections.binarySearch(rows, row, order);
+            if (pos >= 0) {
+                continue; // read by the page query already
+            }
+            newRows++;
+            pos = -pos - 1;
+            if (pos < rows.size() || reachedEnd) {
+                rows.add(pos, row);
+            }
+        }
+        currentResults = rows;
+        return newRows;
+    }
+
+    // A page or delta is on screen; pick up rows that arrived meanwhile
+    private void onListShown() {
+        pageLoading = false;
+        loadNewRows();
+    }
+
+    private void showResultsCount() {
+        txtResultsCount.setText(String.format(Locale.getDefault(), "%,d results", resultsTotal));
+    }
+
+    // Query for the current filter views, one page at a time
+    private NotificationQuery buildQuery() {
+        NotificationQuery.Builder query = new NotificationQuery.Builder()
+            .days(editDateFrom.getText().toString(), editDateTo.getText().toString())
+            .text(editTextSearch.getText().toString())
+            .sort(selectedSort())
+            .limit(PAGE_SIZE);
+
+        int appPos = spinnerApp.getSelectedItemPosition();
+        if (appPos > 0) {
+            query.packageName(allPackages.get(appPos - 1));
+        }
+
+        int catPos = spinnerCategory.getSelectedItemPosition();
+        if (catPos > 0) {
+            query.category(allCategories.get(catPos - 1));
+        }
+
+        int ongoingPos = spinnerOngoing.getSelectedItemPosition();
+        if (ongoingPos == 1) { // Ongoing Only
+            query.ongoing(true);
+        } else if (ongoingPos == 2) { // Regular Only
+            query.ongoing(false);
+        }
+
+        return query.build();
+    }
+
+    private NotificationQuery.Sort selectedSort() {
+        switch (spinnerSort.getSelectedItemPosition()) {
+            case 1: return NotificationQuery.Sort.OLDEST_FIRST;
+            case 2: return NotificationQuery.Sort.PACKAGE_ASC;
+            case 3: return NotificationQuery.Sort.PACKAGE_DESC;
+            default: return NotificationQuery.Sort.NEWEST_FIRST;
+        }
+    }
+
     private void clearFilters() {
         editDateFrom.setText("");
         editDateTo.setText("");
@@ -384,11 +506,20 @@ public class ResearchActivity extends AppCompatActivity {
             return;
         }
 
+        new AlertDialog.Builder(this, R.style.DialogTheme)
+            .setTitle("Export Format")
+            .setItems(ExportFormat.labels(), (dialog, which) -> exportResults(ExportFormat.values()[which]))
+            .setNegativeButton("Cancel", null)
+            .show();
+    }
+
+    private void exportResults(ExportFormat format) {
+        exportFormat = format;
         Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
         intent.addCategory(Intent.CATEGORY_OPENABLE);
-        intent.setType("text/csv");
+        intent.setType(format.getMimeType());
         intent.putExtra(Intent.EXTRA_TITLE, "research_" +
-            new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new java.util.Date()) + ".csv");
+            new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new java.util.Date()) + "." + format.getExtension());
         startActivityForResult(intent, EXPORT_REQUEST_CODE);
     }
 
@@ -398,51 +529,18 @@ public class ResearchActivity extends AppCompatActivity {
         if (requestCode == EXPORT_REQUEST_CODE && resultCode == RESULT_OK && data != null) {
             Uri uri = data.getData();
             if (uri != null) {
+                // Re-run the active filter as a stream instead of writing the loaded pages.
+                // Rows come out in id order; package sorts export newest first.
+                NotificationQuery query = buildQuery();
+                ExportFormat format = exportFormat;
                 executor.execute(() -> {
-                    try {
-                        OutputStream os = getContentResolver().openOutputStream(uri);
-                        if (os != null) {
-                            // Write CSV header
-                            os.write("Timestamp,Package,App,Title,Text,IsOngoing,Category,ActionCount\n".getBytes());
-
-                            // Write data
-                            for (NotificationEntity n : currentResults) {
-                                String line = String.format(Locale.US, "\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",\"%d\"\n",
-                                    n.getTimestamp(),
-                                    n.getPackageName(),
-                                    extractAppName(n.getPackageName()),
-                                    n.getTitle() != null ? n.getTitle().replace("\"", "\"\"") : "",
-                                    n.getText() != null ? n.getText().replace("\"", "\"\"") : "",
-                                    n.isOngoing() ? "TRUE" : "FALSE",
-                                    n.getCategory() != null ? n.getCategory() : "",
-                                    n.getActionCount());
-                                os.write(line.getBytes());
-                            }
-                            os.close();
-
-                            runOnUiThread(() -> Toast.makeText(this,
-                                "Exported " + currentResults.size() + " records", Toast.LENGTH_SHORT).show());
-                        }
-                    } catch (Exception e) {
-                        runOnUiThread(() -> Toast.makeText(this,
-                            "Export failed: " + e.getMessage(), Toast.LENGTH_SHORT).show());
-                    }
+                    String result = DataRepository.export(this, uri, query, format, null, null);
+                    runOnUiThread(() -> Toast.makeText(this, result, Toast.LENGTH_LONG).show());
                 });
             }
         }
     }
 
-    private String extractAppName(String packageName) {
-        if (packageName == null) return "Unknown";
-        String name = packageName;
-        if (name.startsWith("com.")) name = name.substring(4);
-        if (name.startsWith("android.")) name = name.substring(8);
-        if (name.startsWith("google.android.")) name = name.substring(15);
-        int dotIndex = name.indexOf('.');
-        if (dotIndex > 0) name = name.substring(0, dotIndex);
-        return name;
-    }
-
     @Override
     protected void onDestroy() {
         super.onDestroy();
@@ -451,81 +549,28 @@ public class ResearchActivity extends AppCompatActivity {
         }
     }
 
-    // RecyclerView Adapter
-    class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapter.ViewHolder> {
-        private List<NotificationEntity> items;
+    // RecyclerView Adapter for the results; diffs each new result list off the UI thread
+    static class NotificationAdapter extends ListAdapter<NotificationEntity, NotificationViewHolder> {
 
-        NotificationAdapter(List<NotificationEntity> items) {
-            this.items = items;
+        NotificationAdapter() {
+            super(NotificationViewHolder.DIFF_CALLBACK);
+            setHasStableIds(true);
         }
 
-        @NonNull
         @Override
-        public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-            View view = LayoutInflater.from(parent.getContext())
-                .inflate(R.layout.item_notification, parent, false);
-            return new ViewHolder(view);
+        public long getItemId(int position) {
+            return getItem(position).getId();
         }
 
+        @NonNull
         @Override
-        public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-            NotificationEntity item = items.get(position);
-
-            // Full timestamp (YYYY-MM-DD HH:MM:SS)
-            holder.txtTime.setText(item.getTimestamp());
-
-            // Full package name
-            holder.txtApp.setText(item.getPackageName());
-
-            // Category
-            String category = item.getCategory();
-            if (category != null && !category.isEmpty()) {
-                holder.txtCategory.setText(category);
-                holder.txtCategory.setVisibility(View.VISIBLE);
-            } else {
-                holder.txtCategory.setVisibility(View.GONE);
-            }
-
-            // Ongoing indicator
-            holder.txtOngoing.setVisibility(item.isOngoing() ? View.VISIBLE : View.GONE);
-
-            // Title
-            String title = item.getTitle();
-            if (title != null && !title.isEmpty()) {
-                holder.txtTitle.setText(title);
-                holder.txtTitle.setVisibility(View.VISIBLE);
-            } else {
-                holder.txtTitle.setText("No title");
-                holder.txtTitle.setVisibility(View.VISIBLE);
-            }
-
-            // Text
-            String text = item.getText();
-            if (text != null && !text.isEmpty()) {
-                holder.txtText.setText(text);
-                holder.txtText.setVisibility(View.VISIBLE);
-            } else {
-                holder.txtText.setVisibility(View.GONE);
-            }
+        public NotificationViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            return NotificationViewHolder.create(parent);
         }
 
         @Override
-        public int getItemCount() {
-            return items.size();
-        }
-
-        class ViewHolder extends RecyclerView.ViewHolder {
-            TextView txtTime, txtApp, txtCategory, txtOngoing, txtTitle, txtText;
-
-            ViewHolder(View itemView) {
-                super(itemView);
-                txtTime = itemView.findViewById(R.id.txt_time);
-                txtApp = itemView.findViewById(R.id.txt_app);
-                txtCategory = itemView.findViewById(R.id.txt_category);
-                txtOngoing = itemView.findViewById(R.id.txt_ongoing);
-                txtTitle = itemView.findViewById(R.id.txt_title);
-                txtText = itemView.findViewById(R.id.txt_text);
-            }
+        public void onBindViewHolder(@NonNull NotificationViewHolder holder, int position) {
+            holder.bind(getItem(position));
         }
     }
 }
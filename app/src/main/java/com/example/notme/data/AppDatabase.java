@@ -1,32 +1,183 @@
 package com.example.notme.data;
 
 import android.content.Context;
+import android.database.Cursor;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
 
-@Database(entities = {NotificationEntity.class}, version = 2, exportSchema = false)
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+@Database(entities = {NotificationRow.class, PackageName.class, CategoryName.class, NotificationFts.class, Rollup.class},
+        views = {NotificationEntity.class}, version = AppDatabase.VERSION, exportSchema = true)
 public abstract class AppDatabase extends RoomDatabase {
 
+    // Schema version; each one is exported to app/schemas and migrated by Migrations
+    static final int VERSION = 12;
+
+    static final String DATABASE_NAME = "notifications.db";
+
+    // Matches the framework's WAL connection pool, so every Room read thread can hold a reader
+    private static final int READ_THREADS = 4;
+    // Page cache per connection, in KiB (negative cache_size means KiB rather than pages)
+    private static final int CACHE_SIZE_KB = 8 * 1024;
+    private static final long MMAP_SIZE = 64L * 1024 * 1024;
+    // Checkpoint the WAL back into the database every ~4 MB of commits (1000 pages of 4 KiB),
+    // and truncate the WAL file to this size afterwards so it doesn't stay at its peak
+    private static final int WAL_AUTOCHECKPOINT_PAGES = 1000;
+    private static final long JOURNAL_SIZE_LIMIT = 8L * 1024 * 1024;
+
+    private static final Executor READ_EXECUTOR = Executors.newFixedThreadPool(READ_THREADS);
+    private static final Executor WRITE_EXECUTOR = Executors.newSingleThreadExecutor();
+
     private static volatile AppDatabase INSTANCE;
 
+    private final Dictionaries dictionaries = new Dictionaries();
+
     public abstract NotificationDao dao();
 
+    // Name -> id caches for writing rows; shared by every writer of this database
+    Dictionaries dictionaries() {
+        return dictionaries;
+    }
+
     public static AppDatabase getInstance(Context context) {
         if (INSTANCE == null) {
             synchronized (AppDatabase.class) {
                 if (INSTANCE == null) {
-                    INSTANCE = Room.databaseBuilder(
-                            context.getApplicationContext(),
-                            AppDatabase.class,
-                            "notifications.db"
-                    )
-                    .fallbackToDestructiveMigration()
-                    .build();
+                    INSTANCE = build(context, DATABASE_NAME);
                 }
             }
         }
         return INSTANCE;
     }
+
+    // Shared builder so migration tests open the database exactly like the app does
+    static AppDatabase build(Context context, String name) {
+        return configure(Room.databaseBuilder(
+                context.getApplicationContext(),
+                AppDatabase.class,
+                name
+        ));
+    }
+
+    // The same configuration (callbacks, triggers, pragmas) on a throwaway in-memory database,
+    // for tests of the data layer that start from an empty schema
+    static AppDatabase buildInMemory(Context context) {
+        return configure(Room.inMemoryDatabaseBuilder(context.getApplicationContext(), AppDatabase.class));
+    }
+
+    private static AppDatabase configure(Builder<AppDatabase> builder) {
+        return builder
+        // Readers see the last commit and never wait for the writer (or block it)
+        .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
+        // Async reads (LiveData, invalidation checks) and transactions get separate threads, so a
+        // long write transaction never occupies the threads that serve the UI
+        .setQueryExecutor(READ_EXECUTOR)
+        .setTransactionExecutor(WRITE_EXECUTOR)
+        .openHelperFactory(new IncrementalVacuumFactory())
+        .addMigrations(Migrations.ALL)
+        // v1 predates exported schemas; everything from v2 on is migrated in place
+        .fallbackToDestructiveMigrationFrom(1)
+        .addCallback(new Callback() {
+            @Override
+            public void onOpen(@NonNull SupportSQLiteDatabase db) {
+                applyPragmas(db);
+                // Covers fresh installs, migrations and destructive recreation alike
+                Rollup.createTriggers(db);
+            }
+        })
+        .build();
+    }
+
+    // Connection tuning. onOpen runs on the primary connection, which performs every write;
+    // the framework opens the WAL reader connections with its own defaults.
+    static void applyPragmas(@NonNull SupportSQLiteDatabase db) {
+        // In WAL mode NORMAL only syncs at checkpoints: a power loss can drop the last commits
+        // but never corrupts the file, and each batch commit skips an fsync
+        pragma(db, "PRAGMA synchronous = NORMAL");
+        pragma(db, "PRAGMA cache_size = -" + CACHE_SIZE_KB);
+        pragma(db, "PRAGMA mmap_size = " + MMAP_SIZE);
+        // Sorts and GROUP BY temp b-trees for the dashboard drill-downs stay off the disk
+        pragma(db, "PRAGMA temp_store = MEMORY");
+        pragma(db, "PRAGMA wal_autocheckpoint = " + WAL_AUTOCHECKPOINT_PAGES);
+        pragma(db, "PRAGMA journal_size_limit = " + JOURNAL_SIZE_LIMIT);
+    }
+
+    // A new database file gets auto_vacuum=INCREMENTAL before Room creates the schema, so
+    // RetentionEnforcer can hand freed pages back in steps. The framework has already switched
+    // the file to WAL, which fixes the header, so the setting is written by a VACUUM; on an
+    // empty file that is instant. Existing files are left to RetentionEnforcer's conversion.
+    static void enableIncrementalVacuum(@NonNull SupportSQLiteDatabase db) {
+        try (Cursor cursor = db.query("SELECT COUNT(*) FROM sqlite_master")) {
+            if (!cursor.moveToFirst() || cursor.getLong(0) != 0) {
+                return;
+            }
+        }
+        db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+        db.execSQL("VACUUM");
+    }
+
+    // Some pragmas return a row, which execSQL rejects
+    private static void pragma(SupportSQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.query(sql)) {
+            cursor.moveToFirst();
+        }
+    }
+
+    // Room's default open helper with enableIncrementalVacuum in onConfigure, the one hook that
+    // runs before the schema is created; RoomDatabase.Callback.onCreate comes after it
+    private static final class IncrementalVacuumFactory implements SupportSQLiteOpenHelper.Factory {
+
+        private final SupportSQLiteOpenHelper.Factory delegate = new FrameworkSQLiteOpenHelperFactory();
+
+        @NonNull
+        @Override
+        public SupportSQLiteOpenHelper create(@NonNull SupportSQLiteOpenHelper.Configuration configuration) {
+            SupportSQLiteOpenHelper.Callback room = configuration.callback;
+            return delegate.create(SupportSQLiteOpenHelper.Configuration.builder(configuration.context)
+                    .name(configuration.name)
+                    .noBackupDirectory(configuration.useNoBackupDirectory)
+                    .allowDataLossOnRecovery(configuration.allowDataLossOnRecovery)
+                    .callback(new SupportSQLiteOpenHelper.Callback(room.version) {
+                        @Override
+                        public void onConfigure(@NonNull SupportSQLiteDatabase db) {
+                            enableIncrementalVacuum(db);
+                            room.onConfigure(db);
+                        }
+
+                        @Override
+                        public void onCreate(@NonNull SupportSQLiteDatabase db) {
+                            room.onCreate(db);
+                        }
+
+                        @Override
+                        public void onUpgrade(@NonNull SupportSQLiteDatabase db, int oldVersion, int newVersion) {
+                            room.onUpgrade(db, oldVersion, newVersion);
+                        }
+
+                        @Override
+                        public void onDowngrade(@NonNull SupportSQLiteDatabase db, int oldVersion, int newVersion) {
+                            room.onDowngrade(db, oldVersion, newVersion);
+                        }
+
+                        @Override
+                        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+                            room.onOpen(db);
+                        }
+
+                        @Override
+                        public void onCorruption(@NonNull SupportSQLiteDatabase db) {
+                            room.onCorruption(db);
+                        }
+                    })
+                    .build());
+        }
+    }
 }
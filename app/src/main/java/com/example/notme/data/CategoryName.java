@@ -0,0 +1,35 @@
+package com.example.notme.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * One entry of the categories dictionary: a notification category name and the id
+ * that notifications.categoryId stores for it.
+ * Entries are only ever added, so an id never changes meaning and can be cached (see Dictionaries).
+ */
+@Entity(tableName = "categories", indices = {@Index(value = "name", unique = true)})
+public class CategoryName {
+
+    @PrimaryKey(autoGenerate = true)
+    private final long id;
+
+    @NonNull
+    private final String name;
+
+    public CategoryName(long id, @NonNull String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    @NonNull
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.notme.data;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads ExportFormat.COLUMNAR back; the layout is described on ColumnarRowWriter. One block is
+ * held at a time, its title and text columns inflated in one go, and rows are decoded from the
+ * columns as they are asked for.
+ */
+final class ColumnarRowReader implements NotificationImporter.RowReader {
+
+    private static final String CORRUPT = "Corrupt columnar export";
+    // Far above any real column or name, so a corrupt length fails instead of allocating
+    private static final int MAX_LENGTH = 64 * 1024 * 1024;
+
+    private final InputStream in;
+    private final List<String> packages = new ArrayList<>();
+    private final List<String> categories = new ArrayList<>();
+
+    private final ByteSource timestamps = new ByteSource();
+    private final ByteSource lastUpdated = new ByteSource();
+    private final ByteSource packageRefs = new ByteSource();
+    private final ByteSource categoryRefs = new ByteSource();
+    private final ByteSource ongoing = new ByteSource();
+    private final ByteSource actionCounts = new ByteSource();
+    private final ByteSource updateCounts = new ByteSource();
+    private final ByteSource occurrences = new ByteSource();
+    private final ByteSource titles = new ByteSource();
+    private final ByteSource texts = new ByteSource();
+    private final ByteSource deflated = new ByteSource();
+    private final Inflater inflater = new Inflater(true);
+
+    private int blockRows;
+    private int row;
+    private long previousTimestamp;
+    private boolean ended;
+
+    ColumnarRowReader(InputStream in) throws IOException {
+        this.in = new BufferedInputStream(in, NotificationExporter.BUFFER_SIZE);
+        byte[] magic = new byte[ColumnarRowWriter.MAGIC.length];
+        if (this.in.readNBytes(magic, 0, magic.length) != magic.length
+                || !Arrays.equals(magic, ColumnarRowWriter.MAGIC)) {
+            throw new IOException("Not a columnar export");
+        }
+        int version = this.in.read();
+        if (version != ColumnarRowWriter.VERSION) {
+            throw new IOException("Unsupported columnar export version " + version);
+        }
+    }
+
+    @Override
+    public boolean read(NotificationExporter.Row out) throws IOException {
+        if (row == blockRows && !readBlock()) {
+            return false;
+        }
+        previousTimestamp += timestamps.readSigned();
+        out.timestamp = previousTimestamp;
+        out.lastUpdated = out.timestamp + lastUpdated.readSigned();
+        out.packageName = lookup(packages, packageRefs.readVarint());
+        out.category = lookup(categories, categoryRefs.readVarint());
+        out.isOngoing = (ongoing.bytes[row >> 3] & (1 << (row & 7))) != 0;
+        out.actionCount = (int) actionCounts.readVarint();
+        out.updateCount = (int) updateCounts.readVarint();
+        out.occurrences = (int) occurrences.readVarint();
+        out.title = titles.readNullableString();
+        out.text = texts.readNullableString();
+        row++;
+        return true;
+    }
+
+    // Loads the next block; false after the end marker. Running out of input before it means
+    // the file was cut short.
+    private boolean readBlock() throws IOException {
+        if (ended) {
+            return false;
+        }
+        long rows = readVarint(in);
+        if (rows == 0) {
+            ended = true;
+            inflater.end();
+            return false;
+        }
+        if (rows > ColumnarRowWriter.BLOCK_ROWS) {
+            throw new IOException(CORRUPT);
+        }
+        readDictionary(packages);
+        readDictionary(categories);
+        for (ByteSource column : new ByteSource[] {timestamps, lastUpdated, packageRefs, categoryRefs,
+                ongoing, actionCounts, updateCounts, occurrences}) {
+            column.fill(readLength());
+        }
+        if (ongoing.length < (rows + 7) / 8) {
+            throw new IOException(CORRUPT);
+        }
+        deflated.fill(readLength());
+        inflate(deflated, titles);
+        deflated.fill(readLength());
+        inflate(deflated, texts);
+        blockRows = (int) rows;
+        row = 0;
+        return true;
+    }
+
+    private void readDictionary(List<String> names) throws IOException {
+        long count = readVarint(in);
+        for (long i = 0; i < count; i++) {
+            byte[] utf8 = new byte[readLength()];
+            readFully(utf8, utf8.length);
+            names.add(new String(utf8, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String lookup(List<String> names, long ref) throws IOException {
+        if (ref == 0) {
+            return null;
+        }
+        if (ref > names.size()) {
+            throw new IOException(CORRUPT);
+        }
+        return names.get((int) ref - 1);
+    }
+
+    private void inflate(ByteSource source, ByteSource target) throws IOException {
+        inflater.reset();
+        inflater.setInput(source.bytes, 0, source.length);
+        target.reset();
+        try {
+            while (!inflater.finished()) {
+                target.ensureSpace(Math.max(8192, source.length * 2));
+                int n = inflater.inflate(target.bytes, target.length, target.bytes.length - target.length);
+                if (n == 0 && inflater.needsInput()) {
+                    throw new IOException(CORRUPT);
+                }
+                target.length += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(CORRUPT, e);
+        }
+    }
+
+    private int readLength() throws IOException {
+        long length = readVarint(in);
+        if (length > MAX_LENGTH) {
+            throw new IOException(CORRUPT);
+        }
+        return (int) length;
+    }
+
+    private void readFully(byte[] into, int length) throws IOException {
+        if (in.readNBytes(into, 0, length) != length) {
+            throw new EOFException("Columnar export is cut short");
+        }
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Columnar export is cut short");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException(CORRUPT);
+    }
+
+    // One column of the current block with a read position; reused across blocks
+    private final class ByteSource {
+        byte[] bytes = new byte[8192];
+        int length;
+        int pos;
+
+        void reset() {
+            length = 0;
+            pos = 0;
+        }
+
+        void ensureSpace(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+
+        void fill(int size) throws IOException {
+            reset();
+            ensureSpace(size);
+            readFully(bytes, size);
+            length = size;
+        }
+
+        long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (pos >= length) {
+                    throw new IOException(CORRUPT);
+                }
+                byte b = bytes[pos++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException(CORRUPT);
+        }
+
+        long readSigned() throws IOException {
+            long value = readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        String readNullableString() throws IOException {
+            long length = readVarint();
+            if (length == 0) {
+                return null;
+            }
+            int size = (int) (length - 1);
+            if (size < 0 || size > this.length - pos) {
+                throw new IOException(CORRUPT);
+            }
+            String value = new String(bytes, pos, size, StandardCharsets.UTF_8);
+            pos += size;
+            return value;
+        }
+    }
+}
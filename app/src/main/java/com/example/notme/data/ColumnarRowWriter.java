@@ -0,0 +1,244 @@
+package com.example.notme.data;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * ExportFormat.COLUMNAR: rows are cut into blocks of up to BLOCK_ROWS and each block is stored
+ * column by column, so a reader can skip the columns it does not need and every column holds
+ * values of one kind that encode well. One block is buffered at a time.
+ *
+ *   file   := MAGIC VERSION block* varint(0)
+ *   block  := varint(rows > 0) dict(packages) dict(categories) column*10
+ *   dict   := varint(n) string*n        names first seen in this block, appended to that dictionary
+ *   column := varint(byteLength) bytes
+ *   string := varint(byteLength) UTF-8
+ *
+ * Columns, in order:
+ *   timestamp    zigzag varint, delta from the previous row (from 0 for the first row of the file)
+ *   lastUpdated  zigzag varint, lastUpdated - timestamp
+ *   package      varint, dictionary index + 1, 0 for null
+ *   category     varint, dictionary index + 1, 0 for null
+ *   isOngoing    one bit per row, lowest bit first
+ *   actionCount  varint
+ *   updateCount  varint
+ *   occurrences  varint
+ *   title        raw deflate of: varint(byteLength + 1, 0 for null) UTF-8, per row
+ *   text         same as title, whole text
+ *
+ * Varints are unsigned LEB128. Timestamps are epoch millis.
+ */
+final class ColumnarRowWriter implements NotificationExporter.RowWriter {
+
+    static final byte[] MAGIC = {'N', 'M', 'C', 'O', 'L'};
+    static final int VERSION = 1;
+    static final int BLOCK_ROWS = 4096;
+    // A block is also cut when its strings reach this size, so long bodies keep it bounded
+    static final int MAX_BLOCK_STRING_BYTES = 1024 * 1024;
+
+    private final OutputStream out;
+    private final Map<String, Integer> packageIds = new HashMap<>();
+    private final Map<String, Integer> categoryIds = new HashMap<>();
+    private final List<String> newPackages = new ArrayList<>();
+    private final List<String> newCategories = new ArrayList<>();
+
+    private final ByteSink timestamps = new ByteSink();
+    private final ByteSink lastUpdated = new ByteSink();
+    private final ByteSink packages = new ByteSink();
+    private final ByteSink categories = new ByteSink();
+    private final ByteSink ongoing = new ByteSink();
+    private final ByteSink actionCounts = new ByteSink();
+    private final ByteSink updateCounts = new ByteSink();
+    private final ByteSink occurrences = new ByteSink();
+    private final ByteSink titles = new ByteSink();
+    private final ByteSink texts = new ByteSink();
+    private final ByteSink header = new ByteSink();
+    private final ByteSink deflated = new ByteSink();
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+
+    private int rows;
+    private int ongoingBits;
+    private long previousTimestamp;
+
+    ColumnarRowWriter(OutputStream out) throws IOException {
+        this.out = new BufferedOutputStream(out, NotificationExporter.BUFFER_SIZE);
+        this.out.write(MAGIC);
+        this.out.write(VERSION);
+    }
+
+    @Override
+    public void write(NotificationExporter.Row row) throws IOException {
+        timestamps.writeSigned(row.timestamp - previousTimestamp);
+        previousTimestamp = row.timestamp;
+        lastUpdated.writeSigned(row.lastUpdated - row.timestamp);
+        packages.writeVarint(dictionaryRef(packageIds, newPackages, row.packageName));
+        categories.writeVarint(dictionaryRef(categoryIds, newCategories, row.category));
+        if (row.isOngoing) {
+            ongoingBits |= 1 << (rows & 7);
+        }
+        if ((rows & 7) == 7) {
+            ongoing.write(ongoingBits);
+            ongoingBits = 0;
+        }
+        actionCounts.writeVarint(row.actionCount);
+        updateCounts.writeVarint(row.updateCount);
+        occurrences.writeVarint(row.occurrences);
+        titles.writeNullableString(row.title);
+        texts.writeNullableString(row.text);
+        rows++;
+
+        if (rows == BLOCK_ROWS || titles.size() + texts.size() >= MAX_BLOCK_STRING_BYTES) {
+            writeBlock();
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (rows > 0) {
+            writeBlock();
+        }
+        header.reset();
+        header.writeVarint(0);
+        header.writeTo(out);
+        out.flush();
+        deflater.end();
+    }
+
+    // Index + 1 of name in its dictionary (0 for null), adding it when it is new
+    private static long dictionaryRef(Map<String, Integer> ids, List<String> added, String name) {
+        if (name == null) {
+            return 0;
+        }
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = ids.size();
+            ids.put(name, id);
+            added.add(name);
+        }
+        return id + 1;
+    }
+
+    private void writeBlock() throws IOException {
+        if ((rows & 7) != 0) {
+            ongoing.write(ongoingBits);
+            ongoingBits = 0;
+        }
+        header.reset();
+        header.writeVarint(rows);
+        writeDictionary(header, newPackages);
+        writeDictionary(header, newCategories);
+        header.writeTo(out);
+
+        for (ByteSink column : new ByteSink[] {timestamps, lastUpdated, packages, categories, ongoing,
+                actionCounts, updateCounts, occurrences}) {
+            writeColumn(column);
+        }
+        writeColumn(deflate(titles));
+        writeColumn(deflate(texts));
+
+        for (ByteSink column : new ByteSink[] {timestamps, lastUpdated, packages, categories, ongoing,
+                actionCounts, updateCounts, occurrences, titles, texts}) {
+            column.reset();
+        }
+        newPackages.clear();
+        newCategories.clear();
+        rows = 0;
+    }
+
+    private static void writeDictionary(ByteSink sink, List<String> names) {
+        sink.writeVarint(names.size());
+        for (String name : names) {
+            sink.writeString(name);
+        }
+    }
+
+    private void writeColumn(ByteSink column) throws IOException {
+        header.reset();
+        header.writeVarint(column.size());
+        header.writeTo(out);
+        column.writeTo(out);
+    }
+
+    private ByteSink deflate(ByteSink column) {
+        deflated.reset();
+        deflater.reset();
+        deflater.setInput(column.bytes, 0, column.size());
+        deflater.finish();
+        while (!deflater.finished()) {
+            deflated.ensureSpace(Math.max(4096, column.size() / 4));
+            deflated.length += deflater.deflate(deflated.bytes, deflated.length, deflated.bytes.length - deflated.length);
+        }
+        return deflated;
+    }
+
+    // Growable byte buffer with the varint and string encodings above; reused across blocks
+    private static final class ByteSink {
+        byte[] bytes = new byte[8192];
+        int length;
+
+        int size() {
+            return length;
+        }
+
+        void reset() {
+            length = 0;
+        }
+
+        void ensureSpace(int extra) {
+            if (length + extra > bytes.length) {
+                byte[] grown = new byte[Math.max(bytes.length * 2, length + extra)];
+                System.arraycopy(bytes, 0, grown, 0, length);
+                bytes = grown;
+            }
+        }
+
+        void write(int b) {
+            ensureSpace(1);
+            bytes[length++] = (byte) b;
+        }
+
+        void writeVarint(long value) {
+            ensureSpace(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        void writeSigned(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(utf8.length);
+            ensureSpace(utf8.length);
+            System.arraycopy(utf8, 0, bytes, length, utf8.length);
+            length += utf8.length;
+        }
+
+        void writeNullableString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(utf8.length + 1L);
+            ensureSpace(utf8.length);
+            System.arraycopy(utf8, 0, bytes, length, utf8.length);
+            length += utf8.length;
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            out.write(bytes, 0, length);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.notme.data;
+
+import com.example.notme.util.CsvParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Reads ExportFormat.CSV back (see CsvRowWriter). Columns are found by their header name, so
+ * a file re-saved by a spreadsheet with columns moved or the App column dropped still reads.
+ * The format keeps less than the database: times are whole local seconds, line breaks were
+ * written as spaces, lastUpdated is the timestamp and updateCount is 1, and an empty field
+ * reads as null since null is written empty.
+ */
+final class CsvRowReader implements NotificationImporter.RowReader {
+
+    private final CsvParser parser;
+    private final int timestamp;
+    private final int packageName;
+    private final int title;
+    private final int text;
+    private final int isOngoing;
+    private final int category;
+    private final int actionCount;
+    private final int occurrences;
+
+    // Rows come in time order, so most share their hour with the row before; parsing only the
+    // minutes and seconds of those skips the time zone lookup
+    private String lastHour;
+    private long lastHourStart;
+
+    CsvRowReader(InputStream in) throws IOException {
+        parser = new CsvParser(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<String> header = parser.next();
+        if (header == null) {
+            throw new IOException("The file is empty");
+        }
+        timestamp = column(header, "Timestamp");
+        if (timestamp < 0) {
+            throw new IOException("Not a notification export (no Timestamp column)");
+        }
+        packageName = column(header, "Package");
+        title = column(header, "Title");
+        text = column(header, "Text");
+        isOngoing = column(header, "IsOngoing");
+        category = column(header, "Category");
+        actionCount = column(header, "ActionCount");
+        occurrences = column(header, "Occurrences");
+    }
+
+    @Override
+    public boolean read(NotificationExporter.Row row) throws IOException {
+        List<String> fields;
+        do {
+            fields = parser.next();
+            if (fields == null) {
+                return false;
+            }
+        } while (fields.size() == 1 && fields.get(0).isEmpty());
+
+        String time = field(fields, timestamp);
+        if (time == null) {
+            throw new IOException("Line " + parser.getLine() + ": no timestamp");
+        }
+        try {
+            row.timestamp = parseTimestamp(time);
+            row.packageName = field(fields, packageName);
+            row.title = field(fields, title);
+            row.text = field(fields, text);
+            row.isOngoing = "TRUE".equalsIgnoreCase(field(fields, isOngoing));
+            row.category = field(fields, category);
+            row.actionCount = number(field(fields, actionCount), 0);
+            row.occurrences = Math.max(1, number(field(fields, occurrences), 1));
+            row.lastUpdated = row.timestamp;
+            row.updateCount = 1;
+        } catch (RuntimeException e) {
+            throw new IOException("Line " + parser.getLine() + ": " + e.getMessage(), e);
+        }
+        return true;
+    }
+
+    private long parseTimestamp(String value) {
+        // "yyyy-MM-dd HH:mm:ss"; the hour prefix is the first 13 chars
+        if (lastHour != null && value.length() == 19 && value.startsWith(lastHour)) {
+            int minute = Integer.parseInt(value, 14, 16, 10);
+            int second = Integer.parseInt(value, 17, 19, 10);
+            return lastHourStart + minute * 60_000L + second * 1000L;
+        }
+        long millis = Timestamps.parse(value);
+        if (value.length() == 19) {
+            lastHour = value.substring(0, 13);
+            lastHourStart = Timestamps.parse(lastHour + ":00:00");
+        }
+        return millis;
+    }
+
+    private static int column(List<String> header, String name) {
+        for (int i = 0; i < header.size(); i++) {
+            // Spreadsheets may put a byte order mark before the first name
+            String column = header.get(i).replace("\uFEFF", "").trim();
+            if (column.equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String field(List<String> fields, int column) {
+        if (column < 0 || column >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(column);
+        return value.isEmpty() ? null : value;
+    }
+
+    private static int number(String value, int fallback) {
+        return value == null ? fallback : Integer.parseInt(value.trim());
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.notme.data;
+
+import com.example.notme.util.AppNames;
+import com.example.notme.util.CsvFields;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ExportFormat.CSV: a header line, then one line per row with every field quoted, written
+ * through one large UTF-8 buffer. Timestamps are local "yyyy-MM-dd HH:mm:ss".
+ */
+final class CsvRowWriter implements NotificationExporter.RowWriter {
+
+    static final String HEADER = "Timestamp,Package,App,Title,Text,IsOngoing,Category,ActionCount,Occurrences\n";
+
+    private final Writer w;
+
+    CsvRowWriter(OutputStream out) throws IOException {
+        this.w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8),
+                NotificationExporter.BUFFER_SIZE);
+        w.write(HEADER);
+    }
+
+    @Override
+    public void write(NotificationExporter.Row row) throws IOException {
+        CsvFields.writeQuoted(w, Timestamps.format(row.timestamp));
+        w.write(',');
+        CsvFields.writeQuoted(w, row.packageName);
+        w.write(',');
+        CsvFields.writeQuoted(w, AppNames.withoutFirstSegment(row.packageName));
+        w.write(',');
+        CsvFields.writeQuoted(w, row.title);
+        w.write(',');
+        CsvFields.writeQuoted(w, row.text);
+        w.write(',');
+        w.write(row.isOngoing ? "\"TRUE\"" : "\"FALSE\"");
+        w.write(',');
+        CsvFields.writeQuoted(w, row.category);
+        w.write(",\"");
+        w.write(Integer.toString(row.actionCount));
+        w.write("\",\"");
+        w.write(Integer.toString(row.occurrences));
+        w.write("\"\n");
+    }
+
+    @Override
+    public void finish() throws IOException {
+        w.flush();
+    }
+}
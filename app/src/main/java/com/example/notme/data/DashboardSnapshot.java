@@ -0,0 +1,173 @@
+package com.example.notme.data;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Every number the dashboard shows, built from one read of the rollups table.
+ * Hours and days are in the time zone the snapshot was built in. Immutable, so the repository can cache it and the drill-down dialogs can reuse it
+ * without touching the database again.
+ */
+public final class DashboardSnapshot {
+
+    static final int TOP_PACKAGES = 10;
+    static final int DAYS = 7;
+
+    private final int totalCount;
+    private final int ongoingCount;
+    private final int regularCount;
+    private final List<NotificationDao.PackageCount> topPackages;
+    private final List<NotificationDao.CategoryCount> categories;
+    private final List<NotificationDao.HourCount> hourly;
+    private final List<NotificationDao.DayCount> lastDays;
+    private final String sinceDate;
+    private final ZoneId zone;
+    private final long loadTimeMs;
+
+    private DashboardSnapshot(int ongoingCount, int regularCount,
+                              List<NotificationDao.PackageCount> topPackages,
+                              List<NotificationDao.CategoryCount> categories,
+                              List<NotificationDao.HourCount> hourly,
+                              List<NotificationDao.DayCount> lastDays,
+                              String sinceDate, ZoneId zone, long loadTimeMs) {
+        this.totalCount = ongoingCount + regularCount;
+        this.ongoingCount = ongoingCount;
+        this.regularCount = regularCount;
+        this.topPackages = Collections.unmodifiableList(topPackages);
+        this.categories = Collections.unmodifiableList(categories);
+        this.hourly = Collections.unmodifiableList(hourly);
+        this.lastDays = Collections.unmodifiableList(lastDays);
+        this.sinceDate = sinceDate;
+        this.zone = zone;
+        this.loadTimeMs = loadTimeMs;
+    }
+
+    // Split non-empty rollup rows into the dashboard lists, adding up the UTC quarter hours
+    // into hours and days of zone. sinceDate is the oldest "yyyy-MM-dd" day in that zone to
+    // include in lastDays.
+    static DashboardSnapshot fromRollups(List<Rollup> rollups, String sinceDate, ZoneId zone, long loadTimeMs) {
+        int ongoing = 0;
+        int regular = 0;
+        List<NotificationDao.PackageCount> packages = new ArrayList<>();
+        List<NotificationDao.CategoryCount> categories = new ArrayList<>();
+        Map<String, Integer> hours = new TreeMap<>();
+        Map<String, Integer> dates = new TreeMap<>(Collections.reverseOrder());
+
+        for (Rollup rollup : rollups) {
+            int count = (int) rollup.getCount();
+            if (count <= 0) {
+                continue;
+            }
+            String bucket = rollup.getBucket();
+            switch (rollup.getKind()) {
+                case "ongoing":
+                    if ("1".equals(bucket)) {
+                        ongoing += count;
+                    } else {
+                        regular += count;
+                    }
+                    break;
+                case "package":
+                    NotificationDao.PackageCount pc = new NotificationDao.PackageCount();
+                    pc.packageName = bucket;
+                    pc.count = count;
+                    packages.add(pc);
+                    break;
+                case "category":
+                    NotificationDao.CategoryCount cc = new NotificationDao.CategoryCount();
+                    cc.category = bucket;
+                    cc.count = count;
+                    categories.add(cc);
+                    break;
+                case "quarter":
+                    ZonedDateTime local = Instant.ofEpochMilli(Long.parseLong(bucket) * Rollup.QUARTER_HOUR_MS)
+                            .atZone(zone);
+                    hours.merge(String.format(Locale.US, "%02d", local.getHour()), count, Integer::sum);
+                    String date = local.toLocalDate().toString();
+                    if (date.compareTo(sinceDate) >= 0) {
+                        dates.merge(date, count, Integer::sum);
+                    }
+                    break;
+            }
+        }
+
+        List<NotificationDao.HourCount> hourly = new ArrayList<>();
+        for (Map.Entry<String, Integer> e : hours.entrySet()) {
+            NotificationDao.HourCount hc = new NotificationDao.HourCount();
+            hc.hour = e.getKey();
+            hc.count = e.getValue();
+            hourly.add(hc);
+        }
+        List<NotificationDao.DayCount> days = new ArrayList<>();
+        for (Map.Entry<String, Integer> e : dates.entrySet()) {
+            if (days.size() == DAYS) {
+                break;
+            }
+            NotificationDao.DayCount dc = new NotificationDao.DayCount();
+            dc.date = e.getKey();
+            dc.count = e.getValue();
+            days.add(dc);
+        }
+
+        packages.sort((a, b) -> Integer.compare(b.count, a.count));
+        if (packages.size() > TOP_PACKAGES) {
+            packages = new ArrayList<>(packages.subList(0, TOP_PACKAGES));
+        }
+        categories.sort((a, b) -> Integer.compare(b.count, a.count));
+
+        return new DashboardSnapshot(ongoing, regular, packages, categories, hourly, days,
+                sinceDate, zone, loadTimeMs);
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public int getOngoingCount() {
+        return ongoingCount;
+    }
+
+    public int getRegularCount() {
+        return regularCount;
+    }
+
+    // Ten busiest packages, busiest first
+    public List<NotificationDao.PackageCount> getTopPackages() {
+        return topPackages;
+    }
+
+    // All categories, busiest first ('' for uncategorized)
+    public List<NotificationDao.CategoryCount> getCategories() {
+        return categories;
+    }
+
+    // Hours of the day that have notifications, "00" to "23"
+    public List<NotificationDao.HourCount> getHourly() {
+        return hourly;
+    }
+
+    // Days since sinceDate that have notifications, newest first
+    public List<NotificationDao.DayCount> getLastDays() {
+        return lastDays;
+    }
+
+    String getSinceDate() {
+        return sinceDate;
+    }
+
+    ZoneId getZone() {
+        return zone;
+    }
+
+    // Time spent reading the rollups for this snapshot
+    public long getLoadTimeMs() {
+        return loadTimeMs;
+    }
+}
@@ -1,19 +1,32 @@
 package com.example.notme.data;
 
 import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.SystemClock;
 import android.util.Log;
 import com.example.notme.LogWrapper;
+import com.example.notme.util.TextCodec;
 
+import androidx.annotation.NonNull;
 import androidx.lifecycle.LiveData;
+import androidx.room.InvalidationTracker;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.time.ZoneId;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DataRepository {
 
@@ -23,24 +36,45 @@ public class DataRepository {
     private static final boolean USE_DB = true;
 
     private static final String LOG_FILE = "notifications.txt";
-    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private static final int SEARCH_PAGE_SIZE = 100;
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private static final WriteBehindQueue writeQueue = new WriteBehindQueue(executor);
+
+    // Retention runs on its own thread so ingest flushes interleave with its chunks
+    private static final long RETENTION_INTERVAL_HOURS = 6;
+    private static final ExecutorService maintenance = Executors.newSingleThreadExecutor();
+    private static final AtomicBoolean retentionScheduled = new AtomicBoolean();
+    private static final Object retentionLock = new Object();
+    // One import at a time; each already stages its rows in the same scratch table
+    private static final Object importLock = new Object();
+
+    // Cached dashboard numbers; dropped whenever the rollups change
+    private static volatile DashboardSnapshot dashboardSnapshot;
+    private static final AtomicInteger rollupGeneration = new AtomicInteger();
+    private static InvalidationTracker.Observer rollupObserver;
+
+    // Recent research results; see QueryCache for what a write drops
+    private static final QueryCache queryCache = new QueryCache();
+    private static InvalidationTracker.Observer notificationsObserver;
 
     // Save a notification with new metadata fields
-    public static void save(Context context, String packageName, String title, String text, String timestamp,
+    public static void save(Context context, String packageName, String title, String text, long timestamp,
                            boolean isOngoing, String category, int actionCount) {
+        save(context, null, packageName, title, text, timestamp, isOngoing, category, actionCount);
+    }
+
+    // Save a notification; posts with the same non-null key within the coalescing window update one row
+    public static void save(Context context, String key, String packageName, String title, String text,
+                           long timestamp, boolean isOngoing, String category, int actionCount) {
         if (USE_DB) {
-            // Save to Database
-            executor.execute(() -> {
-                try {
-                    NotificationEntity entity = new NotificationEntity(packageName, title, text, timestamp,
-                            isOngoing, category, actionCount);
-                    AppDatabase.getInstance(context).dao().insert(entity);
-                    LogWrapper.d(TAG, "save: Saved to DATABASE with metadata (ongoing=" + isOngoing +
-                            ", category=" + category + ", actions=" + actionCount + ")");
-                } catch (Exception e) {
-                    LogWrapper.e(TAG, "save: Database error", e);
-                }
-            });
+            // Queue for the next batched write to Database
+            NotificationEntity entity = new NotificationEntity(packageName, title, text, timestamp,
+                    isOngoing, category, actionCount);
+            writeQueue.enqueue(context, entity, key);
+            if (LogWrapper.HOT_PATH) {
+                LogWrapper.d(TAG, "save: Queued for DATABASE with metadata (ongoing={}, category={}, actions={})",
+                        isOngoing, category, actionCount);
+            }
         } else {
             // Save to File (Old logic)
             executor.execute(() -> {
@@ -48,7 +82,7 @@ public class DataRepository {
                     File file = new File(context.getFilesDir(), LOG_FILE);
                     FileWriter writer = new FileWriter(file, true);
 
-                    String logEntry = timestamp + "\n" +
+                    String logEntry = Timestamps.format(timestamp) + "\n" +
                             "App: " + packageName + "\n" +
                             "Title: " + title + "\n" +
                             "Text: " + text + "\n" +
@@ -64,9 +98,99 @@ public class DataRepository {
         }
     }
 
-    // Get LiveData for reactive UI updates
-    public static LiveData<List<NotificationEntity>> getAllNotificationsLive(Context context) {
-        return AppDatabase.getInstance(context).dao().getAll();
+    // Notification was dismissed: its next post starts a new row
+    public static void forget(String key) {
+        if (USE_DB && key != null) {
+            writeQueue.forget(key);
+        }
+    }
+
+    // Apply the saved IngestSettings; called when the listener service starts
+    public static void loadIngestSettings(Context context) {
+        applyIngestSettings(IngestSettings.load(context));
+    }
+
+    // Save new IngestSettings; the next posts are written with them
+    public static void setIngestSettings(Context context, IngestSettings settings) {
+        settings.save(context);
+        applyIngestSettings(settings);
+    }
+
+    private static void applyIngestSettings(IngestSettings settings) {
+        writeQueue.setCoalesceWindowMs(settings.getCoalesceWindowMs());
+        writeQueue.setFoldRepeats(settings.isFoldRepeats());
+    }
+
+    // Write any queued notifications now instead of waiting for the flush timer
+    public static void flush() {
+        if (USE_DB) {
+            executor.execute(writeQueue::flush);
+        }
+    }
+
+    // Get batch write counters for display
+    public static String getIngestStats() {
+        return writeQueue.describeStats();
+    }
+
+    // Dashboard numbers from one read of the rollups, cached until the next write. Call off the UI thread.
+    public static DashboardSnapshot getDashboardSnapshot(Context context) {
+        String sinceDate = Timestamps.dateDaysAgo(DashboardSnapshot.DAYS - 1);
+        ZoneId zone = ZoneId.systemDefault();
+        DashboardSnapshot cached = dashboardSnapshot;
+        // The cached day window is only valid until midnight, and its hours only in its time zone
+        if (cached != null && cached.getSinceDate().equals(sinceDate) && cached.getZone().equals(zone)) {
+            LogWrapper.d(TAG, "getDashboardSnapshot: Served from cache");
+            return cached;
+        }
+
+        AppDatabase db = AppDatabase.getInstance(context);
+        watchRollups(db);
+        int generation = rollupGeneration.get();
+
+        long start = SystemClock.elapsedRealtime();
+        List<Rollup> rollups = db.dao().getRollups();
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        DashboardSnapshot snapshot = DashboardSnapshot.fromRollups(rollups, sinceDate, zone, elapsed);
+
+        // Don't cache a snapshot that a concurrent write has already made stale
+        if (rollupGeneration.get() == generation) {
+            dashboardSnapshot = snapshot;
+        }
+        LogWrapper.d(TAG, "getDashboardSnapshot: Loaded " + rollups.size() + " buckets in " + elapsed + " ms");
+        return snapshot;
+    }
+
+    private static synchronized void watchRollups(AppDatabase db) {
+        if (rollupObserver != null) {
+            return;
+        }
+        rollupObserver = new InvalidationTracker.Observer("rollups") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                rollupGeneration.incrementAndGet();
+                dashboardSnapshot = null;
+            }
+        };
+        db.getInvalidationTracker().addObserver(rollupObserver);
+    }
+
+    private static synchronized void watchNotifications(AppDatabase db) {
+        if (notificationsObserver != null) {
+            return;
+        }
+        notificationsObserver = new InvalidationTracker.Observer("notifications") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                queryCache.onWrite();
+            }
+        };
+        db.getInvalidationTracker().addObserver(notificationsObserver);
+    }
+
+    // Change signal for reactive UI updates: emits after every write to the table
+    public static LiveData<Long> getLatestIdLive(Context context) {
+        return AppDatabase.getInstance(context).dao().observeLatestId();
     }
 
     // Get all logs as formatted string
@@ -82,7 +206,7 @@ public class DataRepository {
 
                 StringBuilder sb = new StringBuilder();
                 for (NotificationEntity entity : entities) {
-                    sb.append(entity.getTimestamp()).append("\n")
+                    sb.append(Timestamps.format(entity.getTimestamp())).append("\n")
                       .append("App: ").append(entity.getPackageName()).append("\n")
                       .append("Title: ").append(entity.getTitle()).append("\n")
                       .append("Text: ").append(entity.getText()).append("\n")
@@ -131,7 +255,9 @@ public class DataRepository {
             // Clear Database
             executor.execute(() -> {
                 try {
+                    writeQueue.discard();
                     AppDatabase.getInstance(context).dao().deleteAll();
+                    queryCache.clear();
                     LogWrapper.d(TAG, "clear: Cleared DATABASE");
                 } catch (Exception e) {
                     LogWrapper.e(TAG, "clear: Database error", e);
@@ -165,16 +291,17 @@ public class DataRepository {
         }
 
         try {
-            List<NotificationEntity> all = AppDatabase.getInstance(context).dao().getAllSync();
-            int count = all.size();
+            // Post count from the rollups and two index probes: nothing here grows with the table
+            NotificationDao dao = AppDatabase.getInstance(context).dao();
+            int count = dao.getTotalCount();
 
             if (count == 0) {
                 return "No notifications in database";
             }
 
-            // Get oldest and newest
-            String newest = all.get(0).getTimestamp();
-            String oldest = all.get(all.size() - 1).getTimestamp();
+            NotificationDao.TimeRange range = dao.getTimeRange();
+            String newest = Timestamps.format(range.newest);
+            String oldest = Timestamps.format(range.oldest);
 
             // Get DB file size
             File dbFile = context.getDatabasePath("notifications.db");
@@ -189,8 +316,10 @@ public class DataRepository {
                 "Oldest: %s\n" +
                 "Newest: %s\n" +
                 "Storage: %s ✓\n" +
-                "━━━━━━━━━━━━━━━━━━━",
-                count, sizeKB, oldest, newest, getStorageMode()
+                "━━━━━━━━━━━━━━━━━━━\n" +
+                "%s\n" +
+                "%s",
+                count, sizeKB, oldest, newest, getStorageMode(), getIngestStats(), queryCache.describeStats()
             );
 
         } catch (Exception e) {
@@ -206,31 +335,20 @@ public class DataRepository {
         }
 
         try {
-            List<NotificationEntity> all = AppDatabase.getInstance(context).dao().getAllSync();
+            // Counted and sorted in SQL from the package rollups, one row per app
+            List<NotificationDao.SenderCount> senders = AppDatabase.getInstance(context).dao().getSenderCounts();
 
-            if (all.isEmpty()) {
+            if (senders.isEmpty()) {
                 return "No notifications to analyze";
             }
 
-            // Count notifications per app
-            java.util.Map<String, Integer> senderCounts = new java.util.HashMap<>();
-            for (NotificationEntity entity : all) {
-                String appName = extractAppName(entity.getPackageName());
-                senderCounts.put(appName, senderCounts.getOrDefault(appName, 0) + 1);
-            }
-
-            // Sort by count descending
-            java.util.List<java.util.Map.Entry<String, Integer>> sorted =
-                new java.util.ArrayList<>(senderCounts.entrySet());
-            sorted.sort((a, b) -> b.getValue().compareTo(a.getValue()));
-
             // Build output
             StringBuilder sb = new StringBuilder("📱 Notification Senders\n━━━━━━━━━━━━━━━━━━━\n");
-            int maxCount = sorted.isEmpty() ? 1 : sorted.get(0).getValue();
+            int maxCount = senders.get(0).count;
 
-            for (java.util.Map.Entry<String, Integer> entry : sorted) {
-                String appName = entry.getKey();
-                int count = entry.getValue();
+            for (NotificationDao.SenderCount sender : senders) {
+                String appName = sender.appName;
+                int count = sender.count;
                 int barLength = (count * 10) / maxCount;
                 String bar = "█".repeat(Math.max(1, barLength)) + "░".repeat(10 - barLength);
                 sb.append(String.format("%-15s (%3d) %s\n", appName, count, bar));
@@ -245,115 +363,168 @@ public class DataRepository {
         }
     }
 
-    // Extract app name from package (e.g., "com.whatsapp" -> "whatsapp")
-    private static String extractAppName(String packageName) {
-        if (packageName == null || packageName.isEmpty()) {
-            return "unknown";
+    // Export every notification to a user-chosen file, newest first
+    public static String export(Context context, android.net.Uri uri, ExportFormat format,
+                                NotificationExporter.ProgressListener listener, CancellationSignal cancel) {
+        if (!USE_DB) {
+            return "Export only available in Database mode";
         }
-
-        int firstDotIndex = packageName.indexOf('.');
-
-        if (firstDotIndex != -1 && firstDotIndex < packageName.length() - 1) {
-            return packageName.substring(firstDotIndex + 1);
+        if (AppDatabase.getInstance(context).dao().getTotalCount() == 0) {
+            return "No notifications to export";
         }
-
-        return packageName;
+        return export(context, uri, NotificationQuery.ALL, format, listener, cancel);
     }
 
-    // Export to CSV file with user-chosen location
-    public static String exportToCSV(Context context, android.net.Uri uri) {
-        if (!USE_DB) {
-            return "Export only available in Database mode";
-        }
+    // Export every row matching a query's filter, streaming in constant memory. Rows go out in
+    // post time order, ties by id (oldest first only for OLDEST_FIRST); limit and cursor are ignored.
+    public static String export(Context context, android.net.Uri uri, NotificationQuery query, ExportFormat format,
+                                NotificationExporter.ProgressListener listener, CancellationSignal cancel) {
+        try (java.io.OutputStream outputStream = context.getContentResolver().openOutputStream(uri)) {
+            if (outputStream == null) {
+                return "Error: Could not open file";
+            }
 
-        try {
-            List<NotificationEntity> all = AppDatabase.getInstance(context).dao().getAllSync();
+            NotificationExporter exporter = new NotificationExporter(AppDatabase.getInstance(context));
+            NotificationExporter.Result result = exporter.export(outputStream, query, format, listener, cancel);
+            LogWrapper.d(TAG, "export: " + format + ", " + result.rows + " notifications, " +
+                    result.describeThroughput());
 
-            if (all.isEmpty()) {
-                return "No notifications to export";
+            if (result.cancelled) {
+                return "Export cancelled after " + result.rows + " notifications";
             }
+            return "✓ Exported " + result.rows + " notifications successfully!\n" +
+                    format.getLabel() + ": " + result.describeThroughput();
 
-            // Write to user-selected file
-            java.io.OutputStream outputStream = context.getContentResolver().openOutputStream(uri);
-            if (outputStream == null) {
+        } catch (Exception e) {
+            LogWrapper.e(TAG, "export: Error", e);
+            return "Error exporting: " + e.getMessage();
+        }
+    }
+
+    // Import a CSV or columnar export from a user-chosen file, skipping notifications that are
+    // already stored. Blocks until done; call off the UI thread.
+    public static String importFrom(Context context, android.net.Uri uri,
+                                    NotificationImporter.ProgressListener listener, CancellationSignal cancel) {
+        if (!USE_DB) {
+            return "Import only available in Database mode";
+        }
+        try (java.io.InputStream inputStream = context.getContentResolver().openInputStream(uri)) {
+            if (inputStream == null) {
                 return "Error: Could not open file";
             }
 
-            java.io.OutputStreamWriter writer = new java.io.OutputStreamWriter(outputStream);
-
-            // Write header with new columns
-            writer.write("Timestamp,Package,App,Title,Text,IsOngoing,Category,ActionCount\n");
-
-            // Write data with new columns
-            for (NotificationEntity entity : all) {
-                String appName = extractAppName(entity.getPackageName());
-                writer.write(String.format("\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",\"%d\"\n",
-                    escapeCsv(entity.getTimestamp()),
-                    escapeCsv(entity.getPackageName()),
-                    escapeCsv(appName),
-                    escapeCsv(entity.getTitle()),
-                    escapeCsv(entity.getText()),
-                    entity.isOngoing() ? "TRUE" : "FALSE",
-                    escapeCsv(entity.getCategory()),
-                    entity.getActionCount()
-                ));
+            NotificationImporter.Result result;
+            synchronized (importLock) {
+                try {
+                    result = new NotificationImporter(AppDatabase.getInstance(context))
+                            .importFrom(inputStream, listener, cancel);
+                } finally {
+                    // Imported rows may land in settled days the cache would otherwise keep
+                    queryCache.clear();
+                }
             }
+            LogWrapper.d(TAG, "importFrom: " + result.imported + " imported, " + result.duplicates +
+                    " already stored, " + result.describeThroughput());
 
-            writer.close();
-            outputStream.close();
-            LogWrapper.d(TAG, "exportToCSV: Exported " + all.size() + " notifications");
-
-            return "✓ Exported " + all.size() + " notifications successfully!";
+            if (result.cancelled) {
+                return "Import cancelled after reading " + result.rowsRead + " notifications; nothing was imported";
+            }
+            return "✓ Imported " + result.imported + " notifications successfully!\n" +
+                    result.duplicates + " already stored were skipped\n" + result.describeThroughput();
 
         } catch (Exception e) {
-            LogWrapper.e(TAG, "exportToCSV: Error", e);
-            return "Error exporting: " + e.getMessage();
+            LogWrapper.e(TAG, "importFrom: Error", e);
+            return "Error importing: " + e.getMessage();
         }
     }
 
-    // Escape CSV special characters
-    private static String escapeCsv(String value) {
-        if (value == null) return "";
-        return value.replace("\"", "\"\"").replace("\n", " ").replace("\r", "");
+    // Rows matching a research filter, one page when the query has a limit, with the newest id
+    // read just before them: rows added later are found with findNewNotifications from there.
+    // Call off the UI thread. Served from the query cache when the same filter ran since the
+    // last write, with the id of that read; do not modify the list.
+    public static NotificationPage findNotifications(Context context, NotificationQuery query) {
+        NotificationPage cached = queryCache.getRows(query);
+        if (cached != null) {
+            return cached;
+        }
+        AppDatabase db = AppDatabase.getInstance(context);
+        watchNotifications(db);
+        int generation = queryCache.generation();
+        // Read first, so a row added while the query runs is read again rather than missed
+        long latestId = getLatestId(context);
+        List<NotificationEntity> rows = db.dao().searchWithFilters(query.toSelect());
+        NotificationPage page = new NotificationPage(Collections.unmodifiableList(rows), latestId);
+        queryCache.putRows(query, generation, page);
+        return page;
+    }
+
+    // Rows matching a research filter that were added after seenId, up to latestId, in the query's
+    // order and at most limit of them. Not cached: every call asks for a new id range.
+    public static List<NotificationEntity> findNewNotifications(Context context, NotificationQuery query,
+                                                                long seenId, long latestId, int limit) {
+        NotificationQuery delta = query.toBuilder().after(null).limit(limit).addedBetween(seenId, latestId).build();
+        return AppDatabase.getInstance(context).dao().searchWithFilters(delta.toSelect());
     }
 
-    // Search/filter notifications
+    // Newest row id in the table, 0 when it is empty
+    public static long getLatestId(Context context) {
+        Long id = AppDatabase.getInstance(context).dao().getLatestId();
+        return id != null ? id : 0;
+    }
+
+    // Number of rows matching a research filter, whatever its limit and cursor
+    public static int countNotifications(Context context, NotificationQuery query) {
+        // Sort and paging do not change the count, so every page of a filter shares one entry
+        NotificationQuery filter = query.toBuilder()
+                .sort(NotificationQuery.Sort.NEWEST_FIRST).after(null).limit(0).build();
+        Integer cached = queryCache.getCount(filter);
+        if (cached != null) {
+            return cached;
+        }
+        AppDatabase db = AppDatabase.getInstance(context);
+        watchNotifications(db);
+        int generation = queryCache.generation();
+        int count = db.dao().countWithFilters(filter.toCount());
+        queryCache.putCount(filter, generation, count);
+        return count;
+    }
+
+    // Search/filter notifications through the full-text index (newest page of matches)
     public static String search(Context context, String query) {
         if (!USE_DB) {
             return "Search only available in Database mode";
         }
 
-        if (query == null || query.trim().isEmpty()) {
+        NotificationQuery filter = new NotificationQuery.Builder().text(query).limit(SEARCH_PAGE_SIZE).build();
+        if (filter.getTextMatch() == null) {
             return "Enter search term";
         }
 
         try {
-            List<NotificationEntity> all = AppDatabase.getInstance(context).dao().getAllSync();
-            String lowerQuery = query.toLowerCase();
-
-            StringBuilder sb = new StringBuilder();
-            int count = 0;
+            NotificationDao dao = AppDatabase.getInstance(context).dao();
+            int count = dao.countWithFilters(filter.toCount());
 
-            for (NotificationEntity entity : all) {
-                boolean matches =
-                    entity.getPackageName().toLowerCase().contains(lowerQuery) ||
-                    entity.getTitle().toLowerCase().contains(lowerQuery) ||
-                    entity.getText().toLowerCase().contains(lowerQuery);
+            if (count == 0) {
+                return "No results for: " + query;
+            }
 
-                if (matches) {
-                    sb.append(entity.getTimestamp()).append("\n")
-                      .append("App: ").append(entity.getPackageName()).append("\n")
-                      .append("Title: ").append(entity.getTitle()).append("\n")
-                      .append("Text: ").append(entity.getText()).append("\n")
-                      .append("------\n");
-                    count++;
+            List<NotificationEntity> page = dao.searchWithFilters(filter.toSelect());
+            StringBuilder sb = new StringBuilder();
+            for (NotificationEntity entity : page) {
+                sb.append(Timestamps.format(entity.getTimestamp())).append("\n")
+                  .append("App: ").append(entity.getPackageName()).append("\n")
+                  .append("Title: ").append(entity.getTitle()).append("\n")
+                  .append("Text: ").append(fullText(dao, entity)).append("\n");
+                if (entity.getOccurrences() > 1) {
+                    sb.append("Posted ").append(entity.getOccurrences()).append(" times, last ")
+                      .append(Timestamps.format(entity.getLastUpdated())).append("\n");
                 }
+                sb.append("------\n");
             }
 
-            if (count == 0) {
-                return "No results for: " + query;
+            if (count > page.size()) {
+                return "Found " + count + " results (newest " + page.size() + " shown):\n\n" + sb.toString();
             }
-
             return "Found " + count + " results:\n\n" + sb.toString();
 
         } catch (Exception e) {
@@ -362,39 +533,85 @@ public class DataRepository {
         }
     }
 
-    // Compact database (VACUUM)
-    public static String compactDB(Context context) {
-        if (!USE_DB) {
-            return "Compact only available in Database mode";
+    // The whole text of a notification; for a truncated row this reads and decompresses its body.
+    // Lists show getText() (the preview); call this only where the full text is displayed.
+    public static String fullText(NotificationDao dao, NotificationEntity entity) {
+        if (!entity.isTruncated()) {
+            return entity.getText();
         }
+        byte[] body = dao.getBody(entity.getId());
+        return body != null ? TextCodec.decompress(body) : entity.getText();
+    }
 
-        try {
-            File dbFileBefore = context.getDatabasePath("notifications.db");
-            long sizeBefore = dbFileBefore.exists() ? dbFileBefore.length() : 0;
-
-            // Run VACUUM
-            AppDatabase.getInstance(context).getOpenHelper()
-                .getWritableDatabase().execSQL("VACUUM");
-
-            File dbFileAfter = context.getDatabasePath("notifications.db");
-            long sizeAfter = dbFileAfter.exists() ? dbFileAfter.length() : 0;
-            long saved = sizeBefore - sizeAfter;
+    // Enforce the saved retention policy shortly after startup and every RETENTION_INTERVAL_HOURS.
+    // Safe to call repeatedly; only the first call schedules.
+    public static void scheduleRetention(Context context) {
+        if (!USE_DB || !retentionScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        executor.scheduleWithFixedDelay(() -> maintenance.execute(() -> {
+            try {
+                enforceRetention(appContext, RetentionPolicy.load(appContext), false);
+            } catch (Exception e) {
+                LogWrapper.e(TAG, "scheduleRetention: Error", e);
+            }
+        }), 1, TimeUnit.HOURS.toMinutes(RETENTION_INTERVAL_HOURS), TimeUnit.MINUTES);
+    }
 
-            LogWrapper.d(TAG, "compactDB: Before=" + sizeBefore + " After=" + sizeAfter + " Saved=" + saved);
+    // Save a new policy and apply it now, reclaiming the freed space (replaces the old full VACUUM).
+    // Call off the UI thread.
+    public static String applyRetention(Context context, RetentionPolicy policy) {
+        if (!USE_DB) {
+            return "Retention only available in Database mode";
+        }
 
-            return String.format(
-                "Database compacted!\n\n" +
+        try {
+            policy.save(context);
+            File dbFile = context.getDatabasePath(AppDatabase.DATABASE_NAME);
+            long sizeBefore = dbFile.length();
+
+            RetentionEnforcer.Result result = enforceRetention(context, policy, true);
+
+            long sizeAfter = dbFile.length();
+            return String.format(Locale.US,
+                "Retention applied!\n\n" +
+                "Deleted: %d rows\n" +
+                "  ongoing expired: %d\n" +
+                "  older than limit: %d\n" +
+                "  over app limit: %d\n" +
+                "  over row limit: %d\n\n" +
                 "Before: %.2f KB\n" +
                 "After: %.2f KB\n" +
-                "Saved: %.2f KB",
+                "Reclaimed: %.2f KB%s",
+                result.deleted(),
+                result.expiredOngoing,
+                result.expiredByAge,
+                result.overPackageLimit,
+                result.overRowLimit,
                 sizeBefore / 1024.0,
                 sizeAfter / 1024.0,
-                saved / 1024.0
+                result.freedBytes / 1024.0,
+                result.converted ? "\n\n(One-time rebuild done; space is reclaimed incrementally from now on)" : ""
             );
 
         } catch (Exception e) {
-            LogWrapper.e(TAG, "compactDB: Error", e);
-            return "Error compacting: " + e.getMessage();
+            LogWrapper.e(TAG, "applyRetention: Error", e);
+            return "Error applying retention: " + e.getMessage();
+        }
+    }
+
+    private static RetentionEnforcer.Result enforceRetention(Context context, RetentionPolicy policy,
+                                                            boolean allowConversion) {
+        synchronized (retentionLock) {
+            RetentionEnforcer enforcer = new RetentionEnforcer(AppDatabase.getInstance(context));
+            RetentionEnforcer.Result result = enforcer.run(policy, System.currentTimeMillis(), allowConversion);
+            if (result.deleted() > 0) {
+                queryCache.clear();
+            }
+            LogWrapper.d(TAG, "enforceRetention: Deleted " + result.deleted() + " rows, freed " +
+                    result.freedBytes + " bytes in " + result.elapsedMs + " ms");
+            return result;
         }
     }
 }
@@ -0,0 +1,72 @@
+package com.example.notme.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Name -> id caches for the packages and categories dictionaries, used on the write path
+ * to turn NotificationEntity into NotificationRow. A device has a few dozen packages and
+ * categories, so after the first batch every lookup is a map hit and ingest does no extra
+ * queries. Dictionary entries are never deleted, so a cached id stays valid; the one
+ * exception is an id inserted by a transaction that then rolled back, which is why the
+ * writer calls clear() when a batch fails.
+ */
+final class Dictionaries {
+
+    private final Map<String, Long> packageIds = new ConcurrentHashMap<>();
+    private final Map<String, Long> categoryIds = new ConcurrentHashMap<>();
+
+    // Resolve (adding to the dictionaries where needed) the names of every entity.
+    // Run inside the transaction that writes the rows, so new entries commit with them.
+    // An entity read back with a truncated text keeps its stored compressed body.
+    List<NotificationRow> toRows(NotificationDao dao, List<NotificationEntity> entities) {
+        List<NotificationRow> rows = new ArrayList<>(entities.size());
+        for (NotificationEntity entity : entities) {
+            rows.add(NotificationRow.of(entity,
+                    packageId(dao, entity.getPackageName()),
+                    categoryId(dao, entity.getCategory()),
+                    entity.isTruncated() ? dao.getBody(entity.getId()) : null));
+        }
+        return rows;
+    }
+
+    Long packageId(NotificationDao dao, String packageName) {
+        return resolve(packageIds, packageName, dao::findPackageId,
+                name -> dao.insertPackage(new PackageName(0, name)));
+    }
+
+    Long categoryId(NotificationDao dao, String category) {
+        return resolve(categoryIds, category, dao::findCategoryId,
+                name -> dao.insertCategory(new CategoryName(0, name)));
+    }
+
+    // Forget every cached id; the next lookups re-read them from the database
+    void clear() {
+        packageIds.clear();
+        categoryIds.clear();
+    }
+
+    private static Long resolve(Map<String, Long> cache, String name,
+                                Function<String, Long> find, Function<String, Long> insert) {
+        if (name == null) {
+            return null;
+        }
+        Long id = cache.get(name);
+        if (id != null) {
+            return id;
+        }
+        id = find.apply(name);
+        if (id == null) {
+            id = insert.apply(name);
+            if (id == -1) {
+                // Another writer added it first (the insert is IGNORE on the unique name)
+                id = find.apply(name);
+            }
+        }
+        cache.put(name, id);
+        return id;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.notme.data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * File formats NotificationExporter can write. Each one streams: memory use does not
+ * depend on the number of rows exported. NotificationImporter reads CSV and COLUMNAR back.
+ *   CSV        - spreadsheet-friendly, local-time timestamps (see CsvRowWriter)
+ *   JSON_LINES - one JSON object per row, epoch-millis timestamps (see JsonLinesRowWriter)
+ *   COLUMNAR   - compact binary for the offline analysis tools (see ColumnarRowWriter)
+ */
+public enum ExportFormat {
+
+    CSV("CSV", "text/csv", "csv"),
+    JSON_LINES("JSON Lines", "application/x-ndjson", "jsonl"),
+    COLUMNAR("Columnar binary", "application/octet-stream", "nmcol");
+
+    private final String label;
+    private final String mimeType;
+    private final String extension;
+
+    ExportFormat(String label, String mimeType, String extension) {
+        this.label = label;
+        this.mimeType = mimeType;
+        this.extension = extension;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    // Labels in declaration order, for a chooser dialog
+    public static String[] labels() {
+        ExportFormat[] formats = values();
+        String[] labels = new String[formats.length];
+        for (int i = 0; i < formats.length; i++) {
+            labels[i] = formats[i].label;
+        }
+        return labels;
+    }
+
+    NotificationExporter.RowWriter open(OutputStream out) throws IOException {
+        switch (this) {
+            case JSON_LINES: return new JsonLinesRowWriter(out);
+            case COLUMNAR: return new ColumnarRowWriter(out);
+            default: return new CsvRowWriter(out);
+        }
+    }
+
+    NotificationImporter.RowReader openReader(InputStream in) throws IOException {
+        switch (this) {
+            case JSON_LINES: throw new IOException("JSON Lines exports cannot be imported; use CSV or columnar");
+            case COLUMNAR: return new ColumnarRowReader(in);
+            default: return new CsvRowReader(in);
+        }
+    }
+}
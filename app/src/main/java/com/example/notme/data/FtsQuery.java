@@ -0,0 +1,54 @@
+package com.example.notme.data;
+
+/**
+ * Turns free text typed by the user into an FTS4 MATCH expression. A search matches each of its
+ * words on its own, in the index (title, text, terms) or in the package name, which the index
+ * does not cover: the name is split into words the way the index splits text, so a word
+ * matches a package name by the same prefix rule as it matches text.
+ */
+public final class FtsQuery {
+
+    private FtsQuery() {
+    }
+
+    // Every word must match as a prefix, e.g. "Whats App!" -> "whats* app*".
+    // Returns null when the input has no searchable characters.
+    public static String from(String input) {
+        if (input == null) {
+            return null;
+        }
+
+        StringBuilder match = new StringBuilder();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= input.length(); i++) {
+            char c = i < input.length() ? input.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                // Lower case keeps tokens from being read as AND / OR / NOT operators
+                token.append(Character.toLowerCase(c));
+            } else if (token.length() > 0) {
+                if (match.length() > 0) {
+                    match.append(' ');
+                }
+                match.append(token).append('*');
+                token.setLength(0);
+            }
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+
+    // SQL over packages.name: its words, each after a space, e.g. "com.whats_app" -> " com whats app".
+    // Package names hold letters, digits, '.' and '_', and the index splits on the last two.
+    static final String PACKAGE_WORDS = "' ' || REPLACE(REPLACE(name, '.', ' '), '_', ' ')";
+
+    // The words of a from() expression, each a MATCH expression of its own, e.g. "whats* app*" ->
+    // ["whats*", "app*"]
+    public static String[] words(String match) {
+        return match.split(" ");
+    }
+
+    // LIKE pattern over PACKAGE_WORDS for one of words(): a word of the name starts with it, e.g.
+    // "whats*" -> "% whats%". Words hold only letters and digits, so nothing needs escaping.
+    public static String packagePattern(String word) {
+        return "% " + word.substring(0, word.length() - 1) + "%";
+    }
+}
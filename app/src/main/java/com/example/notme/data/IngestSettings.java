@@ -0,0 +1,53 @@
+package com.example.notme.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * How new posts are written:
+ *   coalesceWindowMs - an update of an ongoing notification posted within this long of its
+ *                      previous post rewrites that post's row instead of adding one; 0 turns
+ *                      coalescing off
+ *   foldRepeats      - storage mode for repeated content: when on, a post identical to a
+ *                      recent one from the same app in the same hour is counted in that row
+ *                      (occurrences) instead of getting its own row
+ *
+ * Saved in SharedPreferences and applied to the write-behind queue by DataRepository when the
+ * listener service starts and whenever the user changes it.
+ */
+public final class IngestSettings {
+
+    private static final String PREFS_NAME = "Ingest";
+
+    public static final IngestSettings DEFAULT = new IngestSettings(WriteBehindQueue.DEFAULT_COALESCE_WINDOW_MS, true);
+
+    private final long coalesceWindowMs;
+    private final boolean foldRepeats;
+
+    public IngestSettings(long coalesceWindowMs, boolean foldRepeats) {
+        this.coalesceWindowMs = Math.max(0, coalesceWindowMs);
+        this.foldRepeats = foldRepeats;
+    }
+
+    public static IngestSettings load(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return new IngestSettings(
+                prefs.getLong("coalesceWindowMs", DEFAULT.coalesceWindowMs),
+                prefs.getBoolean("foldRepeats", DEFAULT.foldRepeats));
+    }
+
+    public void save(Context context) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putLong("coalesceWindowMs", coalesceWindowMs)
+                .putBoolean("foldRepeats", foldRepeats)
+                .apply();
+    }
+
+    public long getCoalesceWindowMs() {
+        return coalesceWindowMs;
+    }
+
+    public boolean isFoldRepeats() {
+        return foldRepeats;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.notme.data;
+
+import com.example.notme.util.JsonFields;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ExportFormat.JSON_LINES: one JSON object per line, with the NotificationEntity field names.
+ * Timestamps are epoch millis, so nothing is lost to time zones or formatting.
+ */
+final class JsonLinesRowWriter implements NotificationExporter.RowWriter {
+
+    private final Writer w;
+
+    JsonLinesRowWriter(OutputStream out) {
+        this.w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8),
+                NotificationExporter.BUFFER_SIZE);
+    }
+
+    @Override
+    public void write(NotificationExporter.Row row) throws IOException {
+        w.write("{\"timestamp\":");
+        w.write(Long.toString(row.timestamp));
+        w.write(",\"packageName\":");
+        JsonFields.writeString(w, row.packageName);
+        w.write(",\"title\":");
+        JsonFields.writeString(w, row.title);
+        w.write(",\"text\":");
+        JsonFields.writeString(w, row.text);
+        w.write(",\"isOngoing\":");
+        w.write(row.isOngoing ? "true" : "false");
+        w.write(",\"category\":");
+        JsonFields.writeString(w, row.category);
+        w.write(",\"actionCount\":");
+        w.write(Integer.toString(row.actionCount));
+        w.write(",\"lastUpdated\":");
+        w.write(Long.toString(row.lastUpdated));
+        w.write(",\"updateCount\":");
+        w.write(Integer.toString(row.updateCount));
+        w.write(",\"occurrences\":");
+        w.write(Integer.toString(row.occurrences));
+        w.write("}\n");
+    }
+
+    @Override
+    public void finish() throws IOException {
+        w.flush();
+    }
+}
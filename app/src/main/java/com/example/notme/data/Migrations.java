@@ -0,0 +1,334 @@
+package com.example.notme.data;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.example.notme.util.TextCodec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Explicit schema migrations for AppDatabase.
+ * Each migration carries its own SQL so it keeps working after later schema changes.
+ */
+final class Migrations {
+
+    private Migrations() {
+    }
+
+    // v3: first-seen / last-updated tracking for coalesced ongoing notifications
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `notifications` ADD COLUMN `lastUpdated` TEXT");
+            db.execSQL("ALTER TABLE `notifications` ADD COLUMN `updateCount` INTEGER NOT NULL DEFAULT 1");
+            db.execSQL("UPDATE `notifications` SET `lastUpdated` = `timestamp`");
+        }
+    };
+
+    // v4: epoch-millis INTEGER timestamps (were locale-formatted local-time TEXT) plus a timestamp index.
+    // SQLite can't change a column type in place, so the table is rebuilt.
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE `notifications_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`packageName` TEXT, `title` TEXT, `text` TEXT, `timestamp` INTEGER NOT NULL, " +
+                    "`isOngoing` INTEGER NOT NULL, `category` TEXT, `actionCount` INTEGER NOT NULL, " +
+                    "`lastUpdated` INTEGER NOT NULL, `updateCount` INTEGER NOT NULL DEFAULT 1)");
+            // 'utc' treats the stored text as local time; unparseable values become 0
+            db.execSQL("INSERT INTO `notifications_new` (`id`, `packageName`, `title`, `text`, `timestamp`, " +
+                    "`isOngoing`, `category`, `actionCount`, `lastUpdated`, `updateCount`) " +
+                    "SELECT `id`, `packageName`, `title`, `text`, " +
+                    "IFNULL(CAST(strftime('%s', `timestamp`, 'utc') AS INTEGER) * 1000, 0), " +
+                    "`isOngoing`, `category`, `actionCount`, " +
+                    "IFNULL(CAST(strftime('%s', `lastUpdated`, 'utc') AS INTEGER) * 1000, " +
+                    "IFNULL(CAST(strftime('%s', `timestamp`, 'utc') AS INTEGER) * 1000, 0)), " +
+                    "`updateCount` FROM `notifications`");
+            db.execSQL("DROP TABLE `notifications`");
+            db.execSQL("ALTER TABLE `notifications_new` RENAME TO `notifications`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_notifications_timestamp` ON `notifications` (`timestamp`)");
+        }
+    };
+
+    // v5: composite indexes for the dashboard aggregates and research filters
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_notifications_packageName_timestamp` " +
+                    "ON `notifications` (`packageName`, `timestamp`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_notifications_category_timestamp` " +
+                    "ON `notifications` (`category`, `timestamp`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_notifications_isOngoing_timestamp` " +
+                    "ON `notifications` (`isOngoing`, `timestamp`)");
+            db.execSQL("ANALYZE `notifications`");
+        }
+    };
+
+    // v6: external-content FTS4 index for text search, with the sync triggers Room generates for it
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `notifications_fts` USING FTS4(" +
+                    "`title` TEXT, `text` TEXT, `packageName` TEXT, tokenize=unicode61, content=`notifications`)");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notifications_fts_BEFORE_UPDATE " +
+                    "BEFORE UPDATE ON `notifications` BEGIN DELETE FROM `notifications_fts` " +
+                    "WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notifications_fts_BEFORE_DELETE " +
+                    "BEFORE DELETE ON `notifications` BEGIN DELETE FROM `notifications_fts` " +
+                    "WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notifications_fts_AFTER_UPDATE " +
+                    "AFTER UPDATE ON `notifications` BEGIN INSERT INTO `notifications_fts`" +
+                    "(`docid`, `title`, `text`, `packageName`) " +
+                    "VALUES (NEW.`rowid`, NEW.`title`, NEW.`text`, NEW.`packageName`); END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notifications_fts_AFTER_INSERT " +
+                    "AFTER INSERT ON `notifications` BEGIN INSERT INTO `notifications_fts`" +
+                    "(`docid`, `title`, `text`, `packageName`) " +
+                    "VALUES (NEW.`rowid`, NEW.`title`, NEW.`text`, NEW.`packageName`); END");
+            // Index the existing history in one pass
+            db.execSQL("INSERT INTO `notifications_fts`(`notifications_fts`) VALUES('rebuild')");
+        }
+    };
+
+    // v7: dashboard rollups. The triggers that maintain them are created on open (see Rollup);
+    // here the table is created and backfilled from the existing history.
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `rollups` (`kind` TEXT NOT NULL, `bucket` TEXT NOT NULL, " +
+                    "`count` INTEGER NOT NULL, PRIMARY KEY(`kind`, `bucket`))");
+            db.execSQL("INSERT INTO `rollups` (`kind`, `bucket`, `count`) " +
+                    "SELECT 'package', IFNULL(`packageName`, ''), COUNT(*) FROM `notifications` GROUP BY 2");
+            db.execSQL("INSERT INTO `rollups` (`kind`, `bucket`, `count`) " +
+                    "SELECT 'category', IFNULL(`category`, ''), COUNT(*) FROM `notifications` GROUP BY 2");
+            db.execSQL("INSERT INTO `rollups` (`kind`, `bucket`, `count`) " +
+                    "SELECT 'ongoing', `isOngoing`, COUNT(*) FROM `notifications` GROUP BY 2");
+            db.execSQL("INSERT INTO `rollups` (`kind`, `bucket`, `count`) " +
+                    "SELECT 'hour', strftime('%H', `timestamp` / 1000, 'unixepoch', 'localtime'), COUNT(*) " +
+                    "FROM `notifications` GROUP BY 2");
+            db.execSQL("INSERT INTO `rollups` (`kind`, `bucket`, `count`) " +
+                    "SELECT 'day', strftime('%Y-%m-%d', `timestamp` / 1000, 'unixepoch', 'localtime'), COUNT(*) " +
+                    "FROM `notifications` GROUP BY 2");
+        }
+    };
+
+    // v8: packageName and category move into the packages / categories dictionaries and the
+    // table stores their ids. Readers use the notification_details view, which joins the names
+    // back in. The FTS index is rebuilt over title and text only (its content table no longer
+    // has a packageName column), and the rollup triggers are dropped so that open recreates
+    // them against the new columns; the rollup rows themselves are keyed by name and stay valid.
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `packages` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`name` TEXT NOT NULL)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_packages_name` ON `packages` (`name`)");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `categories` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`name` TEXT NOT NULL)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_categories_name` ON `categories` (`name`)");
+            db.execSQL("INSERT INTO `packages` (`name`) " +
+                    "SELECT DISTINCT `packageName` FROM `notifications` WHERE `packageName` IS NOT NULL");
+            db.execSQL("INSERT INTO `categories` (`name`) " +
+                    "SELECT DISTINCT `category` FROM `notifications` WHERE `category` IS NOT NULL");
+
+            // Everything that references the old columns goes before the table is rebuilt
+            db.execSQL("DROP TRIGGER IF EXISTS room_fts_content_sync_notifications_fts_BEFORE_UPDATE");
+            db.execSQL("DROP TRIGGER IF EXISTS room_fts_content_sync_notifications_fts_BEFORE_DELETE");
+            db.execSQL("DROP TRIGGER IF EXISTS room_fts_content_sync_notifications_fts_AFTER_UPDATE");
+            db.execSQL("DROP TRIGGER IF EXISTS room_fts_content_sync_notifications_fts_AFTER_INSERT");
+            db.execSQL("DROP TRIGGER IF EXISTS `rollups_after_insert`");
+            db.execSQL("DROP TRIGGER IF EXISTS `rollups_after_delete`");
+            db.execSQL("DROP TRIGGER IF EXISTS `rollups_after_update`");
+            db.execSQL("DROP TABLE IF EXISTS `notifications_fts`");
+
+            db.execSQL("CREATE TABLE `notifications_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`packageId` INTEGER, `title` TEXT, `text` TEXT, `timestamp` INTEGER NOT NULL, " +
+                    "`isOngoing` INTEGER NOT NULL, `categoryId` INTEGER, `actionCount` INTEGER NOT NULL, " +
+                    "`lastUpdated` INTEGER NOT NULL, `updateCount` INTEGER NOT NULL DEFAULT 1, " +
+                    "FOREIGN KEY(`packageId`) REFERENCES `packages`(`id`) ON UPDATE NO ACTION ON DELETE NO ACTION, " +
+                    "FOREIGN KEY(`categoryId`) REFERENCES `categories`(`id`) ON UPDATE NO ACTION ON DELETE NO ACTION)");
+            db.execSQL("INSERT INTO `notifications_new` (`id`, `packageId`, `title`, `text`, `timestamp`, " +
+                    "`isOngoing`, `categoryId`, `actionCount`, `lastUpdated`, `updateCount`) " +
+                    "SELECT n.`id`, p.`id`, n.`title`, n.`text`, n.`timestamp`, n.`isOngoing`, c.`id`, " +
+                    "n.`actionCount`, n.`lastUpdated`, n.`updateCount` FROM `notifications` AS n " +
+                    "LEFT JOIN `packages` AS p ON p.`name` = n.`packageName` " +
+                    "LEFT JOIN `categories` AS c ON c.`name` = n.`category`");
+            db.execSQL("DROP TABLE `notifications`");
+            db.execSQL("ALTER TABLE `notifications_new` RENAME TO `notifications`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_notifications_timestamp` ON `notifications` (`timestamp`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_notifications_packageId_timestamp` " +
+                    "ON `notifications` (`packageId`, `timestamp`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_notifications_categoryId_timestamp` " +
+                    "ON `notifications` (`categoryId`, `timestamp`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_notifications_isOngoing_timestamp` " +
+                    "ON `notifications` (`isOngoing`, `timestamp`)");
+
+            // Must match the view definition on NotificationEntity character for character
+            db.execSQL("CREATE VIEW `notification_details` AS SELECT n.id, p.name AS packageName, n.title, " +
+                    "n.text, n.timestamp, n.isOngoing, c.name AS category, n.actionCount, n.lastUpdated, " +
+                    "n.updateCount FROM notifications AS n LEFT JOIN packages AS p ON p.id = n.packageId " +
+                    "LEFT JOIN categories AS c ON c.id = n.categoryId");
+
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `notifications_fts` USING FTS4(" +
+                    "`title` TEXT, `text` TEXT, tokenize=unicode61, content=`notifications`)");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notifications_fts_BEFORE_UPDATE " +
+                    "BEFORE UPDATE ON `notifications` BEGIN DELETE FROM `notifications_fts` " +
+                    "WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notifications_fts_BEFORE_DELETE " +
+                    "BEFORE DELETE ON `notifications` BEGIN DELETE FROM `notifications_fts` " +
+                    "WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notifications_fts_AFTER_UPDATE " +
+                    "AFTER UPDATE ON `notifications` BEGIN INSERT INTO `notifications_fts`" +
+                    "(`docid`, `title`, `text`) VALUES (NEW.`rowid`, NEW.`title`, NEW.`text`); END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notifications_fts_AFTER_INSERT " +
+                    "AFTER INSERT ON `notifications` BEGIN INSERT INTO `notifications_fts`" +
+                    "(`docid`, `title`, `text`) VALUES (NEW.`rowid`, NEW.`title`, NEW.`text`); END");
+            db.execSQL("INSERT INTO `notifications_fts`(`notifications_fts`) VALUES('rebuild')");
+            db.execSQL("ANALYZE");
+        }
+    };
+
+    // v9: long bodies stored compressed (see TextCodec). Adds the body column, re-creates the view
+    // with the truncated flag, and compresses existing long rows in keyset chunks. Each rewrite
+    // re-indexes the row through the FTS update triggers, so the index then covers the preview.
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `notifications` ADD COLUMN `body` BLOB");
+            db.execSQL("DROP VIEW IF EXISTS `notification_details`");
+            db.execSQL("CREATE VIEW `notification_details` AS SELECT n.id, p.name AS packageName, n.title, " +
+                    "n.text, n.timestamp, n.isOngoing, c.name AS category, n.actionCount, n.lastUpdated, " +
+                    "n.updateCount, n.body IS NOT NULL AS truncated FROM notifications AS n " +
+                    "LEFT JOIN packages AS p ON p.id = n.packageId " +
+                    "LEFT JOIN categories AS c ON c.id = n.categoryId");
+
+            long lastId = 0;
+            List<Long> ids = new ArrayList<>();
+            List<String> texts = new ArrayList<>();
+            do {
+                ids.clear();
+                texts.clear();
+                try (Cursor c = db.query("SELECT `id`, `text` FROM `notifications` WHERE `id` > ? " +
+                        "AND length(`text`) > ? ORDER BY `id` LIMIT 200",
+                        new Object[]{lastId, TextCodec.COMPRESS_THRESHOLD})) {
+                    while (c.moveToNext()) {
+                        ids.add(c.getLong(0));
+                        texts.add(c.getString(1));
+                    }
+                }
+                for (int i = 0; i < ids.size(); i++) {
+                    lastId = ids.get(i);
+                    byte[] body = TextCodec.compress(texts.get(i));
+                    if (body != null) {
+                        db.execSQL("UPDATE `notifications` SET `text` = ?, `body` = ? WHERE `id` = ?",
+                                new Object[]{TextCodec.preview(texts.get(i)), body, lastId});
+                    }
+                }
+            } while (ids.size() == 200);
+        }
+    };
+
+    // v10: repeats of the same content folded into one row (see WriteBehindQueue). Adds the
+    // occurrences column (every existing row is one post), re-creates the view with it, and drops
+    // the rollup triggers so onOpen re-creates them adding occurrences instead of 1.
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `notifications` ADD COLUMN `occurrences` INTEGER NOT NULL DEFAULT 1");
+            db.execSQL("DROP TRIGGER IF EXISTS `rollups_after_insert`");
+            db.execSQL("DROP TRIGGER IF EXISTS `rollups_after_delete`");
+            db.execSQL("DROP TRIGGER IF EXISTS `rollups_after_update`");
+            db.execSQL("DROP VIEW IF EXISTS `notification_details`");
+            db.execSQL("CREATE VIEW `notification_details` AS SELECT n.id, p.name AS packageName, n.title, " +
+                    "n.text, n.timestamp, n.isOngoing, c.name AS category, n.actionCount, n.lastUpdated, " +
+                    "n.updateCount, n.occurrences, n.body IS NOT NULL AS truncated FROM notifications AS n " +
+                    "LEFT JOIN packages AS p ON p.id = n.packageId " +
+                    "LEFT JOIN categories AS c ON c.id = n.categoryId");
+        }
+    };
+
+    // v11: the search index covers the whole text of compressed rows. Adds the terms column (the
+    // words of a body past its preview, see TextCodec.searchTerms), fills it in keyset chunks
+    // with the FTS triggers dropped, and re-creates the index over title, text and terms.
+    static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("DROP TRIGGER IF EXISTS room_fts_content_sync_notifications_fts_BEFORE_UPDATE");
+            db.execSQL("DROP TRIGGER IF EXISTS room_fts_content_sync_notifications_fts_BEFORE_DELETE");
+            db.execSQL("DROP TRIGGER IF EXISTS room_fts_content_sync_notifications_fts_AFTER_UPDATE");
+            db.execSQL("DROP TRIGGER IF EXISTS room_fts_content_sync_notifications_fts_AFTER_INSERT");
+            db.execSQL("DROP TABLE IF EXISTS `notifications_fts`");
+            db.execSQL("ALTER TABLE `notifications` ADD COLUMN `terms` TEXT");
+
+            long lastId = 0;
+            List<Long> ids = new ArrayList<>();
+            List<String> terms = new ArrayList<>();
+            do {
+                ids.clear();
+                terms.clear();
+                try (Cursor c = db.query("SELECT `id`, `text`, `body` FROM `notifications` WHERE `id` > ? " +
+                        "AND `body` IS NOT NULL ORDER BY `id` LIMIT 200", new Object[]{lastId})) {
+                    while (c.moveToNext()) {
+                        ids.add(c.getLong(0));
+                        terms.add(TextCodec.searchTerms(TextCodec.decompress(c.getBlob(2)), c.getString(1)));
+                    }
+                }
+                for (int i = 0; i < ids.size(); i++) {
+                    lastId = ids.get(i);
+                    if (terms.get(i) != null) {
+                        db.execSQL("UPDATE `notifications` SET `terms` = ? WHERE `id` = ?",
+                                new Object[]{terms.get(i), lastId});
+                    }
+                }
+            } while (ids.size() == 200);
+
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `notifications_fts` USING FTS4(" +
+                    "`title` TEXT, `text` TEXT, `terms` TEXT, tokenize=unicode61, content=`notifications`)");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notifications_fts_BEFORE_UPDATE " +
+                    "BEFORE UPDATE ON `notifications` BEGIN DELETE FROM `notifications_fts` " +
+                    "WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notifications_fts_BEFORE_DELETE " +
+                    "BEFORE DELETE ON `notifications` BEGIN DELETE FROM `notifications_fts` " +
+                    "WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notifications_fts_AFTER_UPDATE " +
+                    "AFTER UPDATE ON `notifications` BEGIN INSERT INTO `notifications_fts`" +
+                    "(`docid`, `title`, `text`, `terms`) VALUES (NEW.`rowid`, NEW.`title`, NEW.`text`, NEW.`terms`); END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notifications_fts_AFTER_INSERT " +
+                    "AFTER INSERT ON `notifications` BEGIN INSERT INTO `notifications_fts`" +
+                    "(`docid`, `title`, `text`, `terms`) VALUES (NEW.`rowid`, NEW.`title`, NEW.`text`, NEW.`terms`); END");
+            db.execSQL("INSERT INTO `notifications_fts`(`notifications_fts`) VALUES('rebuild')");
+        }
+    };
+
+    // v12: the hour and day rollups, bucketed in local time by the triggers, become UTC quarter
+    // hours (see Rollup), so a time zone change no longer leaves counts in the wrong buckets.
+    // Drops the rollup triggers so onOpen re-creates them, and rebuilds the time buckets.
+    static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("DROP TRIGGER IF EXISTS `rollups_after_insert`");
+            db.execSQL("DROP TRIGGER IF EXISTS `rollups_after_delete`");
+            db.execSQL("DROP TRIGGER IF EXISTS `rollups_after_update`");
+            db.execSQL("DELETE FROM `rollups` WHERE `kind` IN ('hour', 'day')");
+            db.execSQL("INSERT INTO `rollups` (`kind`, `bucket`, `count`) " +
+                    "SELECT 'quarter', CAST(`timestamp` / " + Rollup.QUARTER_HOUR_MS + " AS TEXT), SUM(`occurrences`) " +
+                    "FROM `notifications` GROUP BY 2");
+        }
+    };
+
+    static final Migration[] ALL = {
+            MIGRATION_2_3,
+            MIGRATION_3_4,
+            MIGRATION_4_5,
+            MIGRATION_5_6,
+            MIGRATION_6_7,
+            MIGRATION_7_8,
+            MIGRATION_8_9,
+            MIGRATION_9_10,
+            MIGRATION_10_11,
+            MIGRATION_11_12
+    };
+}
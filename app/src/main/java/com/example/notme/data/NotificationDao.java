@@ -3,7 +3,9 @@ package com.example.notme.data;
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Update;
 
 import java.util.List;
 import java.util.Map;
@@ -11,62 +13,159 @@ import java.util.Map;
 @Dao
 public interface NotificationDao {
 
+    // Writes take NotificationRow (names already resolved to ids, see Dictionaries);
+    // every read returns NotificationEntity from the notification_details view.
+
+    // Bulk insert used by the write-behind queue; Room wraps it in one transaction
     @Insert
-    void insert(NotificationEntity notification);
+    long[] insertAll(List<NotificationRow> notifications);
+
+    // Rewrites coalesced ongoing notifications, and rows that repeats were folded into, in place
+    @Update
+    void updateAll(List<NotificationRow> notifications);
+
+    // Compressed whole text of a truncated row (see TextCodec), null for short rows
+    @Query("SELECT body FROM notifications WHERE id = :id")
+    byte[] getBody(long id);
+
+    // Dictionary lookups behind the Dictionaries caches. Inserts return -1 when the name exists.
+    @Query("SELECT id FROM packages WHERE name = :name")
+    Long findPackageId(String name);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long insertPackage(PackageName packageName);
+
+    @Query("SELECT id FROM categories WHERE name = :name")
+    Long findCategoryId(String name);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long insertCategory(CategoryName category);
+
+    // Emits on every write to the table; used as a change signal by the main feed
+    @Query("SELECT MAX(id) FROM notifications")
+    LiveData<Long> observeLatestId();
 
-    @Query("SELECT * FROM notifications ORDER BY id DESC")
-    LiveData<List<NotificationEntity>> getAll();
+    @Query("SELECT MAX(id) FROM notifications")
+    Long getLatestId();
 
-    @Query("SELECT * FROM notifications ORDER BY id DESC")
+    // Lists are in (timestamp, id) order, not id order: imported history gets ids after the
+    // rows already stored. The timestamp index holds the id as well, so it serves both keys.
+
+    // Keyset pages for the main feed, newest first: the rows before (beforeTimestamp, beforeId)
+    @Query("SELECT * FROM notification_details WHERE timestamp <= :beforeTimestamp " +
+            "AND (timestamp < :beforeTimestamp OR id < :beforeId) ORDER BY timestamp DESC, id DESC LIMIT :limit")
+    List<NotificationEntity> getPageBefore(long beforeTimestamp, long beforeId, int limit);
+
+    // Oldest first, callers reverse it
+    @Query("SELECT * FROM notification_details WHERE timestamp >= :afterTimestamp " +
+            "AND (timestamp > :afterTimestamp OR id > :afterId) ORDER BY timestamp ASC, id ASC LIMIT :limit")
+    List<NotificationEntity> getPageAfter(long afterTimestamp, long afterId, int limit);
+
+    // Rows from (fromTimestamp, fromId) to (toTimestamp, toId), both inclusive, newest first
+    @Query("SELECT * FROM notification_details WHERE timestamp BETWEEN :fromTimestamp AND :toTimestamp " +
+            "AND (timestamp > :fromTimestamp OR id >= :fromId) AND (timestamp < :toTimestamp OR id <= :toId) " +
+            "ORDER BY timestamp DESC, id DESC")
+    List<NotificationEntity> getRange(long fromTimestamp, long fromId, long toTimestamp, long toId);
+
+    @Query("SELECT * FROM notification_details ORDER BY timestamp DESC, id DESC")
     List<NotificationEntity> getAllSync();
 
     @Query("DELETE FROM notifications")
     void deleteAll();
 
-    // Dashboard queries
-    @Query("SELECT COUNT(*) FROM notifications")
+    // Retention deletes (see RetentionEnforcer): each call removes at most :limit of the
+    // oldest matching rows, so one chunk holds the write lock only briefly
+    @Query("DELETE FROM notifications WHERE id IN (SELECT id FROM notifications WHERE timestamp < :before ORDER BY timestamp LIMIT :limit)")
+    int deleteOlderThan(long before, int limit);
+
+    @Query("DELETE FROM notifications WHERE id IN (SELECT id FROM notifications WHERE isOngoing = 1 AND timestamp < :before ORDER BY timestamp LIMIT :limit)")
+    int deleteOngoingOlderThan(long before, int limit);
+
+    // A null package resolves to a null id, matched with IS, which the (packageId, timestamp) index still serves
+    @Query("DELETE FROM notifications WHERE id IN (SELECT id FROM notifications WHERE packageId IS (SELECT id FROM packages WHERE name = :packageName) ORDER BY timestamp, id LIMIT :limit)")
+    int deleteOldestOfPackage(String packageName, int limit);
+
+    // Rows (not posts) of one package, for the per-package row limit
+    @Query("SELECT COUNT(*) FROM notifications WHERE packageId IS (SELECT id FROM packages WHERE name = :packageName)")
+    int countRowsOfPackage(String packageName);
+
+    // The oldest rows up to and including (maxTimestamp, maxId)
+    @Query("DELETE FROM notifications WHERE id IN (SELECT id FROM notifications WHERE timestamp <= :maxTimestamp " +
+            "AND (timestamp < :maxTimestamp OR id <= :maxId) ORDER BY timestamp, id LIMIT :limit)")
+    int deleteUpTo(long maxTimestamp, long maxId, int limit);
+
+    // The newest row that is not among the newest :offset rows, or null if there is none.
+    // Walks the timestamp index from the newest end.
+    @Query("SELECT timestamp, id FROM notifications ORDER BY timestamp DESC, id DESC LIMIT 1 OFFSET :offset")
+    RowKey getFirstKeyBeyond(int offset);
+
+    // Packages with more than :limit posts, from the rollups ('' is the null package). The rollups
+    // count occurrences, never fewer than rows, so every package over a row limit is among them.
+    @Query("SELECT bucket as packageName, count FROM rollups WHERE kind = 'package' AND count > :limit")
+    List<PackageCount> getPackagesOver(int limit);
+
+    // Dashboard queries, served from the trigger-maintained rollups (see Rollup).
+    // Their cost depends on the number of buckets, not the number of notifications.
+    @Query("SELECT IFNULL(SUM(count), 0) FROM rollups WHERE kind = 'ongoing'")
     int getTotalCount();
 
-    @Query("SELECT packageName, COUNT(*) as count FROM notifications GROUP BY packageName ORDER BY count DESC LIMIT 10")
+    @Query("SELECT bucket as packageName, count FROM rollups WHERE kind = 'package' AND count > 0 ORDER BY count DESC LIMIT 10")
     List<PackageCount> getTopPackages();
 
-    @Query("SELECT category, COUNT(*) as count FROM notifications GROUP BY category ORDER BY count DESC")
+    // Null and empty categories share the '' bucket
+    @Query("SELECT bucket as category, count FROM rollups WHERE kind = 'category' AND count > 0 ORDER BY count DESC")
     List<CategoryCount> getCategoryBreakdown();
 
-    @Query("SELECT COUNT(*) FROM notifications WHERE isOngoing = 1")
+    @Query("SELECT IFNULL(SUM(count), 0) FROM rollups WHERE kind = 'ongoing' AND bucket = '1'")
     int getOngoingCount();
 
-    @Query("SELECT COUNT(*) FROM notifications WHERE isOngoing = 0")
+    @Query("SELECT IFNULL(SUM(count), 0) FROM rollups WHERE kind = 'ongoing' AND bucket = '0'")
     int getRegularCount();
 
-    @Query("SELECT strftime('%Y-%m-%d', timestamp) as date, COUNT(*) as count FROM notifications GROUP BY date ORDER BY date DESC LIMIT 7")
-    List<DayCount> getLast7Days();
-
-    @Query("SELECT strftime('%H', timestamp) as hour, COUNT(*) as count FROM notifications GROUP BY hour ORDER BY hour")
-    List<HourCount> getHourlyDistribution();
-
-    // Drill-down queries
-    @Query("SELECT strftime('%Y-%m-%d', timestamp) as date, COUNT(*) as count FROM notifications WHERE packageName = :packageName GROUP BY date ORDER BY date DESC LIMIT 30")
+    // Posts per app for the senders list, grouped on the name AppNames.withoutFirstSegment shows
+    // (everything after the first '.', 'unknown' for no package). Keep the two in step.
+    @Query("SELECT CASE WHEN bucket = '' THEN 'unknown' WHEN instr(bucket, '.') BETWEEN 1 AND length(bucket) - 1 THEN substr(bucket, instr(bucket, '.') + 1) ELSE bucket END AS appName, SUM(count) AS count FROM rollups WHERE kind = 'package' AND count > 0 GROUP BY appName ORDER BY count DESC")
+    List<SenderCount> getSenderCounts();
+
+    // Every non-empty bucket in one read, for DashboardSnapshot, which also turns the UTC
+    // quarter hours into local hours and days
+    @Query("SELECT * FROM rollups WHERE count > 0")
+    List<Rollup> getRollups();
+
+    // First-seen times of the oldest and newest rows. Each subquery is a lone MIN or MAX, which
+    // SQLite reads off one end of the timestamp index; MIN and MAX in one SELECT would scan.
+    @Query("SELECT (SELECT MIN(timestamp) FROM notifications) AS oldest, (SELECT MAX(timestamp) FROM notifications) AS newest")
+    TimeRange getTimeRange();
+
+    // Drill-down queries (timestamps are epoch millis; days are computed in local time).
+    // Counts add up occurrences, since a row can stand for several identical posts.
+    // Names are resolved to their id once, so the scan stays on the (packageId, timestamp) index
+    @Query("SELECT strftime('%Y-%m-%d', timestamp / 1000, 'unixepoch', 'localtime') as date, SUM(occurrences) as count FROM notifications WHERE packageId = (SELECT id FROM packages WHERE name = :packageName) GROUP BY date ORDER BY date DESC LIMIT 30")
     List<DayCount> getPackageHistory(String packageName);
 
-    @Query("SELECT * FROM notifications WHERE strftime('%Y-%m-%d', timestamp) = :date ORDER BY id DESC")
-    List<NotificationEntity> getNotificationsByDate(String date);
+    @Query("SELECT * FROM notification_details WHERE timestamp >= :start AND timestamp < :end ORDER BY timestamp DESC, id DESC")
+    List<NotificationEntity> getNotificationsByDate(long start, long end);
 
-    @Query("SELECT * FROM notifications WHERE packageName = :packageName ORDER BY id DESC LIMIT 100")
+    // Ordered by timestamp so the (packageId, timestamp) index can stop after 100 rows
+    @Query("SELECT * FROM notification_details WHERE packageName = :packageName ORDER BY timestamp DESC, id DESC LIMIT 100")
     List<NotificationEntity> getNotificationsByPackage(String packageName);
 
-    @Query("SELECT strftime('%Y-%m-%d', timestamp) as date, COUNT(*) as count FROM notifications WHERE category = :category GROUP BY date ORDER BY date DESC LIMIT 30")
+    @Query("SELECT strftime('%Y-%m-%d', timestamp / 1000, 'unixepoch', 'localtime') as date, SUM(occurrences) as count FROM notifications WHERE categoryId = (SELECT id FROM categories WHERE name = :category) GROUP BY date ORDER BY date DESC LIMIT 30")
     List<DayCount> getCategoryHistory(String category);
 
-    // Advanced search query - flexible filtering
+    // Research filters and text search, built by NotificationQuery (toSelect / toCount)
     @androidx.room.RawQuery
     List<NotificationEntity> searchWithFilters(androidx.sqlite.db.SupportSQLiteQuery query);
 
-    // Get distinct values for filters
-    @Query("SELECT DISTINCT packageName FROM notifications ORDER BY packageName")
+    @androidx.room.RawQuery
+    int countWithFilters(androidx.sqlite.db.SupportSQLiteQuery query);
+
+    // Dictionary names that still have rows, for the filters: one index probe per entry
+    // instead of a DISTINCT over every notification
+    @Query("SELECT p.name FROM packages AS p WHERE EXISTS (SELECT 1 FROM notifications WHERE packageId = p.id) ORDER BY p.name")
     List<String> getAllPackages();
 
-    @Query("SELECT DISTINCT category FROM notifications WHERE category IS NOT NULL AND category != '' ORDER BY category")
+    @Query("SELECT c.name FROM categories AS c WHERE c.name != '' AND EXISTS (SELECT 1 FROM notifications WHERE categoryId = c.id) ORDER BY c.name")
     List<String> getAllCategories();
 
     // Helper classes for query results
@@ -75,6 +174,11 @@ public interface NotificationDao {
         public int count;
     }
 
+    class SenderCount {
+        public String appName;
+        public int count;
+    }
+
     class CategoryCount {
         public String category;
         public int count;
@@ -89,4 +193,15 @@ public interface NotificationDao {
         public String hour;
         public int count;
     }
+
+    class TimeRange {
+        public Long oldest;
+        public Long newest;
+    }
+
+    // Position of a row in (timestamp, id) order
+    class RowKey {
+        public long timestamp;
+        public long id;
+    }
 }
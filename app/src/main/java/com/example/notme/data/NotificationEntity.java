@@ -1,23 +1,56 @@
 package com.example.notme.data;
 
-import androidx.room.Entity;
-import androidx.room.PrimaryKey;
-
-@Entity(tableName = "notifications")
+import androidx.room.DatabaseView;
+
+import java.util.Objects;
+
+/**
+ * A notification with its package and category names, as read from the notification_details
+ * view (the notifications table joined to its dictionaries). Queries that return notifications
+ * select from the view and filter on packageName / category as before; the write-behind queue
+ * turns these into NotificationRow for storage (see Dictionaries).
+ *
+ * For a long body the view returns only its preview as text and sets truncated; the whole
+ * text is decompressed on demand when it is shown (see DataRepository.fullText).
+ *
+ * A row can stand for several identical posts: re-posts of the same content within one local
+ * hour are folded into it (see WriteBehindQueue), counted in occurrences with lastUpdated as
+ * the last one. Counts of notifications add up occurrences rather than rows.
+ */
+@DatabaseView(viewName = "notification_details", value = NotificationEntity.VIEW_QUERY)
 public class NotificationEntity {
 
-    @PrimaryKey(autoGenerate = true)
+    // Plain LEFT JOINs on the dictionary primary keys, so SQLite flattens the view into the
+    // outer query and filters on id, timestamp or packageName still use the table's indexes
+    static final String VIEW_QUERY = "SELECT n.id, p.name AS packageName, n.title, n.text, " +
+            "n.timestamp, n.isOngoing, c.name AS category, n.actionCount, n.lastUpdated, n.updateCount, " +
+            "n.occurrences, n.body IS NOT NULL AS truncated FROM notifications AS n " +
+            "LEFT JOIN packages AS p ON p.id = n.packageId LEFT JOIN categories AS c ON c.id = n.categoryId";
+
     private int id;
 
     private String packageName;
     private String title;
     private String text;
-    private String timestamp;
+    private long timestamp; // epoch millis, first seen
     private boolean isOngoing;
     private String category;
     private int actionCount;
 
-    public NotificationEntity(String packageName, String title, String text, String timestamp,
+    // Last time an ongoing notification with the same key was updated or the same content
+    // was posted again (timestamp is first seen)
+    private long lastUpdated;
+
+    // Number of posts coalesced into this row
+    private int updateCount = 1;
+
+    // Number of identical posts this row stands for
+    private int occurrences = 1;
+
+    // text is the stored preview of a longer, compressed body (only for rows read back)
+    private boolean truncated;
+
+    public NotificationEntity(String packageName, String title, String text, long timestamp,
                              boolean isOngoing, String category, int actionCount) {
         this.packageName = packageName;
         this.title = title;
@@ -26,6 +59,47 @@ public class NotificationEntity {
         this.isOngoing = isOngoing;
         this.category = category;
         this.actionCount = actionCount;
+        this.lastUpdated = timestamp;
+    }
+
+    // Copy of this row (including id) that can be changed without touching the original
+    NotificationEntity copy() {
+        NotificationEntity copy = new NotificationEntity(packageName, title, text, timestamp,
+                isOngoing, category, actionCount);
+        copy.id = id;
+        copy.lastUpdated = lastUpdated;
+        copy.updateCount = updateCount;
+        copy.occurrences = occurrences;
+        copy.truncated = truncated;
+        return copy;
+    }
+
+    // Fold a newer post of the same notification into this row, keeping the first-seen timestamp
+    void mergeUpdate(NotificationEntity newer) {
+        title = newer.title;
+        text = newer.text;
+        truncated = newer.truncated;
+        isOngoing = newer.isOngoing;
+        category = newer.category;
+        actionCount = newer.actionCount;
+        lastUpdated = newer.timestamp;
+        updateCount++;
+    }
+
+    // Same content, category and flags as other, so a post of this can be counted in other's row
+    boolean isRepeatOf(NotificationEntity other) {
+        return isOngoing == other.isOngoing
+                && actionCount == other.actionCount
+                && Objects.equals(packageName, other.packageName)
+                && Objects.equals(title, other.title)
+                && Objects.equals(text, other.text)
+                && Objects.equals(category, other.category);
+    }
+
+    // Count a newer post of the same content (see isRepeatOf) in this row
+    void mergeRepeat(NotificationEntity newer) {
+        occurrences += newer.occurrences;
+        lastUpdated = Math.max(lastUpdated, newer.lastUpdated);
     }
 
     // Getters and Setters (Required by Room)
@@ -61,11 +135,11 @@ public class NotificationEntity {
         this.text = text;
     }
 
-    public String getTimestamp() {
+    public long getTimestamp() {
         return timestamp;
     }
 
-    public void setTimestamp(String timestamp) {
+    public void setTimestamp(long timestamp) {
         this.timestamp = timestamp;
     }
 
@@ -92,4 +166,36 @@ public class NotificationEntity {
     public void setActionCount(int actionCount) {
         this.actionCount = actionCount;
     }
+
+    public long getLastUpdated() {
+        return lastUpdated;
+    }
+
+    public void setLastUpdated(long lastUpdated) {
+        this.lastUpdated = lastUpdated;
+    }
+
+    public int getUpdateCount() {
+        return updateCount;
+    }
+
+    public void setUpdateCount(int updateCount) {
+        this.updateCount = updateCount;
+    }
+
+    public int getOccurrences() {
+        return occurrences;
+    }
+
+    public void setOccurrences(int occurrences) {
+        this.occurrences = occurrences;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
 }
@@ -0,0 +1,273 @@
+package com.example.notme.data;
+
+import android.database.Cursor;
+import android.os.CancellationSignal;
+import android.os.SystemClock;
+
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.example.notme.util.TextCodec;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Streams the notifications matching a NotificationQuery to any ExportFormat in constant memory.
+ * Rows are read in keyset chunks of CHUNK_SIZE straight from a Cursor into one reused Row
+ * (no entities are built) and handed to the format's RowWriter, which buffers its own output.
+ * A text-filtered export first collects the keys of its matches, in export order, into a
+ * staging table and pages over that (see exportMatches).
+ * Used by both the full export and the research export.
+ * A row that identical posts were folded into is exported once, with their number in occurrences.
+ */
+public class NotificationExporter {
+
+    static final int CHUNK_SIZE = 1000;
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    // body is fetched by primary key per row and only decompressed when it is there
+    private static final String COLUMNS =
+            "id, timestamp, packageName, title, text, isOngoing, category, actionCount, occurrences, " +
+            "(SELECT body FROM notifications AS b WHERE b.id = notification_details.id), " +
+            "lastUpdated, updateCount";
+
+    // Keys of the rows a text-filtered export writes, in export order (see exportMatches)
+    private static final String STAGING = "export_matches";
+    private static final String CREATE_STAGING = "CREATE TABLE " + STAGING + " (matchTimestamp INTEGER NOT NULL, " +
+            "matchId INTEGER NOT NULL, PRIMARY KEY (matchTimestamp, matchId)) WITHOUT ROWID";
+    // One text-filtered export at a time, since they share the staging table
+    private static final Object STAGING_LOCK = new Object();
+
+    // Called on the exporting thread after every chunk
+    public interface ProgressListener {
+        void onProgress(long rowsWritten);
+    }
+
+    // One notification as every format sees it; text is always the whole text
+    static final class Row {
+        long timestamp;
+        String packageName;
+        String title;
+        String text;
+        boolean isOngoing;
+        String category;
+        int actionCount;
+        int occurrences;
+        long lastUpdated;
+        int updateCount;
+    }
+
+    // Encoder for one export. write is called once per row in export order, then finish once,
+    // which must flush (but not close) the stream.
+    interface RowWriter {
+        void write(Row row) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    // Rows and bytes written, and how long it took
+    public static final class Result {
+        public final long rows;
+        public final long bytes;
+        public final long elapsedMs;
+        public final boolean cancelled;
+
+        Result(long rows, long bytes, long elapsedMs, boolean cancelled) {
+            this.rows = rows;
+            this.bytes = bytes;
+            this.elapsedMs = elapsedMs;
+            this.cancelled = cancelled;
+        }
+
+        public long rowsPerSecond() {
+            return rows * 1000 / Math.max(1, elapsedMs);
+        }
+
+        public String describeThroughput() {
+            return String.format(Locale.US, "%.1f KB in %d ms (%,d rows/s, %.1f MB/s)",
+                    bytes / 1024.0, elapsedMs, rowsPerSecond(),
+                    bytes / 1048.576 / Math.max(1, elapsedMs));
+        }
+    }
+
+    private final AppDatabase db;
+
+    public NotificationExporter(AppDatabase db) {
+        this.db = db;
+    }
+
+    // Write every row matching the query's filter in post time order, ties by id (oldest first
+    // only for OLDEST_FIRST; limit and cursor are ignored). Stops after the current chunk once
+    // cancel is signalled. The stream is flushed but not closed.
+    public Result export(OutputStream out, NotificationQuery query, ExportFormat format,
+                         ProgressListener listener, CancellationSignal cancel) throws IOException {
+        long start = SystemClock.elapsedRealtime();
+        CountingOutputStream counted = new CountingOutputStream(out);
+        RowWriter writer = format.open(counted);
+        long written;
+        if (query.getTextMatch() == null) {
+            written = exportRows(query, writer, listener, cancel);
+        } else {
+            synchronized (STAGING_LOCK) {
+                written = exportMatches(query, writer, listener, cancel);
+            }
+        }
+        writer.finish();
+        boolean cancelled = cancel != null && cancel.isCanceled();
+        return new Result(written, counted.count, SystemClock.elapsedRealtime() - start, cancelled);
+    }
+
+    // Keyset on (timestamp, id), the order the lists show; ids alone would put imported
+    // history after newer rows. The timestamp index serves both the seek and the order.
+    private long exportRows(NotificationQuery query, RowWriter writer, ProgressListener listener,
+                            CancellationSignal cancel) throws IOException {
+        List<Object> filterArgs = new ArrayList<>();
+        String filter = query.where(filterArgs);
+        boolean newestFirst = query.getSort() != NotificationQuery.Sort.OLDEST_FIRST;
+        String compare = newestFirst ? "<" : ">";
+        String direction = newestFirst ? "DESC" : "ASC";
+        int argCount = filterArgs.size();
+
+        // Bind order: filter args, then the last timestamp twice and the last id
+        String sql = "SELECT " + COLUMNS + " FROM notification_details WHERE (" + filter + ")" +
+                " AND timestamp " + compare + "= ? AND (timestamp " + compare + " ? OR id " + compare + " ?)" +
+                " ORDER BY timestamp " + direction + ", id " + direction + " LIMIT " + CHUNK_SIZE;
+        Object[] chunkArgs = filterArgs.toArray(new Object[argCount + 3]);
+
+        Row row = new Row();
+        long lastTimestamp = newestFirst ? Long.MAX_VALUE : Long.MIN_VALUE;
+        long lastId = newestFirst ? Long.MAX_VALUE : Long.MIN_VALUE;
+        long written = 0;
+        int chunkRows;
+        do {
+            if (cancel != null && cancel.isCanceled()) {
+                break;
+            }
+            chunkArgs[argCount] = lastTimestamp;
+            chunkArgs[argCount + 1] = lastTimestamp;
+            chunkArgs[argCount + 2] = lastId;
+            chunkRows = 0;
+            try (Cursor c = db.query(new SimpleSQLiteQuery(sql, chunkArgs))) {
+                while (c.moveToNext()) {
+                    lastId = c.getLong(0);
+                    lastTimestamp = c.getLong(1);
+                    read(c, row);
+                    writer.write(row);
+                    chunkRows++;
+                }
+            }
+            written += chunkRows;
+            if (listener != null && chunkRows > 0) {
+                listener.onProgress(written);
+            }
+        } while (chunkRows == CHUNK_SIZE);
+        return written;
+    }
+
+    // The full-text index returns matches in docid order only, so paging them in (timestamp, id)
+    // order straight from it would gather and sort every match again for each chunk. Instead the
+    // keys of the matching rows are collected once into a staging table whose primary key is
+    // that order, and each chunk reads only its own CHUNK_SIZE keys from it. A chunk ends at its
+    // last staged key, not at the last row read, so rows deleted since staging are just skipped.
+    private long exportMatches(NotificationQuery query, RowWriter writer, ProgressListener listener,
+                               CancellationSignal cancel) throws IOException {
+        List<Object> filterArgs = new ArrayList<>();
+        String filter = query.where(filterArgs);
+        boolean newestFirst = query.getSort() != NotificationQuery.Sort.OLDEST_FIRST;
+        String compare = newestFirst ? "<" : ">";
+        String reverse = newestFirst ? ">" : "<";
+        String direction = newestFirst ? "DESC" : "ASC";
+        String after = "matchTimestamp " + compare + "= ? AND (matchTimestamp " + compare + " ? OR matchId " + compare + " ?)";
+        String upTo = "matchTimestamp " + reverse + "= ? AND (matchTimestamp " + reverse + " ? OR matchId " + reverse + "= ?)";
+        String order = " ORDER BY matchTimestamp " + direction + ", matchId " + direction;
+
+        // Bind order: the last key of the previous chunk (timestamp twice, id), then for chunks
+        // the last key of this one
+        String chunkEnd = "SELECT matchTimestamp, matchId FROM " + STAGING + " WHERE " + after + order +
+                " LIMIT 1 OFFSET " + (CHUNK_SIZE - 1);
+        String chunk = "SELECT " + COLUMNS + " FROM " + STAGING + " JOIN notification_details ON id = matchId" +
+                " WHERE " + after + " AND " + upTo + order;
+
+        SupportSQLiteDatabase sql = db.getOpenHelper().getWritableDatabase();
+        // Left behind if the process died during an earlier export
+        sql.execSQL("DROP TABLE IF EXISTS " + STAGING);
+        sql.execSQL(CREATE_STAGING);
+        try {
+            sql.execSQL("INSERT INTO " + STAGING + " SELECT timestamp, id FROM notification_details WHERE " + filter,
+                    filterArgs.toArray());
+
+            Row row = new Row();
+            long lastTimestamp = newestFirst ? Long.MAX_VALUE : Long.MIN_VALUE;
+            long lastId = newestFirst ? Long.MAX_VALUE : Long.MIN_VALUE;
+            long written = 0;
+            boolean more = true;
+            while (more && (cancel == null || !cancel.isCanceled())) {
+                long endTimestamp;
+                long endId;
+                try (Cursor c = db.query(chunkEnd, new Object[] {lastTimestamp, lastTimestamp, lastId})) {
+                    more = c.moveToFirst();
+                    // The final chunk runs to the end of the table
+                    endTimestamp = more ? c.getLong(0) : newestFirst ? Long.MIN_VALUE : Long.MAX_VALUE;
+                    endId = more ? c.getLong(1) : endTimestamp;
+                }
+                int chunkRows = 0;
+                try (Cursor c = db.query(chunk, new Object[] {lastTimestamp, lastTimestamp, lastId,
+                        endTimestamp, endTimestamp, endId})) {
+                    while (c.moveToNext()) {
+                        read(c, row);
+                        writer.write(row);
+                        chunkRows++;
+                    }
+                }
+                lastTimestamp = endTimestamp;
+                lastId = endId;
+                written += chunkRows;
+                if (listener != null && chunkRows > 0) {
+                    listener.onProgress(written);
+                }
+            }
+            return written;
+        } finally {
+            sql.execSQL("DROP TABLE IF EXISTS " + STAGING);
+        }
+    }
+
+    private static void read(Cursor c, Row row) {
+        row.timestamp = c.getLong(1);
+        row.packageName = c.getString(2);
+        row.title = c.getString(3);
+        row.text = c.isNull(9) ? c.getString(4) : TextCodec.decompress(c.getBlob(9));
+        row.isOngoing = c.getInt(5) != 0;
+        row.category = c.getString(6);
+        row.actionCount = c.getInt(7);
+        row.occurrences = c.getInt(8);
+        row.lastUpdated = c.getLong(10);
+        row.updateCount = c.getInt(11);
+    }
+
+    // Counts what the format writes, for the throughput report
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.notme.data;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keyset-paged window over the notifications table, newest first by (timestamp, id).
+ * At most MAX_LOADED rows are held at once: loading older pages drops rows from
+ * the top of the window and loading newer pages drops rows from the bottom, so
+ * memory stays bounded however far the user scrolls.
+ *
+ * Loads are not thread-safe; run them all on the same background thread.
+ * isAtHead/isAtTail may be read from the UI thread.
+ */
+public class NotificationFeed {
+
+    public static final int PAGE_SIZE = 50;
+    public static final int MAX_LOADED = PAGE_SIZE * 4;
+
+    private final NotificationDao dao;
+    private List<NotificationEntity> rows = new ArrayList<>();
+
+    // True when the window starts at the newest row in the table
+    private volatile boolean atHead = true;
+    // True when the last load of older rows came back short
+    private volatile boolean atTail;
+
+    public NotificationFeed(Context context) {
+        this.dao = AppDatabase.getInstance(context).dao();
+    }
+
+    public boolean isAtHead() {
+        return atHead;
+    }
+
+    public boolean isAtTail() {
+        return atTail;
+    }
+
+    // Re-read the current window after the table changed.
+    // At the head this picks up new rows; further down it keeps the same key range
+    // so the list does not jump while the user is reading older notifications.
+    public List<NotificationEntity> refresh() {
+        if (!atHead && !rows.isEmpty()) {
+            NotificationEntity newest = rows.get(0);
+            NotificationEntity oldest = rows.get(rows.size() - 1);
+            List<NotificationEntity> range = dao.getRange(oldest.getTimestamp(), oldest.getId(),
+                    newest.getTimestamp(), newest.getId());
+            if (!range.isEmpty()) {
+                rows = range;
+                return snapshot();
+            }
+            // Window was deleted (e.g. Clear All): start over from the top
+            atHead = true;
+        }
+
+        int limit = Math.min(Math.max(rows.size(), PAGE_SIZE), MAX_LOADED);
+        rows = dao.getPageBefore(Long.MAX_VALUE, Long.MAX_VALUE, limit);
+        atTail = rows.size() < limit;
+        return snapshot();
+    }
+
+    // Append the next page of older rows
+    public List<NotificationEntity> loadOlder() {
+        if (atTail || rows.isEmpty()) {
+            return snapshot();
+        }
+        NotificationEntity oldest = rows.get(rows.size() - 1);
+        List<NotificationEntity> page = dao.getPageBefore(oldest.getTimestamp(), oldest.getId(), PAGE_SIZE);
+        atTail = page.size() < PAGE_SIZE;
+        rows.addAll(page);
+
+        int overflow = rows.size() - MAX_LOADED;
+        if (overflow > 0) {
+            rows.subList(0, overflow).clear();
+            atHead = false;
+        }
+        return snapshot();
+    }
+
+    // Prepend the next page of newer rows (only needed after older pages pushed them out)
+    public List<NotificationEntity> loadNewer() {
+        if (atHead || rows.isEmpty()) {
+            return snapshot();
+        }
+        NotificationEntity newest = rows.get(0);
+        List<NotificationEntity> page = dao.getPageAfter(newest.getTimestamp(), newest.getId(), PAGE_SIZE);
+        atHead = page.size() < PAGE_SIZE;
+        Collections.reverse(page);
+        rows.addAll(0, page);
+
+        int overflow = rows.size() - MAX_LOADED;
+        if (overflow > 0) {
+            rows.subList(rows.size() - overflow, rows.size()).clear();
+            atTail = false;
+        }
+        return snapshot();
+    }
+
+    // Each result is a new list so it can be handed to the UI thread as-is
+    private List<NotificationEntity> snapshot() {
+        return new ArrayList<>(rows);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.notme.data;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+import androidx.room.PrimaryKey;
+
+/**
+ * External-content FTS4 index over title, text and terms of notifications; terms holds the
+ * words of a compressed body beyond its preview, so together they cover the whole text.
+ * Room keeps it in sync with triggers on the notifications table; rowid equals notifications.id.
+ * Package names live in the packages dictionary since v8 and are filtered on there instead.
+ */
+@Fts4(contentEntity = NotificationRow.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "notifications_fts")
+public class NotificationFts {
+
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    private int rowid;
+
+    private String title;
+    private String text;
+    private String terms;
+
+    public int getRowid() {
+        return rowid;
+    }
+
+    public void setRowid(int rowid) {
+        this.rowid = rowid;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public String getTerms() {
+        return terms;
+    }
+
+    public void setTerms(String terms) {
+        this.terms = terms;
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.notme.data;
+
+import android.os.CancellationSignal;
+import android.os.SystemClock;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.example.notme.util.CsvFields;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Loads a CSV or columnar export (see ExportFormat) back into the database, in two phases:
+ *   1. The file is parsed as a stream in batches of BATCH_ROWS. Each batch drops rows that are
+ *      already stored, resolves its names and compresses long texts like any other write, and
+ *      goes into a staging table in one transaction. Nothing is visible yet, so cancelling or a
+ *      bad line discards the staging table and imports nothing.
+ *   2. The staging table is moved into notifications one batch per transaction with a single
+ *      INSERT ... SELECT. The per-row full-text and rollups insert triggers are dropped for
+ *      that transaction and re-created before it commits: the new rows are indexed with one
+ *      INSERT ... SELECT into notifications_fts, and their rollups added from counts summed
+ *      while staging (Rollup.Counts). The indexes on notifications stay in place; the rows
+ *      arrive close to time order, so updating them as they go is cheaper than a rebuild.
+ * A row counts as already stored when one with the same package, title and text was posted in
+ * the same second (CSV keeps whole seconds and flattens line breaks, so both are compared that
+ * way), so importing a file twice, or a file that overlaps what is stored, adds each
+ * notification once. Repeats within the file itself are kept.
+ * Imported rows get new ids after the existing ones, in the file's time order. Lists, exports
+ * and retention order by post time (ties by id), so imported history sorts among the rows
+ * already stored; ids only tell the research screen which rows were added since it last ran.
+ */
+public class NotificationImporter {
+
+    static final int BATCH_ROWS = 10_000;
+
+    private static final String STAGING = "import_staging";
+    private static final String COLUMNS = "packageId, title, text, timestamp, isOngoing, categoryId, " +
+            "actionCount, lastUpdated, updateCount, occurrences, body, terms";
+    private static final String CREATE_STAGING = "CREATE TABLE " + STAGING + " (packageId INTEGER, " +
+            "title TEXT, text TEXT, timestamp INTEGER NOT NULL, isOngoing INTEGER NOT NULL, " +
+            "categoryId INTEGER, actionCount INTEGER NOT NULL, lastUpdated INTEGER NOT NULL, " +
+            "updateCount INTEGER NOT NULL, occurrences INTEGER NOT NULL, body BLOB, terms TEXT)";
+    private static final String INSERT_STAGED = "INSERT INTO " + STAGING + " (" + COLUMNS + ") " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String MERGE = "INSERT INTO notifications (" + COLUMNS + ") SELECT " + COLUMNS +
+            " FROM " + STAGING + " WHERE rowid BETWEEN ? AND ? ORDER BY rowid ";
+    // Titles and texts are compared with line breaks flattened as CsvFields writes them. A compressed
+    // row stores only its preview as text, which flattened is a prefix of the flattened whole text.
+    // Bind order: package id, first and last millisecond, title, then the text twice.
+    private static final String FLAT_TITLE = "REPLACE(REPLACE(IFNULL(title, ''), char(13), ''), char(10), ' ')";
+    private static final String FLAT_TEXT = "REPLACE(REPLACE(IFNULL(text, ''), char(13), ''), char(10), ' ')";
+    private static final String IS_STORED = "SELECT EXISTS (SELECT 1 FROM notifications " +
+            "WHERE packageId IS ? AND timestamp BETWEEN ? AND ? AND " + FLAT_TITLE + " = ? AND CASE WHEN body IS NULL " +
+            "THEN " + FLAT_TEXT + " = ? ELSE substr(?, 1, length(" + FLAT_TEXT + ")) = " + FLAT_TEXT + " END)";
+    private static final String INDEX_TEXT = "INSERT INTO notifications_fts (docid, title, text, terms) " +
+            "SELECT id, title, text, terms FROM notifications WHERE id > ?";
+
+    // The insert trigger Room creates for NotificationFts, verbatim, so the next open finds it as is
+    private static final String FTS_INSERT_TRIGGER = "room_fts_content_sync_notifications_fts_AFTER_INSERT";
+    private static final String CREATE_FTS_INSERT_TRIGGER = "CREATE TRIGGER IF NOT EXISTS " + FTS_INSERT_TRIGGER +
+            " AFTER INSERT ON `notifications` BEGIN INSERT INTO `notifications_fts`(`docid`, `title`, `text`, `terms`) " +
+            "VALUES (NEW.`rowid`, NEW.`title`, NEW.`text`, NEW.`terms`); END";
+
+    // Called on the importing thread after every batch read and every batch merged
+    public interface ProgressListener {
+        void onProgress(long rowsRead, long rowsImported);
+    }
+
+    // Decoder for one import; fills row with the next notification, false at the end of the file
+    interface RowReader {
+        boolean read(NotificationExporter.Row row) throws IOException;
+    }
+
+    // Rows read, added and skipped as already stored, and how long it took
+    public static final class Result {
+        public final long rowsRead;
+        public final long imported;
+        public final long duplicates;
+        public final long elapsedMs;
+        public final boolean cancelled;
+
+        Result(long rowsRead, long imported, long duplicates, long elapsedMs, boolean cancelled) {
+            this.rowsRead = rowsRead;
+            this.imported = imported;
+            this.duplicates = duplicates;
+            this.elapsedMs = elapsedMs;
+            this.cancelled = cancelled;
+        }
+
+        public long rowsPerSecond() {
+            return rowsRead * 1000 / Math.max(1, elapsedMs);
+        }
+
+        public String describeThroughput() {
+            return String.format(Locale.US, "%,d rows in %d ms (%,d rows/s)",
+                    rowsRead, elapsedMs, rowsPerSecond());
+        }
+    }
+
+    // Staged rows of one batch: their staging rowids and what they add to the rollups
+    private static final class Chunk {
+        final long firstRowid;
+        final long lastRowid;
+        final Rollup.Counts counts;
+
+        Chunk(long firstRowid, long lastRowid, Rollup.Counts counts) {
+            this.firstRowid = firstRowid;
+            this.lastRowid = lastRowid;
+            this.counts = counts;
+        }
+
+        long rows() {
+            return lastRowid - firstRowid + 1;
+        }
+    }
+
+    private final AppDatabase db;
+
+    public NotificationImporter(AppDatabase db) {
+        this.db = db;
+    }
+
+    // Import a whole export, detecting its format from the first bytes. cancel is honoured
+    // while the file is read; once merging starts it runs to the end. The stream is not closed.
+    public Result importFrom(InputStream in, ProgressListener listener, CancellationSignal cancel)
+            throws IOException {
+        long start = SystemClock.elapsedRealtime();
+        BufferedInputStream buffered = new BufferedInputStream(in, NotificationExporter.BUFFER_SIZE);
+        RowReader reader = detect(buffered).openReader(buffered);
+
+        SupportSQLiteDatabase sql = db.getOpenHelper().getWritableDatabase();
+        NotificationDao dao = db.dao();
+        Dictionaries dictionaries = db.dictionaries();
+        // Left behind if the process died during an earlier import
+        sql.execSQL("DROP TABLE IF EXISTS " + STAGING);
+        sql.execSQL(CREATE_STAGING);
+        try (SupportSQLiteStatement insert = sql.compileStatement(INSERT_STAGED);
+             SupportSQLiteStatement isStored = sql.compileStatement(IS_STORED)) {
+            NotificationDao.TimeRange stored = dao.getTimeRange();
+            List<NotificationEntity> batch = new ArrayList<>(BATCH_ROWS);
+            List<Chunk> chunks = new ArrayList<>();
+            long[] duplicates = new long[1];
+            long rowsRead = 0;
+            long firstTimestamp = 0;
+            long lastTimestamp = 0;
+            NotificationExporter.Row row = new NotificationExporter.Row();
+            boolean more = true;
+            while (more) {
+                if (cancel != null && cancel.isCanceled()) {
+                    return new Result(rowsRead, 0, duplicates[0], SystemClock.elapsedRealtime() - start, true);
+                }
+                batch.clear();
+                while (batch.size() < BATCH_ROWS && (more = reader.read(row))) {
+                    batch.add(toEntity(row));
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                if (rowsRead == 0) {
+                    firstTimestamp = batch.get(0).getTimestamp();
+                }
+                lastTimestamp = batch.get(batch.size() - 1).getTimestamp();
+                rowsRead += batch.size();
+                Chunk chunk = db.runInTransaction(() -> {
+                    List<NotificationEntity> fresh = new ArrayList<>(batch.size());
+                    for (NotificationEntity entity : batch) {
+                        if (isStored(isStored, stored, dao, dictionaries, entity)) {
+                            duplicates[0]++;
+                        } else {
+                            fresh.add(entity);
+                        }
+                    }
+                    return stage(insert, dictionaries.toRows(dao, fresh), fresh);
+                });
+                if (chunk != null) {
+                    chunks.add(chunk);
+                }
+                if (listener != null) {
+                    listener.onProgress(rowsRead, 0);
+                }
+            }
+
+            // Merge oldest first so ids follow time order whichever way the file was sorted
+            boolean newestFirst = firstTimestamp > lastTimestamp;
+            if (newestFirst) {
+                Collections.reverse(chunks);
+            }
+            long imported = 0;
+            for (Chunk chunk : chunks) {
+                db.runInTransaction(() -> merge(sql, dao, chunk, newestFirst));
+                imported += chunk.rows();
+                if (listener != null) {
+                    listener.onProgress(rowsRead, imported);
+                }
+            }
+            return new Result(rowsRead, imported, duplicates[0], SystemClock.elapsedRealtime() - start, false);
+        } catch (IOException | RuntimeException e) {
+            // Dictionary ids added by a rolled-back transaction no longer exist
+            dictionaries.clear();
+            throw e;
+        } finally {
+            sql.execSQL("DROP TABLE IF EXISTS " + STAGING);
+        }
+    }
+
+    // Columnar exports start with their magic; anything else is read as CSV, which reports a
+    // file that isn't one when it finds no Timestamp column
+    private static ExportFormat detect(BufferedInputStream in) throws IOException {
+        byte[] head = new byte[ColumnarRowWriter.MAGIC.length];
+        in.mark(head.length);
+        int n = in.readNBytes(head, 0, head.length);
+        in.reset();
+        if (n == head.length && Arrays.equals(head, ColumnarRowWriter.MAGIC)) {
+            return ExportFormat.COLUMNAR;
+        }
+        if (n > 0 && head[0] == '{') {
+            return ExportFormat.JSON_LINES;
+        }
+        return ExportFormat.CSV;
+    }
+
+    private static NotificationEntity toEntity(NotificationExporter.Row row) {
+        NotificationEntity entity = new NotificationEntity(row.packageName, row.title, row.text,
+                row.timestamp, row.isOngoing, row.category, row.actionCount);
+        entity.setLastUpdated(row.lastUpdated);
+        entity.setUpdateCount(row.updateCount);
+        entity.setOccurrences(row.occurrences);
+        return entity;
+    }
+
+    // Probes the (packageId, timestamp) index, and only for rows inside the stored time range,
+    // so importing onto an empty database or a later stretch of history does no lookups
+    private static boolean isStored(SupportSQLiteStatement query, NotificationDao.TimeRange stored,
+                                    NotificationDao dao, Dictionaries dictionaries, NotificationEntity entity) {
+        long second = Math.floorDiv(entity.getTimestamp(), 1000) * 1000;
+        if (stored.oldest == null || second > stored.newest || second + 999 < stored.oldest) {
+            return false;
+        }
+        Long packageId = dictionaries.packageId(dao, entity.getPackageName());
+        if (packageId == null) {
+            query.bindNull(1);
+        } else {
+            query.bindLong(1, packageId);
+        }
+        query.bindLong(2, second);
+        query.bindLong(3, second + 999);
+        query.bindString(4, entity.getTitle() == null ? "" : CsvFields.flattenLineBreaks(entity.getTitle()));
+        String text = entity.getText() == null ? "" : CsvFields.flattenLineBreaks(entity.getText());
+        query.bindString(5, text);
+        query.bindString(6, text);
+        return query.simpleQueryForLong() != 0;
+    }
+
+    // Writes one batch to the staging table; null when every row was already stored
+    private static Chunk stage(SupportSQLiteStatement insert, List<NotificationRow> rows,
+                               List<NotificationEntity> entities) {
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Rollup.Counts counts = new Rollup.Counts();
+        long first = 0;
+        long last = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            NotificationRow row = rows.get(i);
+            insert.clearBindings();
+            bindNullable(insert, 1, row.getPackageId());
+            bindNullable(insert, 2, row.getTitle());
+            bindNullable(insert, 3, row.getText());
+            insert.bindLong(4, row.getTimestamp());
+            insert.bindLong(5, row.isOngoing() ? 1 : 0);
+            bindNullable(insert, 6, row.getCategoryId());
+            insert.bindLong(7, row.getActionCount());
+            insert.bindLong(8, row.getLastUpdated());
+            insert.bindLong(9, row.getUpdateCount());
+            insert.bindLong(10, row.getOccurrences());
+            if (row.getBody() != null) {
+                insert.bindBlob(11, row.getBody());
+            }
+            bindNullable(insert, 12, row.getTerms());
+            last = insert.executeInsert();
+            if (i == 0) {
+                first = last;
+            }
+            counts.add(entities.get(i));
+        }
+        return new Chunk(first, last, counts);
+    }
+
+    // Moves one staged batch into notifications with the per-row insert triggers suspended
+    private static void merge(SupportSQLiteDatabase sql, NotificationDao dao, Chunk chunk, boolean reversed) {
+        sql.execSQL("DROP TRIGGER IF EXISTS " + FTS_INSERT_TRIGGER);
+        Rollup.dropInsertTrigger(sql);
+        Long latestId = dao.getLatestId();
+        sql.execSQL(MERGE + (reversed ? "DESC" : "ASC"), new Object[] {chunk.firstRowid, chunk.lastRowid});
+        sql.execSQL(INDEX_TEXT, new Object[] {latestId == null ? 0 : latestId});
+        chunk.counts.writeTo(sql);
+        sql.execSQL(CREATE_FTS_INSERT_TRIGGER);
+        Rollup.createTriggers(sql);
+    }
+
+    private static void bindNullable(SupportSQLiteStatement statement, int index, Long value) {
+        if (value != null) {
+            statement.bindLong(index, value);
+        }
+    }
+
+    private static void bindNullable(SupportSQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        }
+    }
+}
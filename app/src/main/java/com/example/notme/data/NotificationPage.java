@@ -0,0 +1,28 @@
+package com.example.notme.data;
+
+import java.util.List;
+
+/**
+ * Rows a NotificationQuery returned, and the newest id in the table when they were read.
+ * Rows with a larger id were added later and may be missing (see NotificationQuery.Builder.addedBetween).
+ * Shared through the query cache, so the list must not be modified.
+ */
+public final class NotificationPage {
+
+    private final List<NotificationEntity> rows;
+    private final long latestId;
+
+    NotificationPage(List<NotificationEntity> rows, long latestId) {
+        this.rows = rows;
+        this.latestId = latestId;
+    }
+
+    public List<NotificationEntity> getRows() {
+        return rows;
+    }
+
+    // 0 when the table was empty
+    public long getLatestId() {
+        return latestId;
+    }
+}
@@ -0,0 +1,489 @@
+package com.example.notme.data;
+
+import androidx.annotation.Nullable;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Filter over notification_details, as used by the research screen and its dashboard
+ * drill-downs: date range, packages, categories, text, ongoing, sort order, page size and
+ * a keyset cursor, plus an id range for fetching only the rows added since it last ran.
+ * Immutable, with value equality, so it can be kept and compared.
+ *
+ * Rows sort by post time, ties broken by id. Ids give insertion order only: imported
+ * history gets ids after the rows already stored, so they are used for the added-since
+ * range and never as the time order.
+ *
+ * Every value is a bind argument and the SQL depends only on which filters are set (and
+ * on the package and category list sizes, rounded up to a power of two by repeating the
+ * last name, and the number of words in the text), so there are few distinct SQL texts and
+ * each is built once. Android keeps
+ * prepared statements per connection keyed by SQL text, so re-running a query shape,
+ * with any values, reuses the compiled statement instead of preparing it again.
+ */
+public final class NotificationQuery {
+
+    public enum Sort {
+        NEWEST_FIRST, OLDEST_FIRST, PACKAGE_ASC, PACKAGE_DESC
+    }
+
+    // Every notification, newest first
+    public static final NotificationQuery ALL = new Builder().build();
+
+    // SQL text per shape (see shape()); a few dozen at most in practice
+    private static final Map<Long, String> SELECT_SQL = new ConcurrentHashMap<>();
+    private static final Map<Long, String> COUNT_SQL = new ConcurrentHashMap<>();
+
+    // Null packages sort first ascending and last descending, as in plain ORDER BY packageName
+    private static final String PACKAGE_KEY = "IFNULL(packageName, '')";
+
+    // Before the cursor row in newest-first order, within its package
+    private static final String OLDER = "(timestamp < ? OR (timestamp = ? AND id < ?))";
+
+    private final Long from;
+    private final Long to;
+    private final List<String> packages;
+    private final List<String> categories;
+    private final String textMatch;
+    // The words of textMatch, matched one by one; none without a text filter
+    private final String[] textWords;
+    private final Boolean ongoing;
+    private final Sort sort;
+    private final int limit;
+    private final Long afterId;
+    private final Long afterTimestamp;
+    private final String afterPackage;
+    private final Long addedAfterId;
+    private final Long addedUpToId;
+
+    private NotificationQuery(Builder builder) {
+        this.from = builder.from;
+        this.to = builder.to;
+        this.packages = Collections.unmodifiableList(new ArrayList<>(builder.packages));
+        this.categories = Collections.unmodifiableList(new ArrayList<>(builder.categories));
+        this.textMatch = builder.textMatch;
+        this.textWords = textMatch != null ? FtsQuery.words(textMatch) : new String[0];
+        this.ongoing = builder.ongoing;
+        this.sort = builder.sort;
+        this.limit = builder.limit;
+        this.afterId = builder.afterId;
+        this.afterTimestamp = builder.afterTimestamp;
+        this.afterPackage = builder.afterPackage;
+        this.addedAfterId = builder.addedAfterId;
+        this.addedUpToId = builder.addedUpToId;
+    }
+
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    // Same filter, next page: the rows that come after last in this query's sort order
+    public NotificationQuery after(NotificationEntity last) {
+        return toBuilder().after(last).build();
+    }
+
+    // Epoch millis, inclusive; null when open
+    @Nullable
+    public Long getFrom() {
+        return from;
+    }
+
+    // Epoch millis, exclusive; null when open
+    @Nullable
+    public Long getTo() {
+        return to;
+    }
+
+    // Sorted and without duplicates; empty matches every package
+    public List<String> getPackages() {
+        return packages;
+    }
+
+    public List<String> getCategories() {
+        return categories;
+    }
+
+    // FtsQuery expression, or null for no text filter
+    @Nullable
+    public String getTextMatch() {
+        return textMatch;
+    }
+
+    // true = ongoing only, false = regular only, null = both
+    @Nullable
+    public Boolean getOngoing() {
+        return ongoing;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    // 0 for no limit
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean hasCursor() {
+        return afterId != null;
+    }
+
+    // The order of toSelect(), for placing rows fetched later among those already loaded
+    public Comparator<NotificationEntity> comparator() {
+        Comparator<NotificationEntity> newestFirst = (a, b) -> {
+            int byTime = Long.compare(b.getTimestamp(), a.getTimestamp());
+            return byTime != 0 ? byTime : Integer.compare(b.getId(), a.getId());
+        };
+        Comparator<NotificationEntity> byPackage =
+                Comparator.comparing(row -> row.getPackageName() != null ? row.getPackageName() : "");
+        switch (sort) {
+            case OLDEST_FIRST: return newestFirst.reversed();
+            case PACKAGE_ASC: return byPackage.thenComparing(newestFirst);
+            case PACKAGE_DESC: return byPackage.reversed().thenComparing(newestFirst);
+            default: return newestFirst;
+        }
+    }
+
+    // Rows matching the query, in its sort order, for NotificationDao.searchWithFilters
+    SupportSQLiteQuery toSelect() {
+        long shape = shape(true);
+        String sql = SELECT_SQL.computeIfAbsent(shape, key -> {
+            StringBuilder select = new StringBuilder("SELECT * FROM notification_details WHERE ");
+            appendFilter(select, true);
+            appendCursor(select);
+            if (addedAfterId != null) {
+                select.append(" AND id > ? AND id <= ?");
+            }
+            select.append(" ORDER BY ").append(orderBy());
+            if (limit > 0) {
+                select.append(" LIMIT ?");
+            }
+            return select.toString();
+        });
+        List<Object> args = new ArrayList<>();
+        addFilterArgs(args, true);
+        addCursorArgs(args);
+        if (addedAfterId != null) {
+            args.add(addedAfterId);
+            args.add(addedUpToId);
+        }
+        if (limit > 0) {
+            args.add(limit);
+        }
+        return new SimpleSQLiteQuery(sql, args.toArray());
+    }
+
+    // Number of rows matching the filter, ignoring cursor and limit, for NotificationDao.countWithFilters
+    SupportSQLiteQuery toCount() {
+        long shape = shape(false);
+        String sql = COUNT_SQL.computeIfAbsent(shape, key -> {
+            StringBuilder count = new StringBuilder("SELECT COUNT(*) FROM notification_details WHERE ");
+            appendFilter(count, true);
+            return count.toString();
+        });
+        List<Object> args = new ArrayList<>();
+        addFilterArgs(args, true);
+        return new SimpleSQLiteQuery(sql, args.toArray());
+    }
+
+    // WHERE clause of the filter, ignoring cursor and limit, with its bind values added to args,
+    // for NotificationExporter, which pages with its own keyset
+    String where(List<Object> args) {
+        StringBuilder where = new StringBuilder();
+        appendFilter(where, true);
+        addFilterArgs(args, true);
+        return where.toString();
+    }
+
+    // Which clauses are present, how many IN slots each list takes and how many words the text
+    // has. Two queries with the same shape have the same SQL text.
+    private long shape(boolean withPaging) {
+        long shape = sort.ordinal();
+        shape |= (from != null ? 1 : 0) << 2;
+        shape |= (to != null ? 1 : 0) << 3;
+        shape |= (ongoing != null ? 1 : 0) << 5;
+        if (withPaging) {
+            shape |= (afterId != null ? 1 : 0) << 6;
+            shape |= (limit > 0 ? 1 : 0) << 7;
+            shape |= (addedAfterId != null ? 1 : 0) << 24;
+        }
+        shape |= slotBits(packages.size()) << 8;
+        shape |= slotBits(categories.size()) << 16;
+        shape |= (long) textWords.length << 25;
+        return shape;
+    }
+
+    // 0 for an empty list, else 1 + log2 of the slot count
+    private static int slotBits(int size) {
+        return size == 0 ? 0 : 1 + Integer.numberOfTrailingZeros(slots(size));
+    }
+
+    // Smallest power of two that holds size names
+    private static int slots(int size) {
+        return size <= 1 ? size : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private void appendFilter(StringBuilder sql, boolean withText) {
+        sql.append("1=1");
+        if (from != null) {
+            sql.append(" AND timestamp >= ?");
+        }
+        if (to != null) {
+            sql.append(" AND timestamp < ?");
+        }
+        appendIn(sql, "packageName", packages.size());
+        appendIn(sql, "category", categories.size());
+        if (withText) {
+            // Each word in the index or the package name, so "whatsapp lunch" finds WhatsApp's "Lunch?"
+            for (int i = 0; i < textWords.length; i++) {
+                sql.append(" AND id IN (SELECT rowid FROM notifications_fts WHERE notifications_fts MATCH ?" +
+                        " UNION SELECT id FROM notifications WHERE packageId IN" +
+                        " (SELECT id FROM packages WHERE " + FtsQuery.PACKAGE_WORDS + " LIKE ?))");
+            }
+        }
+        if (ongoing != null) {
+            sql.append(" AND isOngoing = ?");
+        }
+    }
+
+    private static void appendIn(StringBuilder sql, String column, int size) {
+        int slots = slots(size);
+        if (slots == 0) {
+            return;
+        }
+        sql.append(" AND ").append(column).append(" IN (?");
+        for (int i = 1; i < slots; i++) {
+            sql.append(", ?");
+        }
+        sql.append(')');
+    }
+
+    private void addFilterArgs(List<Object> args, boolean withText) {
+        if (from != null) {
+            args.add(from);
+        }
+        if (to != null) {
+            args.add(to);
+        }
+        addInArgs(args, packages);
+        addInArgs(args, categories);
+        if (withText) {
+            for (String word : textWords) {
+                args.add(word);
+                args.add(FtsQuery.packagePattern(word));
+            }
+        }
+        if (ongoing != null) {
+            args.add(ongoing ? 1 : 0);
+        }
+    }
+
+    // The padding slots repeat the last name, which leaves the IN list's meaning unchanged
+    private static void addInArgs(List<Object> args, List<String> names) {
+        int slots = slots(names.size());
+        for (int i = 0; i < slots; i++) {
+            args.add(names.get(Math.min(i, names.size() - 1)));
+        }
+    }
+
+    private void appendCursor(StringBuilder sql) {
+        if (afterId == null) {
+            return;
+        }
+        // The leading timestamp bound on the time sorts lets the index seek to the cursor
+        switch (sort) {
+            case OLDEST_FIRST:
+                sql.append(" AND timestamp >= ? AND (timestamp > ? OR id > ?)");
+                break;
+            case PACKAGE_ASC:
+                sql.append(" AND (" + PACKAGE_KEY + " > ? OR (" + PACKAGE_KEY + " = ? AND " + OLDER + "))");
+                break;
+            case PACKAGE_DESC:
+                sql.append(" AND (" + PACKAGE_KEY + " < ? OR (" + PACKAGE_KEY + " = ? AND " + OLDER + "))");
+                break;
+            default:
+                sql.append(" AND timestamp <= ? AND (timestamp < ? OR id < ?)");
+                break;
+        }
+    }
+
+    private void addCursorArgs(List<Object> args) {
+        if (afterId == null) {
+            return;
+        }
+        if (sort == Sort.PACKAGE_ASC || sort == Sort.PACKAGE_DESC) {
+            String key = afterPackage != null ? afterPackage : "";
+            args.add(key);
+            args.add(key);
+        }
+        args.add(afterTimestamp);
+        args.add(afterTimestamp);
+        args.add(afterId);
+    }
+
+    private String orderBy() {
+        switch (sort) {
+            case OLDEST_FIRST: return "timestamp ASC, id ASC";
+            case PACKAGE_ASC: return PACKAGE_KEY + " ASC, timestamp DESC, id DESC";
+            case PACKAGE_DESC: return PACKAGE_KEY + " DESC, timestamp DESC, id DESC";
+            default: return "timestamp DESC, id DESC";
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof NotificationQuery)) {
+            return false;
+        }
+        NotificationQuery other = (NotificationQuery) o;
+        return limit == other.limit
+                && Objects.equals(from, other.from)
+                && Objects.equals(to, other.to)
+                && packages.equals(other.packages)
+                && categories.equals(other.categories)
+                && Objects.equals(textMatch, other.textMatch)
+                && Objects.equals(ongoing, other.ongoing)
+                && sort == other.sort
+                && Objects.equals(afterId, other.afterId)
+                && Objects.equals(afterTimestamp, other.afterTimestamp)
+                && Objects.equals(afterPackage, other.afterPackage)
+                && Objects.equals(addedAfterId, other.addedAfterId)
+                && Objects.equals(addedUpToId, other.addedUpToId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(from, to, packages, categories, textMatch, ongoing, sort, limit,
+                afterId, afterTimestamp, afterPackage, addedAfterId, addedUpToId);
+    }
+
+    public static final class Builder {
+
+        private Long from;
+        private Long to;
+        private final TreeSet<String> packages = new TreeSet<>();
+        private final TreeSet<String> categories = new TreeSet<>();
+        private String textMatch;
+        private Boolean ongoing;
+        private Sort sort = Sort.NEWEST_FIRST;
+        private int limit;
+        private Long afterId;
+        private Long afterTimestamp;
+        private String afterPackage;
+        private Long addedAfterId;
+        private Long addedUpToId;
+
+        public Builder() {
+        }
+
+        private Builder(NotificationQuery query) {
+            from = query.from;
+            to = query.to;
+            packages.addAll(query.packages);
+            categories.addAll(query.categories);
+            textMatch = query.textMatch;
+            ongoing = query.ongoing;
+            sort = query.sort;
+            limit = query.limit;
+            afterId = query.afterId;
+            afterTimestamp = query.afterTimestamp;
+            afterPackage = query.afterPackage;
+            addedAfterId = query.addedAfterId;
+            addedUpToId = query.addedUpToId;
+        }
+
+        // Epoch millis from (inclusive) to (exclusive); null leaves that end open
+        public Builder between(@Nullable Long from, @Nullable Long to) {
+            this.from = from;
+            this.to = to;
+            return this;
+        }
+
+        // Local "yyyy-MM-dd" days, both inclusive; null or empty leaves that end open
+        public Builder days(@Nullable String firstDay, @Nullable String lastDay) {
+            this.from = isEmpty(firstDay) ? null : Timestamps.startOfDay(firstDay.trim());
+            this.to = isEmpty(lastDay) ? null : Timestamps.startOfNextDay(lastDay.trim());
+            return this;
+        }
+
+        // Rows of any of these packages (in addition to those already added)
+        public Builder packages(Collection<String> packageNames) {
+            packages.addAll(packageNames);
+            return this;
+        }
+
+        public Builder packageName(String packageName) {
+            packages.add(packageName);
+            return this;
+        }
+
+        public Builder categories(Collection<String> names) {
+            categories.addAll(names);
+            return this;
+        }
+
+        public Builder category(String category) {
+            categories.add(category);
+            return this;
+        }
+
+        // Free text as typed by the user (see FtsQuery); blank input clears the text filter
+        public Builder text(@Nullable String input) {
+            this.textMatch = FtsQuery.from(input);
+            return this;
+        }
+
+        public Builder ongoing(@Nullable Boolean ongoing) {
+            this.ongoing = ongoing;
+            return this;
+        }
+
+        public Builder sort(Sort sort) {
+            this.sort = sort;
+            return this;
+        }
+
+        // Page size; 0 returns every matching row
+        public Builder limit(int limit) {
+            this.limit = Math.max(0, limit);
+            return this;
+        }
+
+        // Start after this row of a previous page; null starts from the top
+        public Builder after(@Nullable NotificationEntity last) {
+            this.afterId = last != null ? (long) last.getId() : null;
+            this.afterTimestamp = last != null ? last.getTimestamp() : null;
+            this.afterPackage = last != null ? last.getPackageName() : null;
+            return this;
+        }
+
+        // Only rows with an id in (seenId, latestId]: those added since a query that ran when
+        // seenId was the newest id. Ids only grow, so this is a primary key range.
+        public Builder addedBetween(long seenId, long latestId) {
+            this.addedAfterId = seenId;
+            this.addedUpToId = latestId;
+            return this;
+        }
+
+        public NotificationQuery build() {
+            return new NotificationQuery(this);
+        }
+
+        private static boolean isEmpty(String s) {
+            return s == null || s.trim().isEmpty();
+        }
+    }
+}
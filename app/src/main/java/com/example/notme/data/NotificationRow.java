@@ -0,0 +1,169 @@
+package com.example.notme.data;
+
+import androidx.annotation.Nullable;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import com.example.notme.util.TextCodec;
+
+/**
+ * Storage form of a notification: package and category are ids into the packages and
+ * categories dictionaries (see PackageName, CategoryName), so each row carries two small
+ * integers instead of repeating the same few dozen strings. Only the write path uses this
+ * class; everything that reads notifications goes through NotificationEntity, which is
+ * the notification_details view with the names joined back in.
+ *
+ * Bodies longer than TextCodec.COMPRESS_THRESHOLD are split on the way in: text keeps a
+ * plain preview (what lists show), body holds the whole text compressed, and terms the words
+ * of the rest of it, so the FTS index over title, text and terms covers the whole text.
+ * body and terms are null for every other row.
+ *
+ * occurrences counts identical posts folded into the row (see NotificationEntity.mergeRepeat);
+ * the rollup triggers add it up, so dashboard counts still see every post.
+ */
+// Indexes follow the NotificationDao queries: date ranges, and package / category / ongoing
+// filters and GROUP BYs, with timestamp second so per-day drill-downs are covering scans.
+// The id indexes also serve as the foreign key indexes.
+@Entity(tableName = "notifications",
+        foreignKeys = {
+                @ForeignKey(entity = PackageName.class, parentColumns = "id", childColumns = "packageId"),
+                @ForeignKey(entity = CategoryName.class, parentColumns = "id", childColumns = "categoryId")
+        },
+        indices = {
+                @Index("timestamp"),
+                @Index({"packageId", "timestamp"}),
+                @Index({"categoryId", "timestamp"}),
+                @Index({"isOngoing", "timestamp"})
+        })
+public class NotificationRow {
+
+    @PrimaryKey(autoGenerate = true)
+    private final int id;
+
+    private final Long packageId;
+    private final String title;
+    private final String text;
+    private final long timestamp; // epoch millis, first seen
+    private final boolean isOngoing;
+    private final Long categoryId;
+    private final int actionCount;
+
+    // Last time an ongoing notification with the same key was updated or the same content
+    // was posted again (timestamp is first seen)
+    private final long lastUpdated;
+
+    // Number of posts coalesced into this row
+    @ColumnInfo(defaultValue = "1")
+    private final int updateCount;
+
+    // Number of identical posts this row stands for
+    @ColumnInfo(defaultValue = "1")
+    private final int occurrences;
+
+    // Whole text as a TextCodec blob when text is only its preview
+    @Nullable
+    private final byte[] body;
+
+    // Words of the body missing from the preview (TextCodec.searchTerms), for the FTS index
+    @Nullable
+    private final String terms;
+
+    public NotificationRow(int id, Long packageId, String title, String text, long timestamp,
+                           boolean isOngoing, Long categoryId, int actionCount,
+                           long lastUpdated, int updateCount, int occurrences,
+                           @Nullable byte[] body, @Nullable String terms) {
+        this.id = id;
+        this.packageId = packageId;
+        this.title = title;
+        this.text = text;
+        this.timestamp = timestamp;
+        this.isOngoing = isOngoing;
+        this.categoryId = categoryId;
+        this.actionCount = actionCount;
+        this.lastUpdated = lastUpdated;
+        this.updateCount = updateCount;
+        this.occurrences = occurrences;
+        this.body = body;
+        this.terms = terms;
+    }
+
+    // Row for entity with its names already resolved to dictionary ids (null for null names).
+    // storedBody is the existing blob of a truncated entity read back from the database, whose
+    // text is already the preview; otherwise a long text is compressed here.
+    static NotificationRow of(NotificationEntity entity, Long packageId, Long categoryId,
+                              @Nullable byte[] storedBody) {
+        String text = entity.getText();
+        byte[] body = storedBody;
+        String terms = null;
+        if (body != null) {
+            terms = TextCodec.searchTerms(TextCodec.decompress(body), text);
+        } else if (!entity.isTruncated()) {
+            String whole = text;
+            body = TextCodec.compress(whole);
+            if (body != null) {
+                text = TextCodec.preview(whole);
+                terms = TextCodec.searchTerms(whole, text);
+            }
+        }
+        return new NotificationRow(entity.getId(), packageId, entity.getTitle(), text,
+                entity.getTimestamp(), entity.isOngoing(), categoryId, entity.getActionCount(),
+                entity.getLastUpdated(), entity.getUpdateCount(), entity.getOccurrences(), body, terms);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Long getPackageId() {
+        return packageId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public boolean isOngoing() {
+        return isOngoing;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public int getActionCount() {
+        return actionCount;
+    }
+
+    public long getLastUpdated() {
+        return lastUpdated;
+    }
+
+    public int getUpdateCount() {
+        return updateCount;
+    }
+
+    public int getOccurrences() {
+        return occurrences;
+    }
+
+    @Nullable
+    public byte[] getBody() {
+        return body;
+    }
+
+    @Nullable
+    public String getTerms() {
+        return terms;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.notme.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * One entry of the packages dictionary: an app package name and the id that
+ * notifications.packageId stores for it.
+ * Entries are only ever added, so an id never changes meaning and can be cached (see Dictionaries).
+ */
+@Entity(tableName = "packages", indices = {@Index(value = "name", unique = true)})
+public class PackageName {
+
+    @PrimaryKey(autoGenerate = true)
+    private final long id;
+
+    @NonNull
+    private final String name;
+
+    public PackageName(long id, @NonNull String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    @NonNull
+    public String getName() {
+        return name;
+    }
+}
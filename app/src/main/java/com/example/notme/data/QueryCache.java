@@ -0,0 +1,108 @@
+package com.example.notme.data;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Recent NotificationQuery results (pages and counts), so moving between the dashboard
+ * drill-downs and the research screen with the same filter does not run the same query
+ * again. Keyed by the query itself, which is already normalized: name lists sorted, text as
+ * its FtsQuery expression, days as epoch-millis bounds.
+ *
+ * Room's InvalidationTracker only says that notifications changed, not which rows, so a write
+ * drops every entry it could reach. New rows carry their post time, which is now, so an entry
+ * whose date range ended before today is kept: inserts cannot add to it. Deletes can reach
+ * old rows, so retention and Clear All call clear(). An ongoing row first seen on an earlier
+ * day can still be updated in place; a settled entry shows it as it was until evicted.
+ *
+ * Cached lists are shared between callers and must not be modified.
+ */
+final class QueryCache {
+
+    static final int MAX_ENTRIES = 32;
+    // Larger results are not kept; only unpaged queries get this big
+    static final int MAX_ROWS = 1000;
+
+    private final Map<NotificationQuery, NotificationPage> rows = lru();
+    private final Map<NotificationQuery, Integer> counts = lru();
+
+    // Bumped on every write, so a result read before a write is not stored after it
+    private int generation;
+    private long hits;
+    private long misses;
+
+    // Take before running a query and pass to putRows / putCount
+    synchronized int generation() {
+        return generation;
+    }
+
+    synchronized NotificationPage getRows(NotificationQuery query) {
+        return record(rows.get(query));
+    }
+
+    synchronized Integer getCount(NotificationQuery query) {
+        return record(counts.get(query));
+    }
+
+    // Kept with the newest id read before the rows, for callers that go on to read only newer rows
+    synchronized void putRows(NotificationQuery query, int readGeneration, NotificationPage result) {
+        if (readGeneration == generation && result.getRows().size() <= MAX_ROWS) {
+            rows.put(query, result);
+        }
+    }
+
+    synchronized void putCount(NotificationQuery query, int readGeneration, int count) {
+        if (readGeneration == generation) {
+            counts.put(query, count);
+        }
+    }
+
+    // The notifications table changed: drop every entry except those of settled date ranges
+    synchronized void onWrite() {
+        generation++;
+        long startOfToday = Timestamps.startOfDay(Timestamps.dateDaysAgo(0));
+        rows.keySet().removeIf(query -> !isSettled(query, startOfToday));
+        counts.keySet().removeIf(query -> !isSettled(query, startOfToday));
+    }
+
+    // Rows may have been deleted anywhere: drop everything
+    synchronized void clear() {
+        generation++;
+        rows.clear();
+        counts.clear();
+    }
+
+    synchronized String describeStats() {
+        long lookups = hits + misses;
+        if (lookups == 0) {
+            return "Query cache: no lookups yet";
+        }
+        return String.format(Locale.US, "Query cache: %d hits, %d misses (%.0f%% hit rate), %d entries",
+                hits, misses, 100.0 * hits / lookups, rows.size() + counts.size());
+    }
+
+    private <V> V record(V value) {
+        if (value != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return value;
+    }
+
+    // True when the query's date range ends before today
+    private static boolean isSettled(NotificationQuery query, long startOfToday) {
+        Long to = query.getTo();
+        return to != null && to <= startOfToday;
+    }
+
+    private static <V> Map<NotificationQuery, V> lru() {
+        return new LinkedHashMap<NotificationQuery, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<NotificationQuery, V> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.notme.data;
+
+import android.database.Cursor;
+import android.os.SystemClock;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies a RetentionPolicy without long locks.
+ * Every delete removes at most CHUNK_SIZE of the oldest matching rows in its own
+ * transaction, so ingest flushes and UI reads run between chunks instead of waiting
+ * for the whole cleanup. The triggers keep the FTS index and rollups in step.
+ *
+ * Freed pages are handed back with incremental_vacuum steps of VACUUM_STEP_PAGES, which
+ * needs auto_vacuum=INCREMENTAL. New databases get it when they are created (see
+ * AppDatabase.enableIncrementalVacuum); one created before that is converted by one full
+ * VACUUM, only when the caller allows it (an explicit user request).
+ */
+class RetentionEnforcer {
+
+    static final int CHUNK_SIZE = 500;
+    static final int VACUUM_STEP_PAGES = 256;
+
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    // What one run did
+    static final class Result {
+        long expiredOngoing;
+        long expiredByAge;
+        long overPackageLimit;
+        long overRowLimit;
+        long freedBytes;
+        boolean converted;
+        long elapsedMs;
+
+        long deleted() {
+            return expiredOngoing + expiredByAge + overPackageLimit + overRowLimit;
+        }
+    }
+
+    private final AppDatabase db;
+
+    RetentionEnforcer(AppDatabase db) {
+        this.db = db;
+    }
+
+    // Delete what the policy no longer keeps, then reclaim the space.
+    // allowConversion permits the one-time full VACUUM that enables incremental vacuum.
+    Result run(RetentionPolicy policy, long nowMs, boolean allowConversion) {
+        long start = SystemClock.elapsedRealtime();
+        NotificationDao dao = db.dao();
+        Result result = new Result();
+
+        // Ongoing rows first: they are the cheapest to lose and shrink every later step
+        if (policy.getOngoingMaxAgeHours() > 0) {
+            long before = nowMs - TimeUnit.HOURS.toMillis(policy.getOngoingMaxAgeHours());
+            int deleted;
+            do {
+                deleted = dao.deleteOngoingOlderThan(before, CHUNK_SIZE);
+                result.expiredOngoing += deleted;
+            } while (deleted == CHUNK_SIZE);
+        }
+
+        if (policy.getMaxAgeDays() > 0) {
+            long before = nowMs - TimeUnit.DAYS.toMillis(policy.getMaxAgeDays());
+            int deleted;
+            do {
+                deleted = dao.deleteOlderThan(before, CHUNK_SIZE);
+                result.expiredByAge += deleted;
+            } while (deleted == CHUNK_SIZE);
+        }
+
+        // The package rollups narrow it down to the apps that may be over the limit; rows are
+        // counted only for those, since a row can hold several posts (occurrences)
+        int perPackage = policy.getMaxRowsPerPackage();
+        if (perPackage > 0) {
+            for (NotificationDao.PackageCount pc : dao.getPackagesOver(perPackage)) {
+                // Rows without a package are counted in the '' bucket
+                String packageName = pc.packageName.isEmpty() ? null : pc.packageName;
+                int excess = dao.countRowsOfPackage(packageName) - perPackage;
+                while (excess > 0) {
+                    int deleted = dao.deleteOldestOfPackage(packageName, Math.min(CHUNK_SIZE, excess));
+                    if (deleted == 0) {
+                        break;
+                    }
+                    excess -= deleted;
+                    result.overPackageLimit += deleted;
+                }
+            }
+        }
+
+        // Last, so the overall cap counts what the other rules left. Goes by post time, not id:
+        // imported history has newer ids than the rows it is older than.
+        if (policy.getMaxRows() > 0) {
+            NotificationDao.RowKey cutoff = dao.getFirstKeyBeyond(policy.getMaxRows());
+            if (cutoff != null) {
+                int deleted;
+                do {
+                    deleted = dao.deleteUpTo(cutoff.timestamp, cutoff.id, CHUNK_SIZE);
+                    result.overRowLimit += deleted;
+                } while (deleted == CHUNK_SIZE);
+            }
+        }
+
+        reclaim(result, allowConversion);
+        result.elapsedMs = SystemClock.elapsedRealtime() - start;
+        return result;
+    }
+
+    private void reclaim(Result result, boolean allowConversion) {
+        SupportSQLiteDatabase sql = db.getOpenHelper().getWritableDatabase();
+        long pageSize = pragmaLong(sql, "PRAGMA page_size");
+
+        if (pragmaLong(sql, "PRAGMA auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+            if (!allowConversion) {
+                // Freed pages are still reused by later inserts
+                return;
+            }
+            // auto_vacuum can only be switched on an existing file by rebuilding it, once
+            long freeBefore = pragmaLong(sql, "PRAGMA freelist_count");
+            sql.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+            sql.execSQL("VACUUM");
+            result.converted = true;
+            result.freedBytes = freeBefore * pageSize;
+            return;
+        }
+
+        long free = pragmaLong(sql, "PRAGMA freelist_count");
+        while (free > 0) {
+            // One result row per freed page; the pages are released while stepping through them
+            try (Cursor cursor = sql.query("PRAGMA incremental_vacuum(" + VACUUM_STEP_PAGES + ")")) {
+                while (cursor.moveToNext()) {
+                    // drain
+                }
+            }
+            long remaining = pragmaLong(sql, "PRAGMA freelist_count");
+            if (remaining >= free) {
+                break;
+            }
+            result.freedBytes += (free - remaining) * pageSize;
+            free = remaining;
+        }
+
+        // The vacuum steps went through the WAL; fold them in and shrink it again
+        try (Cursor cursor = sql.query("PRAGMA wal_checkpoint(TRUNCATE)")) {
+            cursor.moveToFirst();
+        }
+    }
+
+    private static long pragmaLong(SupportSQLiteDatabase sql, String pragma) {
+        try (Cursor cursor = sql.query(pragma)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+}
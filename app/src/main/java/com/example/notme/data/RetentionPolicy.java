@@ -0,0 +1,71 @@
+package com.example.notme.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * How much notification history to keep. Each limit is off when 0:
+ *   maxAgeDays         - delete rows older than this
+ *   maxRows            - keep only the newest rows
+ *   maxRowsPerPackage  - keep only the newest rows of each app
+ *   ongoingMaxAgeHours - ongoing rows (progress bars, media) expire after this instead
+ *
+ * Saved in SharedPreferences and enforced by DataRepository in the background.
+ */
+public final class RetentionPolicy {
+
+    private static final String PREFS_NAME = "Retention";
+
+    // Nothing is deleted until the user sets a limit
+    public static final RetentionPolicy KEEP_ALL = new RetentionPolicy(0, 0, 0, 0);
+
+    private final int maxAgeDays;
+    private final int maxRows;
+    private final int maxRowsPerPackage;
+    private final int ongoingMaxAgeHours;
+
+    public RetentionPolicy(int maxAgeDays, int maxRows, int maxRowsPerPackage, int ongoingMaxAgeHours) {
+        this.maxAgeDays = Math.max(0, maxAgeDays);
+        this.maxRows = Math.max(0, maxRows);
+        this.maxRowsPerPackage = Math.max(0, maxRowsPerPackage);
+        this.ongoingMaxAgeHours = Math.max(0, ongoingMaxAgeHours);
+    }
+
+    public static RetentionPolicy load(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return new RetentionPolicy(
+                prefs.getInt("maxAgeDays", 0),
+                prefs.getInt("maxRows", 0),
+                prefs.getInt("maxRowsPerPackage", 0),
+                prefs.getInt("ongoingMaxAgeHours", 0));
+    }
+
+    public void save(Context context) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putInt("maxAgeDays", maxAgeDays)
+                .putInt("maxRows", maxRows)
+                .putInt("maxRowsPerPackage", maxRowsPerPackage)
+                .putInt("ongoingMaxAgeHours", ongoingMaxAgeHours)
+                .apply();
+    }
+
+    public int getMaxAgeDays() {
+        return maxAgeDays;
+    }
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    public int getMaxRowsPerPackage() {
+        return maxRowsPerPackage;
+    }
+
+    public int getOngoingMaxAgeHours() {
+        return ongoingMaxAgeHours;
+    }
+
+    public boolean isKeepAll() {
+        return maxAgeDays == 0 && maxRows == 0 && maxRowsPerPackage == 0 && ongoingMaxAgeHours == 0;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.notme.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pre-aggregated notification counts for the dashboard, one row per (kind, bucket).
+ * Kinds and their buckets:
+ *   package  - package name ('' for null)
+ *   category - category name ('' for null)
+ *   ongoing  - '1' or '0'
+ *   quarter  - UTC quarter hour, as epoch millis / QUARTER_HOUR_MS
+ *
+ * Time is bucketed in UTC so that a row is always taken out of the bucket it was added to,
+ * whatever the device's time zone was in between. Every time zone offset in use is a whole
+ * number of quarter hours, so each quarter hour falls in a single local hour and day, which
+ * DashboardSnapshot works out in the current zone when it reads them.
+ *
+ * The rows are maintained by triggers on notifications, so every insert, coalescing
+ * update, clear and retention delete adjusts them in the same transaction. Each row adds
+ * its occurrences (identical posts folded into it), so the counts are of posts, not rows.
+ * Buckets that drop to zero stay in the table; readers filter on count > 0.
+ */
+@Entity(tableName = "rollups", primaryKeys = {"kind", "bucket"})
+public class Rollup {
+
+    static final long QUARTER_HOUR_MS = 15 * 60_000L;
+
+    @NonNull
+    private String kind;
+
+    @NonNull
+    private String bucket;
+
+    private long count;
+
+    public Rollup(@NonNull String kind, @NonNull String bucket, long count) {
+        this.kind = kind;
+        this.bucket = bucket;
+        this.count = count;
+    }
+
+    @NonNull
+    public String getKind() {
+        return kind;
+    }
+
+    @NonNull
+    public String getBucket() {
+        return bucket;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    // Package and category buckets hold the dictionary names, looked up by primary key
+    private static final String NEW_PACKAGE = "IFNULL((SELECT `name` FROM `packages` WHERE `id` = NEW.`packageId`), '')";
+    private static final String OLD_PACKAGE = "IFNULL((SELECT `name` FROM `packages` WHERE `id` = OLD.`packageId`), '')";
+    private static final String NEW_CATEGORY = "IFNULL((SELECT `name` FROM `categories` WHERE `id` = NEW.`categoryId`), '')";
+    private static final String OLD_CATEGORY = "IFNULL((SELECT `name` FROM `categories` WHERE `id` = OLD.`categoryId`), '')";
+    private static final String NEW_QUARTER = "CAST(NEW.`timestamp` / " + QUARTER_HOUR_MS + " AS TEXT)";
+    private static final String OLD_QUARTER = "CAST(OLD.`timestamp` / " + QUARTER_HOUR_MS + " AS TEXT)";
+
+    // Room doesn't manage triggers, so they are (re)created on every open.
+    // A later schema version that changes them must DROP the old ones in its migration.
+    static void createTriggers(@NonNull SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `rollups_after_insert` AFTER INSERT ON `notifications` BEGIN " +
+                "INSERT INTO `rollups` (`kind`, `bucket`, `count`) VALUES " +
+                "('package', " + NEW_PACKAGE + ", NEW.`occurrences`), " +
+                "('category', " + NEW_CATEGORY + ", NEW.`occurrences`), " +
+                "('ongoing', NEW.`isOngoing`, NEW.`occurrences`), " +
+                "('quarter', " + NEW_QUARTER + ", NEW.`occurrences`) " +
+                "ON CONFLICT (`kind`, `bucket`) DO UPDATE SET `count` = `count` + excluded.`count`; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `rollups_after_delete` AFTER DELETE ON `notifications` BEGIN " +
+                "UPDATE `rollups` SET `count` = `count` - OLD.`occurrences` WHERE " +
+                "(`kind` = 'package' AND `bucket` = " + OLD_PACKAGE + ") OR " +
+                "(`kind` = 'category' AND `bucket` = " + OLD_CATEGORY + ") OR " +
+                "(`kind` = 'ongoing' AND `bucket` = CAST(OLD.`isOngoing` AS TEXT)) OR " +
+                "(`kind` = 'quarter' AND `bucket` = " + OLD_QUARTER + "); END");
+        // Coalescing rewrites title/text on every post; only re-bucket when a grouped column or the
+        // number of folded repeats changed
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `rollups_after_update` AFTER UPDATE OF " +
+                "`packageId`, `categoryId`, `isOngoing`, `timestamp`, `occurrences` ON `notifications` " +
+                "WHEN OLD.`packageId` IS NOT NEW.`packageId` OR OLD.`categoryId` IS NOT NEW.`categoryId` " +
+                "OR OLD.`isOngoing` IS NOT NEW.`isOngoing` OR OLD.`timestamp` IS NOT NEW.`timestamp` " +
+                "OR OLD.`occurrences` IS NOT NEW.`occurrences` BEGIN " +
+                "UPDATE `rollups` SET `count` = `count` - OLD.`occurrences` WHERE " +
+                "(`kind` = 'package' AND `bucket` = " + OLD_PACKAGE + ") OR " +
+                "(`kind` = 'category' AND `bucket` = " + OLD_CATEGORY + ") OR " +
+                "(`kind` = 'ongoing' AND `bucket` = CAST(OLD.`isOngoing` AS TEXT)) OR " +
+                "(`kind` = 'quarter' AND `bucket` = " + OLD_QUARTER + "); " +
+                "INSERT INTO `rollups` (`kind`, `bucket`, `count`) VALUES " +
+                "('package', " + NEW_PACKAGE + ", NEW.`occurrences`), " +
+                "('category', " + NEW_CATEGORY + ", NEW.`occurrences`), " +
+                "('ongoing', NEW.`isOngoing`, NEW.`occurrences`), " +
+                "('quarter', " + NEW_QUARTER + ", NEW.`occurrences`) " +
+                "ON CONFLICT (`kind`, `bucket`) DO UPDATE SET `count` = `count` + excluded.`count`; END");
+    }
+
+    // For a bulk insert that adds its counts with Counts instead. Only inside a transaction
+    // that calls createTriggers again before it commits.
+    static void dropInsertTrigger(@NonNull SupportSQLiteDatabase db) {
+        db.execSQL("DROP TRIGGER IF EXISTS `rollups_after_insert`");
+    }
+
+    /**
+     * What rollups_after_insert would add for a batch of rows, summed per bucket so the batch
+     * costs one upsert per bucket instead of four per row.
+     */
+    static final class Counts {
+
+        private static final String ADD =
+                "INSERT INTO `rollups` (`kind`, `bucket`, `count`) VALUES (?, ?, ?) " +
+                "ON CONFLICT (`kind`, `bucket`) DO UPDATE SET `count` = `count` + excluded.`count`";
+
+        private final Map<String, Long> packages = new HashMap<>();
+        private final Map<String, Long> categories = new HashMap<>();
+        private final Map<Long, Long> quarterHours = new HashMap<>();
+        private long ongoing;
+        private long other;
+
+        void add(NotificationEntity row) {
+            long n = row.getOccurrences();
+            packages.merge(row.getPackageName() == null ? "" : row.getPackageName(), n, Long::sum);
+            categories.merge(row.getCategory() == null ? "" : row.getCategory(), n, Long::sum);
+            if (row.isOngoing()) {
+                ongoing += n;
+            } else {
+                other += n;
+            }
+            quarterHours.merge(row.getTimestamp() / QUARTER_HOUR_MS, n, Long::sum);
+        }
+
+        // Add the counts to the table; run in the transaction that inserts the rows
+        void writeTo(@NonNull SupportSQLiteDatabase db) {
+            for (Map.Entry<String, Long> e : packages.entrySet()) {
+                db.execSQL(ADD, new Object[] {"package", e.getKey(), e.getValue()});
+            }
+            for (Map.Entry<String, Long> e : categories.entrySet()) {
+                db.execSQL(ADD, new Object[] {"category", e.getKey(), e.getValue()});
+            }
+            if (ongoing > 0) {
+                db.execSQL(ADD, new Object[] {"ongoing", "1", ongoing});
+            }
+            if (other > 0) {
+                db.execSQL(ADD, new Object[] {"ongoing", "0", other});
+            }
+            for (Map.Entry<Long, Long> e : quarterHours.entrySet()) {
+                db.execSQL(ADD, new Object[] {"quarter", String.valueOf(e.getKey()), e.getValue()});
+            }
+        }
+    }
+}
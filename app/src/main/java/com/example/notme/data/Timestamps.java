@@ -0,0 +1,56 @@
+package com.example.notme.data;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Conversions between stored epoch-millis timestamps and what the UI shows.
+ * Rows keep raw epoch millis; formatting happens only when a row is displayed
+ * or exported, in the device's current time zone.
+ */
+public final class Timestamps {
+
+    private static final DateTimeFormatter DISPLAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private Timestamps() {
+    }
+
+    // Format epoch millis as "yyyy-MM-dd HH:mm:ss" in local time
+    public static String format(long epochMillis) {
+        return DISPLAY_FORMAT.format(Instant.ofEpochMilli(epochMillis).atZone(ZoneId.systemDefault()));
+    }
+
+    // Parse "yyyy-MM-dd HH:mm:ss" in local time back to epoch millis (the inverse of format)
+    public static long parse(String text) {
+        return LocalDateTime.parse(text, DISPLAY_FORMAT).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // Start of a "yyyy-MM-dd" day in local time, as epoch millis
+    public static long startOfDay(String date) {
+        return LocalDate.parse(date).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // Start of the day after a "yyyy-MM-dd" day, for exclusive upper bounds
+    public static long startOfNextDay(String date) {
+        return LocalDate.parse(date).plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // True when both instants fall in the same local clock hour, so the dashboard shows them in the same hour and day
+    public static boolean sameLocalHour(long epochMillisA, long epochMillisB) {
+        return localHour(epochMillisA).equals(localHour(epochMillisB));
+    }
+
+    private static LocalDateTime localHour(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault())
+                .truncatedTo(ChronoUnit.HOURS);
+    }
+
+    // Local "yyyy-MM-dd" date the given number of days ago (0 = today), as DashboardSnapshot lists days
+    public static String dateDaysAgo(int days) {
+        return LocalDate.now(ZoneId.systemDefault()).minusDays(days).toString();
+    }
+}
@@ -0,0 +1,337 @@
+package com.example.notme.data;
+
+import android.content.Context;
+import android.os.SystemClock;
+import com.example.notme.LogWrapper;
+import com.example.notme.util.ContentHash;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for incoming notifications.
+ * Rows are collected in memory and written in one transaction when either
+ * MAX_BATCH_SIZE rows are pending or FLUSH_DELAY_MS has passed since the
+ * first pending row, whichever comes first.
+ *
+ * Posts that carry a coalescing key (ongoing notifications, keyed by
+ * StatusBarNotification.getKey()) are folded into the row already written for
+ * that key as long as they arrive within the coalescing window of the previous
+ * post. While that row's write is still pending the update is applied in memory;
+ * otherwise it is written as an UPDATE in the next batch.
+ *
+ * Posts without a key are looked up by content hash instead (package, title, text; see
+ * ContentHash). A repeat of a recent post with the same content, category and flags in the
+ * same local hour is folded into that post's row the same way, adding one to its occurrences
+ * rather than writing a row of its own. Keeping to one hour leaves every post in its own
+ * hour and day rollup buckets, so the dashboard counts are unchanged.
+ */
+class WriteBehindQueue {
+
+    private static final String TAG = "WriteBehindQueue";
+
+    static final int MAX_BATCH_SIZE = 100;
+    static final long FLUSH_DELAY_MS = 500;
+    static final long DEFAULT_COALESCE_WINDOW_MS = 60_000;
+    private static final int MAX_TRACKED_KEYS = 256;
+
+    private final ScheduledExecutorService executor;
+    private final Object lock = new Object();
+
+    private List<PendingWrite> pending = new ArrayList<>();
+    private long coalesceWindowMs = DEFAULT_COALESCE_WINDOW_MS;
+    private boolean foldRepeats = true;
+
+    // Most recently posted row per coalescing key, oldest keys evicted first
+    private final Map<String, Slot> slots = new LinkedHashMap<String, Slot>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Slot> eldest) {
+            return size() > MAX_TRACKED_KEYS;
+        }
+    };
+
+    // Most recently posted row per content hash, for posts without a key
+    private final Map<Long, Slot> repeats = new LinkedHashMap<Long, Slot>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Slot> eldest) {
+            return size() > MAX_TRACKED_KEYS;
+        }
+    };
+
+    private boolean timerScheduled;
+    private boolean flushQueued;
+    private Context appContext;
+
+    // Flush counters (guarded by lock)
+    private long flushCount;
+    private long rowCount;
+    private int lastBatchSize;
+    private int maxBatchSize;
+    private long lastFlushMs;
+    private long totalFlushMs;
+    private long maxFlushMs;
+    private long mergedInMemory;
+    private long repeatsFolded;
+    private long repeatsInMemory;
+    private long rowUpdates;
+
+    WriteBehindQueue(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    void setCoalesceWindowMs(long windowMs) {
+        synchronized (lock) {
+            coalesceWindowMs = windowMs;
+        }
+    }
+
+    // Whether repeats of the same content are counted in one row (the default) or each get a row
+    void setFoldRepeats(boolean fold) {
+        synchronized (lock) {
+            foldRepeats = fold;
+            if (!fold) {
+                repeats.clear();
+            }
+        }
+    }
+
+    // Add a row to the pending batch, scheduling a flush if needed.
+    // A non-null key enables coalescing with earlier posts of the same notification;
+    // without one the post may be folded into an earlier one with the same content.
+    void enqueue(Context context, NotificationEntity entity, String key) {
+        boolean flushNow = false;
+        boolean scheduleTimer = false;
+
+        synchronized (lock) {
+            if (appContext == null) {
+                appContext = context.getApplicationContext();
+            }
+
+            long now = SystemClock.elapsedRealtime();
+            Slot slot = key != null ? slots.get(key) : null;
+
+            long hash = 0;
+            Slot repeat = null;
+            if (key == null && foldRepeats) {
+                hash = ContentHash.of(entity.getPackageName(), entity.getTitle(), entity.getText());
+                repeat = repeats.get(hash);
+                if (repeat != null && !(entity.isRepeatOf(repeat.row)
+                        && Timestamps.sameLocalHour(repeat.row.getTimestamp(), entity.getTimestamp()))) {
+                    repeat = null;
+                }
+            }
+
+            if (slot != null && now - slot.lastPostMs <= coalesceWindowMs) {
+                slot.lastPostMs = now;
+                if (fold(slot, entity, false)) {
+                    mergedInMemory++;
+                    return;
+                }
+            } else if (repeat != null) {
+                repeat.lastPostMs = now;
+                repeatsFolded++;
+                if (fold(repeat, entity, true)) {
+                    repeatsInMemory++;
+                    return;
+                }
+            } else {
+                PendingWrite write = new PendingWrite(entity, null, null);
+                if (key != null || foldRepeats) {
+                    Slot newSlot = new Slot(entity, write, now);
+                    write.slot = newSlot;
+                    if (key != null) {
+                        slots.put(key, newSlot);
+                    } else {
+                        repeats.put(hash, newSlot);
+                    }
+                }
+                pending.add(write);
+            }
+
+            if (pending.size() >= MAX_BATCH_SIZE) {
+                if (!flushQueued) {
+                    flushQueued = true;
+                    flushNow = true;
+                }
+            } else if (!timerScheduled) {
+                timerScheduled = true;
+                scheduleTimer = true;
+            }
+        }
+
+        if (flushNow) {
+            executor.execute(this::flush);
+        } else if (scheduleTimer) {
+            executor.schedule(this::flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Fold entity into the row tracked by slot, as an update of the same notification or as a
+    // repeat of its content. Returns true when that row's write is still pending and the post
+    // was applied to it in memory (no extra write); otherwise queues an UPDATE of the row.
+    private boolean fold(Slot slot, NotificationEntity entity, boolean repeat) {
+        if (slot.pending != null) {
+            merge(slot.pending.entity, entity, repeat);
+            return true;
+        }
+        NotificationEntity update = slot.row.copy();
+        merge(update, entity, repeat);
+        PendingWrite write = new PendingWrite(update, slot.row, slot);
+        slot.row = update;
+        slot.pending = write;
+        pending.add(write);
+        return false;
+    }
+
+    private static void merge(NotificationEntity row, NotificationEntity entity, boolean repeat) {
+        if (repeat) {
+            row.mergeRepeat(entity);
+        } else {
+            row.mergeUpdate(entity);
+        }
+    }
+
+    // Stop coalescing future posts into the row for this key
+    void forget(String key) {
+        synchronized (lock) {
+            slots.remove(key);
+        }
+    }
+
+    // Write all pending rows in one transaction. Must run on the repository executor.
+    void flush() {
+        List<PendingWrite> batch;
+        Context context;
+
+        synchronized (lock) {
+            timerScheduled = false;
+            flushQueued = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new ArrayList<>();
+            context = appContext;
+
+            // From here on these rows are in flight; later posts must not mutate them
+            for (PendingWrite write : batch) {
+                if (write.slot != null && write.slot.pending == write) {
+                    write.slot.pending = null;
+                }
+            }
+        }
+
+        List<NotificationEntity> inserts = new ArrayList<>();
+        List<NotificationEntity> updates = new ArrayList<>();
+        for (PendingWrite write : batch) {
+            if (write.target == null) {
+                inserts.add(write.entity);
+            } else {
+                // Flushes run one at a time, so the target's insert has already assigned its id
+                write.entity.setId(write.target.getId());
+                updates.add(write.entity);
+            }
+        }
+
+        AppDatabase db = AppDatabase.getInstance(context);
+        long start = SystemClock.elapsedRealtime();
+        try {
+            NotificationDao dao = db.dao();
+            Dictionaries dictionaries = db.dictionaries();
+            db.runInTransaction(() -> {
+                long[] ids = dao.insertAll(dictionaries.toRows(dao, inserts));
+                for (int i = 0; i < ids.length; i++) {
+                    inserts.get(i).setId((int) ids[i]);
+                }
+                dao.updateAll(dictionaries.toRows(dao, updates));
+            });
+            long elapsed = SystemClock.elapsedRealtime() - start;
+            recordFlush(batch.size(), updates.size(), elapsed);
+            LogWrapper.d(TAG, "flush: Inserted {} rows, updated {} in {} ms", inserts.size(), updates.size(), elapsed);
+        } catch (Exception e) {
+            synchronized (lock) {
+                // Rows that failed to insert have no id to update later
+                slots.clear();
+                repeats.clear();
+            }
+            // Dictionary ids added by the rolled-back transaction no longer exist
+            db.dictionaries().clear();
+            LogWrapper.e(TAG, "flush: Database error, dropped " + batch.size() + " rows", e);
+        }
+    }
+
+    // Drop pending rows without writing them (used before clearing the table)
+    void discard() {
+        synchronized (lock) {
+            pending = new ArrayList<>();
+            slots.clear();
+            repeats.clear();
+        }
+    }
+
+    private void recordFlush(int batchSize, int updateCount, long elapsedMs) {
+        synchronized (lock) {
+            flushCount++;
+            rowUpdates += updateCount;
+            rowCount += batchSize;
+            lastBatchSize = batchSize;
+            maxBatchSize = Math.max(maxBatchSize, batchSize);
+            lastFlushMs = elapsedMs;
+            totalFlushMs += elapsedMs;
+            maxFlushMs = Math.max(maxFlushMs, elapsedMs);
+        }
+    }
+
+    // Human-readable summary of the flush counters
+    String describeStats() {
+        synchronized (lock) {
+            if (flushCount == 0) {
+                return "No batches written yet";
+            }
+            return String.format(Locale.US,
+                "Batches: %d (%d rows)\n" +
+                "Batch size: last %d, avg %.1f, max %d\n" +
+                "Flush time: last %d ms, avg %.1f ms, max %d ms\n" +
+                "Coalesced: %d in memory, %d row updates\n" +
+                "Repeats folded: %d (%d in memory)\n" +
+                "Pending: %d",
+                flushCount, rowCount,
+                lastBatchSize, (double) rowCount / flushCount, maxBatchSize,
+                lastFlushMs, (double) totalFlushMs / flushCount, maxFlushMs,
+                mergedInMemory, rowUpdates,
+                repeatsFolded, repeatsInMemory,
+                pending.size());
+        }
+    }
+
+    // A queued insert (target == null) or an update of the row written for target
+    private static class PendingWrite {
+        final NotificationEntity entity;
+        final NotificationEntity target;
+        Slot slot;
+
+        PendingWrite(NotificationEntity entity, NotificationEntity target, Slot slot) {
+            this.entity = entity;
+            this.target = target;
+            this.slot = slot;
+        }
+    }
+
+    // Coalescing state for one notification key or content hash
+    private static class Slot {
+        NotificationEntity row;
+        PendingWrite pending;
+        long lastPostMs;
+
+        Slot(NotificationEntity row, PendingWrite pending, long lastPostMs) {
+            this.row = row;
+            this.pending = pending;
+            this.lastPostMs = lastPostMs;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.notme.util;
+
+/**
+ * Display names derived from package names.
+ * Plain Java so the JVM benchmarks can run it without Android.
+ */
+public final class AppNames {
+
+    private AppNames() {
+    }
+
+    // Everything after the first segment (e.g., "com.whatsapp" -> "whatsapp"); used by export and senders
+    public static String withoutFirstSegment(String packageName) {
+        if (packageName == null || packageName.isEmpty()) {
+            return "unknown";
+        }
+
+        int firstDotIndex = packageName.indexOf('.');
+
+        if (firstDotIndex != -1 && firstDotIndex < packageName.length() - 1) {
+            return packageName.substring(firstDotIndex + 1);
+        }
+
+        return packageName;
+    }
+
+    // First segment after common prefixes (e.g., "com.google.android.gm" -> "gm"); used on the dashboard
+    public static String shortName(String packageName) {
+        if (packageName == null) return "Unknown";
+
+        // Remove common prefixes
+        String name = packageName;
+        if (name.startsWith("com.")) name = name.substring(4);
+        if (name.startsWith("android.")) name = name.substring(8);
+        if (name.startsWith("google.android.")) name = name.substring(15);
+
+        // Get first part after prefix
+        int dotIndex = name.indexOf('.');
+        if (dotIndex > 0) {
+            name = name.substring(0, dotIndex);
+        }
+
+        return name;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.notme.util;
+
+/**
+ * 64-bit content hash of a notification: FNV-1a over the UTF-16 chars of package name,
+ * title and text. Each field ends with a separator outside the char range, and a null
+ * field mixes in a different one, so ("ab", "c") and ("a", "bc") or null and "" differ.
+ * Used to spot re-posts of the same content; equal hashes still need an equals check.
+ * Plain Java so the JVM benchmarks can run it without Android.
+ */
+public final class ContentHash {
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+    private static final int END_OF_FIELD = 0x10000;
+    private static final int NULL_FIELD = 0x10001;
+
+    private ContentHash() {
+    }
+
+    public static long of(String packageName, String title, String text) {
+        long hash = OFFSET_BASIS;
+        hash = mix(hash, packageName);
+        hash = mix(hash, title);
+        return mix(hash, text);
+    }
+
+    private static long mix(long hash, String field) {
+        if (field == null) {
+            return (hash ^ NULL_FIELD) * PRIME;
+        }
+        for (int i = 0; i < field.length(); i++) {
+            hash = (hash ^ field.charAt(i)) * PRIME;
+        }
+        return (hash ^ END_OF_FIELD) * PRIME;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.notme.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * CSV field encoding shared by every export path.
+ * Plain Java so the JVM benchmarks can run it without Android.
+ */
+public final class CsvFields {
+
+    private CsvFields() {
+    }
+
+    // Quoted field: quotes doubled, line breaks flattened so every row stays on one line.
+    // Null is written as an empty quoted field.
+    public static void writeQuoted(Writer w, String value) throws IOException {
+        w.write('"');
+        if (value != null) {
+            int start = 0;
+            int length = value.length();
+            for (int i = 0; i < length; i++) {
+                char ch = value.charAt(i);
+                if (ch == '"' || ch == '\n' || ch == '\r') {
+                    w.write(value, start, i - start);
+                    if (ch == '"') {
+                        w.write("\"\"");
+                    } else if (ch == '\n') {
+                        w.write(' ');
+                    }
+                    start = i + 1;
+                }
+            }
+            w.write(value, start, length - start);
+        }
+        w.write('"');
+    }
+
+    // value as writeQuoted keeps it, unquoted: "\n" becomes a space and "\r" is dropped.
+    // Importers compare stored text through this to recognise rows that came from a CSV export.
+    public static String flattenLineBreaks(String value) {
+        return value == null ? null : value.replace("\r", "").replace('\n', ' ');
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.notme.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming CSV record reader (RFC 4180): quoted fields with doubled quotes and line breaks
+ * inside them, unquoted fields, and \n or \r\n line ends. Reads through its own char buffer
+ * and copies runs of plain characters at once, so a record costs little more than its strings.
+ * Plain Java so the JVM benchmarks can run it without Android.
+ */
+public final class CsvParser {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader in;
+    private final char[] buffer;
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> fields = new ArrayList<>();
+    private int pos;
+    private int limit;
+    private long line;
+
+    public CsvParser(Reader in) {
+        this.in = in;
+        this.buffer = new char[BUFFER_SIZE];
+    }
+
+    // Fields of the next record, or null at the end of the input. A blank line is one empty
+    // field. The list is reused by the next call.
+    public List<String> next() throws IOException {
+        if (!ensure()) {
+            return null;
+        }
+        line++;
+        fields.clear();
+        while (true) {
+            int end = readField();
+            fields.add(field.toString());
+            if (end != ',') {
+                return fields;
+            }
+        }
+    }
+
+    // Number of the record last returned by next(), counting from 1; its line number unless an
+    // earlier quoted field held a line break (exports never write one)
+    public long getLine() {
+        return line;
+    }
+
+    // Reads one field into field and returns what ended it: ',', '\n' or -1 at the end of input
+    private int readField() throws IOException {
+        field.setLength(0);
+        if (ensure() && buffer[pos] == '"') {
+            pos++;
+            readQuoted();
+        }
+        while (ensure()) {
+            int start = pos;
+            while (pos < limit) {
+                char ch = buffer[pos];
+                if (ch == ',' || ch == '\n' || ch == '\r') {
+                    break;
+                }
+                pos++;
+            }
+            field.append(buffer, start, pos - start);
+            if (pos < limit) {
+                char ch = buffer[pos++];
+                if (ch == '\r' && ensure() && buffer[pos] == '\n') {
+                    pos++;
+                }
+                return ch == ',' ? ',' : '\n';
+            }
+        }
+        return -1;
+    }
+
+    // Quoted part of a field, after its opening quote. Anything between the closing quote and
+    // the next separator is kept, as spreadsheets do.
+    private void readQuoted() throws IOException {
+        while (true) {
+            if (!ensure()) {
+                throw new IOException("Unterminated quoted field on line " + line);
+            }
+            int start = pos;
+            while (pos < limit && buffer[pos] != '"') {
+                pos++;
+            }
+            field.append(buffer, start, pos - start);
+            if (pos < limit) {
+                pos++;
+                if (!ensure() || buffer[pos] != '"') {
+                    return;
+                }
+                field.append('"');
+                pos++;
+            }
+        }
+    }
+
+    // True when at least one char is buffered, refilling the buffer if needed
+    private boolean ensure() throws IOException {
+        if (pos < limit) {
+            return true;
+        }
+        int n = in.read(buffer, 0, buffer.length);
+        pos = 0;
+        limit = Math.max(n, 0);
+        return n > 0;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.notme.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * JSON string encoding for the JSON Lines export.
+ * Plain Java so the JVM benchmarks can run it without Android.
+ */
+public final class JsonFields {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private JsonFields() {
+    }
+
+    // Quoted JSON string with quotes, backslashes and control characters escaped; null is
+    // written as null. Everything else, non-ASCII included, is copied as is.
+    public static void writeString(Writer w, String value) throws IOException {
+        if (value == null) {
+            w.write("null");
+            return;
+        }
+        w.write('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char ch = value.charAt(i);
+            if (ch >= 0x20 && ch != '"' && ch != '\\') {
+                continue;
+            }
+            w.write(value, start, i - start);
+            switch (ch) {
+                case '"': w.write("\\\""); break;
+                case '\\': w.write("\\\\"); break;
+                case '\n': w.write("\\n"); break;
+                case '\r': w.write("\\r"); break;
+                case '\t': w.write("\\t"); break;
+                default:
+                    w.write("\\u00");
+                    w.write(HEX[ch >> 4]);
+                    w.write(HEX[ch & 0xf]);
+                    break;
+            }
+            start = i + 1;
+        }
+        w.write(value, start, length - start);
+        w.write('"');
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.notme.util;
+
+/**
+ * Fixed-width text bar charts for the dashboard cards.
+ * Plain Java so the JVM benchmarks can run it without Android.
+ */
+public final class TextBars {
+
+    public static final int WIDTH = 15;
+
+    private TextBars() {
+    }
+
+    // Bar of WIDTH cells, filled in proportion to count / maxCount (at least one cell when count > 0)
+    public static String bar(int count, int maxCount) {
+        if (maxCount == 0) return "";
+
+        int barLength = (int) ((count * (double) WIDTH) / maxCount);
+        if (barLength < 1 && count > 0) barLength = 1;
+
+        StringBuilder bar = new StringBuilder();
+        for (int i = 0; i < barLength; i++) {
+            bar.append("█");
+        }
+
+        // Add lighter bars for remaining space
+        for (int i = barLength; i < WIDTH; i++) {
+            bar.append("░");
+        }
+
+        return bar.toString();
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.notme.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compressed storage for long notification bodies.
+ * Bodies over COMPRESS_THRESHOLD chars are stored as a preview (the first PREVIEW_LENGTH
+ * chars, kept as plain text for lists and the search index) plus the whole body as a blob:
+ * one format byte followed by raw deflate primed with a preset dictionary of phrases that
+ * recur in notification text, so even a 1-2 KB body compresses well on its own. The search
+ * index cannot read the blob, so searchTerms lists the words of the body past its preview.
+ * Plain Java so the JVM benchmarks can run it without Android.
+ */
+public final class TextCodec {
+
+    public static final int COMPRESS_THRESHOLD = 1024;
+    public static final int PREVIEW_LENGTH = 256;
+
+    // First byte of every blob. A new dictionary or codec gets a new value; old blobs keep theirs.
+    private static final byte FORMAT_DEFLATE_V1 = 1;
+
+    // Deflate finds matches anywhere in the dictionary, but the most common strings go last,
+    // where their distances are shortest. Never edit this: existing blobs depend on it.
+    private static final byte[] DICTIONARY_V1 = (
+            "To unsubscribe from these emails, click here. Manage your notification settings. " +
+            "This email was sent to you because you have an account. Privacy Policy | Terms of Service. " +
+            "If you did not request this, you can safely ignore this email. Do not reply to this message. " +
+            "View this email in your browser. Download the app on the App Store or Google Play. " +
+            "Your verification code is . The code expires in 10 minutes. Never share this code with anyone. " +
+            "Your order has been shipped and is on its way. Track your package. Estimated delivery: " +
+            "Your payment of was successful. Transaction ID: Amount: Balance: Thank you for your purchase. " +
+            "Meeting reminder: starts in 15 minutes. Join with Google Meet. Zoom meeting ID: Calendar invitation " +
+            "Monday Tuesday Wednesday Thursday Friday Saturday Sunday January February March April May June " +
+            "July August September October November December today tomorrow yesterday at am pm " +
+            "Sent from my iPhone. Sent from my Android. On wrote: Forwarded message From: To: Subject: Date: " +
+            "Hi, Hello, Hey, Dear Thanks, Thank you, Best regards, Kind regards, Cheers, Let me know if you have " +
+            "any questions. Please find attached. Looking forward to hearing from you. I hope you are doing well. " +
+            "replied to your comment liked your post mentioned you in a comment started following you " +
+            "shared a photo sent you a message sent a photo sent a voice message missed call new messages " +
+            "in the group chat reacted to your message is typing Download complete Update available " +
+            "Battery low Charging USB connected Tap for more options Tap to view Tap to reply " +
+            "Read more https://www. http:// .com/ .org/ ? & = the and for you your with this that from have " +
+            "are will not can be on in of to is it a an new message messages notification "
+    ).getBytes(StandardCharsets.UTF_8);
+
+    private static final ThreadLocal<Deflater> DEFLATER =
+            ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+    private static final ThreadLocal<Inflater> INFLATER =
+            ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private TextCodec() {
+    }
+
+    public static boolean shouldCompress(String text) {
+        return text != null && text.length() > COMPRESS_THRESHOLD;
+    }
+
+    // Leading part of text for list rows and the search index, cut at a word break when one
+    // is close to PREVIEW_LENGTH and never inside a surrogate pair
+    public static String preview(String text) {
+        if (text == null || text.length() <= PREVIEW_LENGTH) {
+            return text;
+        }
+        int end = PREVIEW_LENGTH;
+        for (int i = end; i > PREVIEW_LENGTH - 32; i--) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                end = i;
+                break;
+            }
+        }
+        if (Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+
+    // Blob for text, or null when compressing would not save space (short or incompressible text)
+    public static byte[] compress(String text) {
+        if (!shouldCompress(text)) {
+            return null;
+        }
+        byte[] input = text.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setDictionary(DICTIONARY_V1);
+        deflater.setInput(input);
+        deflater.finish();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 2 + 16);
+        out.write(FORMAT_DEFLATE_V1);
+        byte[] chunk = new byte[4096];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(chunk);
+            out.write(chunk, 0, n);
+        }
+        // The preview is stored as well, so the blob has to beat the body by more than that
+        int saved = input.length - out.size() - PREVIEW_LENGTH;
+        return saved > 0 ? out.toByteArray() : null;
+    }
+
+    public static String decompress(byte[] blob) {
+        if (blob == null || blob.length == 0 || blob[0] != FORMAT_DEFLATE_V1) {
+            throw new IllegalArgumentException("Unknown text blob format");
+        }
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setDictionary(DICTIONARY_V1);
+        inflater.setInput(blob, 1, blob.length - 1);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(blob.length * 4);
+        byte[] chunk = new byte[4096];
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated text blob");
+                }
+                out.write(chunk, 0, n);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt text blob", e);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    // Words of text that preview does not contain, lower-cased, once each and space separated;
+    // null when there are none. Indexed next to the preview, they make a compressed row
+    // searchable by its whole text for about a tenth of the text's size.
+    public static String searchTerms(String text, String preview) {
+        Set<String> seen = new HashSet<>();
+        addWords(preview, seen, null);
+        StringBuilder terms = new StringBuilder();
+        addWords(text, seen, terms);
+        return terms.length() > 0 ? terms.toString() : null;
+    }
+
+    // Adds each word of text not yet in seen to it, and to out when given. A word is a run of
+    // letters, digits and combining marks, as the unicode61 tokenizer splits them.
+    private static void addWords(String text, Set<String> seen, StringBuilder out) {
+        int start = -1;
+        for (int i = 0; i <= text.length(); ) {
+            int c = i < text.length() ? text.codePointAt(i) : ' ';
+            boolean wordChar = Character.isLetterOrDigit(c) || Character.getType(c) == Character.NON_SPACING_MARK;
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String word = text.substring(start, i).toLowerCase(Locale.ROOT);
+                if (seen.add(word) && out != null) {
+                    if (out.length() > 0) {
+                        out.append(' ');
+                    }
+                    out.append(word);
+                }
+                start = -1;
+            }
+            i += Character.charCount(c);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.notme.data;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ColumnarFormatTest {
+
+    @Test
+    public void roundTripsAcrossRowBlocks() throws IOException {
+        List<NotificationExporter.Row> rows = new ArrayList<>();
+        for (int i = 0; i < ColumnarRowWriter.BLOCK_ROWS * 2 + 7; i++) {
+            // Newest first, as exports are written, with nulls and repeated dictionary names
+            rows.add(row(1714552200000L - i * 1000L, i % 5 == 0 ? null : "com.app" + (i % 7),
+                    i % 3 == 0 ? null : "Title " + i, i % 11 == 0 ? null : "Text " + i + " ünïcödé",
+                    i % 4 == 0 ? null : "cat" + (i % 3), i));
+        }
+        assertRowsEqual(rows, roundTrip(rows));
+    }
+
+    @Test
+    public void roundTripsAcrossStringBlocks() throws IOException {
+        StringBuilder body = new StringBuilder();
+        while (body.length() < 16 * 1024) {
+            body.append("A long body that is repeated until it is large. 长文本 ");
+        }
+        List<NotificationExporter.Row> rows = new ArrayList<>();
+        int count = 2 * ColumnarRowWriter.MAX_BLOCK_STRING_BYTES / body.length() + 3;
+        for (int i = 0; i < count; i++) {
+            rows.add(row(1714552200000L + i, "com.google.android.gm", "Mail " + i, i + " " + body, "email", i));
+        }
+        assertRowsEqual(rows, roundTrip(rows));
+    }
+
+    @Test
+    public void rejectsOtherFiles() {
+        assertThrows(IOException.class,
+                () -> new ColumnarRowReader(new ByteArrayInputStream("timestamp,package\n".getBytes())));
+    }
+
+    private static List<NotificationExporter.Row> roundTrip(List<NotificationExporter.Row> rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ColumnarRowWriter writer = new ColumnarRowWriter(out);
+        for (NotificationExporter.Row row : rows) {
+            writer.write(row);
+        }
+        writer.finish();
+
+        ColumnarRowReader reader = new ColumnarRowReader(new ByteArrayInputStream(out.toByteArray()));
+        List<NotificationExporter.Row> read = new ArrayList<>();
+        NotificationExporter.Row row = new NotificationExporter.Row();
+        while (reader.read(row)) {
+            read.add(copy(row));
+        }
+        return read;
+    }
+
+    private static NotificationExporter.Row row(long timestamp, String packageName, String title,
+                                                String text, String category, int i) {
+        NotificationExporter.Row row = new NotificationExporter.Row();
+        row.timestamp = timestamp;
+        row.packageName = packageName;
+        row.title = title;
+        row.text = text;
+        row.category = category;
+        row.isOngoing = i % 2 == 1;
+        row.actionCount = i % 4;
+        row.occurrences = 1 + i % 9;
+        row.lastUpdated = timestamp + (i % 6) * 60000L;
+        row.updateCount = 1 + i % 300;
+        return row;
+    }
+
+    private static NotificationExporter.Row copy(NotificationExporter.Row from) {
+        NotificationExporter.Row row = new NotificationExporter.Row();
+        row.timestamp = from.timestamp;
+        row.packageName = from.packageName;
+        row.title = from.title;
+        row.text = from.text;
+        row.category = from.category;
+        row.isOngoing = from.isOngoing;
+        row.actionCount = from.actionCount;
+        row.occurrences = from.occurrences;
+        row.lastUpdated = from.lastUpdated;
+        row.updateCount = from.updateCount;
+        return row;
+    }
+
+    private static void assertRowsEqual(List<NotificationExporter.Row> expected, List<NotificationExporter.Row> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            NotificationExporter.Row a = expected.get(i);
+            NotificationExporter.Row b = actual.get(i);
+            String at = "row " + i;
+            assertEquals(at, a.timestamp, b.timestamp);
+            assertEquals(at, a.packageName, b.packageName);
+            assertEquals(at, a.title, b.title);
+            assertEquals(at, a.text, b.text);
+            assertEquals(at, a.category, b.category);
+            assertEquals(at, a.isOngoing, b.isOngoing);
+            assertEquals(at, a.actionCount, b.actionCount);
+            assertEquals(at, a.occurrences, b.occurrences);
+            assertEquals(at, a.lastUpdated, b.lastUpdated);
+            assertEquals(at, a.updateCount, b.updateCount);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.notme.data;
+
+import org.junit.Test;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DashboardSnapshotTest {
+
+    private static final ZoneId BERLIN = ZoneId.of("Europe/Berlin");
+    private static final ZoneId KOLKATA = ZoneId.of("Asia/Kolkata");
+
+    @Test
+    public void placesUtcQuartersInLocalHoursAndDays() {
+        // 23:00 and 23:45 UTC on May 1st
+        List<Rollup> rollups = Arrays.asList(
+                quarter(ZonedDateTime.of(2024, 5, 1, 23, 0, 0, 0, ZoneId.of("UTC")), 2),
+                quarter(ZonedDateTime.of(2024, 5, 1, 23, 45, 0, 0, ZoneId.of("UTC")), 3),
+                new Rollup("ongoing", "0", 5));
+
+        // UTC+2: both in the 01 hour of May 2nd
+        DashboardSnapshot berlin = DashboardSnapshot.fromRollups(rollups, "2024-04-26", BERLIN, 0);
+        assertEquals(1, berlin.getHourly().size());
+        assertEquals("01", berlin.getHourly().get(0).hour);
+        assertEquals(5, berlin.getHourly().get(0).count);
+        assertEquals("2024-05-02", berlin.getLastDays().get(0).date);
+        assertEquals(5, berlin.getTotalCount());
+
+        // UTC+5:30: the same buckets are 04:30 and 05:15 of May 2nd
+        DashboardSnapshot kolkata = DashboardSnapshot.fromRollups(rollups, "2024-04-26", KOLKATA, 0);
+        assertEquals(2, kolkata.getHourly().size());
+        assertEquals("04", kolkata.getHourly().get(0).hour);
+        assertEquals(2, kolkata.getHourly().get(0).count);
+        assertEquals("05", kolkata.getHourly().get(1).hour);
+        assertEquals(3, kolkata.getHourly().get(1).count);
+        assertEquals(KOLKATA, kolkata.getZone());
+    }
+
+    @Test
+    public void keepsTheNewestDaysSinceTheFirstOne() {
+        List<Rollup> rollups = new ArrayList<>();
+        for (int day = 1; day <= 10; day++) {
+            rollups.add(quarter(ZonedDateTime.of(2024, 5, day, 12, 0, 0, 0, BERLIN), day));
+        }
+        DashboardSnapshot snapshot = DashboardSnapshot.fromRollups(rollups, "2024-05-02", BERLIN, 0);
+        assertEquals(DashboardSnapshot.DAYS, snapshot.getLastDays().size());
+        assertEquals("2024-05-10", snapshot.getLastDays().get(0).date);
+        assertEquals("2024-05-04", snapshot.getLastDays().get(DashboardSnapshot.DAYS - 1).date);
+
+        snapshot = DashboardSnapshot.fromRollups(rollups, "2024-05-08", BERLIN, 0);
+        assertEquals(3, snapshot.getLastDays().size());
+        // Every day counts towards the hours
+        assertEquals(55, snapshot.getHourly().get(0).count);
+    }
+
+    private static Rollup quarter(ZonedDateTime time, long count) {
+        long bucket = time.toInstant().toEpochMilli() / Rollup.QUARTER_HOUR_MS;
+        return new Rollup("quarter", String.valueOf(bucket), count);
+    }
+}
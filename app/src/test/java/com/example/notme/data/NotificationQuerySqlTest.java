@@ -0,0 +1,149 @@
+package com.example.notme.data;
+
+import androidx.sqlite.db.SupportSQLiteProgram;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NotificationQuerySqlTest {
+
+    @Test
+    public void padsListsToPowerOfTwoSlots() {
+        SupportSQLiteQuery three = new NotificationQuery.Builder()
+                .packageName("com.slack").packageName("com.whatsapp").packageName("com.spotify.music")
+                .build().toSelect();
+        SupportSQLiteQuery four = new NotificationQuery.Builder()
+                .packageName("a").packageName("b").packageName("c").packageName("d")
+                .build().toSelect();
+
+        // Same slot count, same SQL text; the padding repeats the last (sorted) name
+        assertEquals(four.getSql(), three.getSql());
+        assertTrue(three.getSql().contains("packageName IN (?, ?, ?, ?)"));
+        assertEquals(Arrays.asList("com.slack", "com.spotify.music", "com.whatsapp", "com.whatsapp"), args(three));
+
+        SupportSQLiteQuery five = new NotificationQuery.Builder()
+                .packages(Arrays.asList("a", "b", "c", "d", "e")).build().toSelect();
+        assertEquals(8, five.getArgCount());
+    }
+
+    @Test
+    public void buildsSqlFromShapeNotValues() {
+        NotificationQuery lastWeek = new NotificationQuery.Builder()
+                .between(1714000000000L, 1714600000000L).category("msg").ongoing(false).limit(50).build();
+        NotificationQuery otherWeek = new NotificationQuery.Builder()
+                .between(1713000000000L, 1713600000000L).category("sys").ongoing(true).limit(20).build();
+        assertSame(lastWeek.toSelect().getSql(), otherWeek.toSelect().getSql());
+        assertEquals(Arrays.asList(1714000000000L, 1714600000000L, "msg", 0L, 50L), args(lastWeek.toSelect()));
+
+        // Any difference in the clauses present is a different text
+        List<String> shapes = new ArrayList<>();
+        shapes.add(NotificationQuery.ALL.toSelect().getSql());
+        shapes.add(new NotificationQuery.Builder().text("lunch").build().toSelect().getSql());
+        shapes.add(new NotificationQuery.Builder().ongoing(true).build().toSelect().getSql());
+        shapes.add(new NotificationQuery.Builder().sort(NotificationQuery.Sort.OLDEST_FIRST).build().toSelect().getSql());
+        shapes.add(new NotificationQuery.Builder().category("a").category("b").build().toSelect().getSql());
+        shapes.add(NotificationQuery.ALL.toBuilder().addedBetween(10, 20).build().toSelect().getSql());
+        assertEquals(shapes.size(), shapes.stream().distinct().count());
+    }
+
+    @Test
+    public void pagesByPostTimeThenId() {
+        // An imported row: older than the live one, with a larger id
+        NotificationEntity live = new NotificationEntity("com.slack", "Team", "Standup", 1714552200000L, false, "msg", 0);
+        live.setId(1);
+        NotificationEntity imported = new NotificationEntity("com.slack", "Team", "Retro", 1714000000000L, false, "msg", 0);
+        imported.setId(2);
+
+        NotificationQuery newest = new NotificationQuery.Builder().limit(10).build();
+        assertTrue(newest.comparator().compare(live, imported) < 0);
+        SupportSQLiteQuery next = newest.after(live).toSelect();
+        assertTrue(next.getSql().contains("ORDER BY timestamp DESC, id DESC"));
+        assertEquals(Arrays.asList(1714552200000L, 1714552200000L, 1L, 10L), args(next));
+
+        NotificationQuery byPackage = newest.toBuilder().sort(NotificationQuery.Sort.PACKAGE_ASC).build();
+        assertEquals(Arrays.asList("com.slack", "com.slack", 1714000000000L, 1714000000000L, 2L, 10L),
+                args(byPackage.after(imported).toSelect()));
+    }
+
+    @Test
+    public void matchesEachWordInIndexOrPackageName() {
+        SupportSQLiteQuery query = new NotificationQuery.Builder().text("Whats App!").build().toSelect();
+        assertTrue(query.getSql().contains(FtsQuery.PACKAGE_WORDS + " LIKE ?"));
+        assertEquals(Arrays.asList("whats*", "% whats%", "app*", "% app%"), args(query));
+
+        // The SQL text depends on the number of words, not on the words
+        NotificationQuery one = new NotificationQuery.Builder().text("lunch").build();
+        assertSame(one.toSelect().getSql(), new NotificationQuery.Builder().text("retro").build().toSelect().getSql());
+        assertNotEquals(one.toSelect().getSql(), new NotificationQuery.Builder().text("lunch menu").build().toSelect().getSql());
+    }
+
+    @Test
+    public void normalizesForEquality() {
+        NotificationQuery a = new NotificationQuery.Builder()
+                .packageName("b").packageName("a").packageName("b").text("Lunch!").build();
+        NotificationQuery b = new NotificationQuery.Builder()
+                .packages(Arrays.asList("a", "b")).text("lunch").build();
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertEquals(Arrays.asList("a", "b"), a.getPackages());
+        assertNotEquals(a, b.toBuilder().limit(10).build());
+    }
+
+    private static List<Object> args(SupportSQLiteQuery query) {
+        RecordingProgram program = new RecordingProgram(query.getArgCount());
+        query.bindTo(program);
+        return program.values;
+    }
+
+    // Collects bound values by index
+    private static final class RecordingProgram implements SupportSQLiteProgram {
+        final List<Object> values;
+
+        RecordingProgram(int count) {
+            values = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                values.add(null);
+            }
+        }
+
+        @Override
+        public void bindNull(int index) {
+            values.set(index - 1, null);
+        }
+
+        @Override
+        public void bindLong(int index, long value) {
+            values.set(index - 1, value);
+        }
+
+        @Override
+        public void bindDouble(int index, double value) {
+            values.set(index - 1, value);
+        }
+
+        @Override
+        public void bindString(int index, String value) {
+            values.set(index - 1, value);
+        }
+
+        @Override
+        public void bindBlob(int index, byte[] value) {
+            values.set(index - 1, value);
+        }
+
+        @Override
+        public void clearBindings() {
+            values.replaceAll(value -> null);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
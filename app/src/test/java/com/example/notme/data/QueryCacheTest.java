@@ -0,0 +1,72 @@
+package com.example.notme.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class QueryCacheTest {
+
+    private final QueryCache cache = new QueryCache();
+    private final long startOfToday = Timestamps.startOfDay(Timestamps.dateDaysAgo(0));
+
+    @Test
+    public void keepsSettledRangesAcrossWrites() {
+        NotificationQuery yesterday = new NotificationQuery.Builder()
+                .between(startOfToday - 86_400_000L, startOfToday).build();
+        NotificationQuery today = new NotificationQuery.Builder().between(startOfToday, null).build();
+        put(yesterday, 3);
+        put(today, 5);
+        put(NotificationQuery.ALL, 8);
+
+        cache.onWrite();
+        assertEquals(Integer.valueOf(3), cache.getCount(yesterday));
+        // A kept page still reports the newest id of its own read
+        assertEquals(3, cache.getRows(yesterday).getLatestId());
+        assertNull(cache.getCount(today));
+        assertNull(cache.getRows(NotificationQuery.ALL));
+
+        // Deletes can reach any day
+        cache.clear();
+        assertNull(cache.getCount(yesterday));
+        assertNull(cache.getRows(yesterday));
+    }
+
+    @Test
+    public void dropsResultsReadBeforeAWrite() {
+        int generation = cache.generation();
+        cache.onWrite();
+        cache.putCount(NotificationQuery.ALL, generation, 4);
+        cache.putRows(NotificationQuery.ALL, generation, new NotificationPage(new ArrayList<>(), 7));
+        assertNull(cache.getCount(NotificationQuery.ALL));
+        assertNull(cache.getRows(NotificationQuery.ALL));
+    }
+
+    @Test
+    public void skipsLargeResultsAndEvictsLeastRecentlyUsed() {
+        List<NotificationEntity> large = new ArrayList<>();
+        for (int i = 0; i <= QueryCache.MAX_ROWS; i++) {
+            large.add(null);
+        }
+        cache.putRows(NotificationQuery.ALL, cache.generation(), new NotificationPage(large, 7));
+        assertNull(cache.getRows(NotificationQuery.ALL));
+
+        NotificationQuery first = new NotificationQuery.Builder().limit(1).build();
+        cache.putCount(first, cache.generation(), 1);
+        for (int i = 2; i <= QueryCache.MAX_ENTRIES; i++) {
+            cache.putCount(new NotificationQuery.Builder().limit(i).build(), cache.generation(), i);
+            cache.getCount(first);
+        }
+        cache.putCount(new NotificationQuery.Builder().limit(1000).build(), cache.generation(), 0);
+        assertEquals(Integer.valueOf(1), cache.getCount(first));
+        assertNull(cache.getCount(new NotificationQuery.Builder().limit(2).build()));
+    }
+
+    private void put(NotificationQuery query, int count) {
+        int generation = cache.generation();
+        cache.putCount(query, generation, count);
+        cache.putRows(query, generation, new NotificationPage(new ArrayList<>(), count));
+    }
+}
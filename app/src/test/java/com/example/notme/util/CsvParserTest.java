@@ -0,0 +1,74 @@
+package com.example.notme.util;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CsvParserTest {
+
+    @Test
+    public void readsQuotedAndPlainFields() throws IOException {
+        List<List<String>> records = parse("a,\"b,c\",\"say \"\"hi\"\"\"\n\"two\nlines\",,end\n");
+        assertEquals(2, records.size());
+        assertEquals(Arrays.asList("a", "b,c", "say \"hi\""), records.get(0));
+        assertEquals(Arrays.asList("two\nlines", "", "end"), records.get(1));
+    }
+
+    @Test
+    public void acceptsCrLfAndMissingFinalLineEnd() throws IOException {
+        List<List<String>> records = parse("x,y\r\n\r\nz");
+        assertEquals(3, records.size());
+        assertEquals(Arrays.asList("x", "y"), records.get(0));
+        // A blank line is one empty field
+        assertEquals(Arrays.asList(""), records.get(1));
+        assertEquals(Arrays.asList("z"), records.get(2));
+    }
+
+    @Test
+    public void readsRecordsAcrossBufferRefills() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        String longField = String.join("", Collections.nCopies(1000, "0123456789"));
+        for (int i = 0; i < 20; i++) {
+            csv.append(i).append(",\"").append(longField).append("\"\r\n");
+        }
+        List<List<String>> records = parse(csv.toString());
+        assertEquals(20, records.size());
+        assertEquals("19", records.get(19).get(0));
+        assertEquals(longField, records.get(19).get(1));
+    }
+
+    @Test
+    public void flattensLineBreaksAsWritten() throws IOException {
+        String value = "Notes:\r\n- ship it\n- retro\r";
+        StringWriter written = new StringWriter();
+        CsvFields.writeQuoted(written, value);
+        assertEquals("\"" + CsvFields.flattenLineBreaks(value) + "\"", written.toString());
+        assertEquals("Notes: - ship it - retro", CsvFields.flattenLineBreaks(value));
+    }
+
+    @Test
+    public void reportsUnterminatedQuote() throws IOException {
+        CsvParser parser = new CsvParser(new StringReader("ok\n\"open,field\n"));
+        assertEquals(Arrays.asList("ok"), parser.next());
+        IOException error = assertThrows(IOException.class, parser::next);
+        assertTrue(error.getMessage().contains("line 2"));
+    }
+
+    private static List<List<String>> parse(String csv) throws IOException {
+        CsvParser parser = new CsvParser(new StringReader(csv));
+        List<List<String>> records = new ArrayList<>();
+        List<String> fields;
+        while ((fields = parser.next()) != null) {
+            records.add(new ArrayList<>(fields));
+        }
+        return records;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.notme.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TextCodecTest {
+
+    @Test
+    public void roundTripsLongText() {
+        StringBuilder text = new StringBuilder();
+        while (text.length() <= TextCodec.COMPRESS_THRESHOLD * 4) {
+            text.append("Your order has shipped and will arrive on Tuesday. Grüße, 配送センター 📦 ");
+        }
+        byte[] blob = TextCodec.compress(text.toString());
+        assertNotNull(blob);
+        assertTrue(blob.length < text.length());
+        assertEquals(text.toString(), TextCodec.decompress(blob));
+    }
+
+    @Test
+    public void leavesShortAndIncompressibleTextAlone() {
+        assertNull(TextCodec.compress(null));
+        assertNull(TextCodec.compress("Short message"));
+
+        // Random characters do not shrink by more than the preview stored next to them
+        Random random = new Random(7);
+        char[] noise = new char[TextCodec.COMPRESS_THRESHOLD + 1];
+        for (int i = 0; i < noise.length; i++) {
+            noise[i] = (char) ('!' + random.nextInt(94));
+        }
+        assertNull(TextCodec.compress(new String(noise)));
+    }
+
+    @Test
+    public void cutsPreviewAtWordBreakOrBeforeSurrogatePair() {
+        assertEquals("short", TextCodec.preview("short"));
+
+        StringBuilder words = new StringBuilder();
+        while (words.length() < TextCodec.PREVIEW_LENGTH * 2) {
+            words.append("word ");
+        }
+        String preview = TextCodec.preview(words.toString());
+        assertTrue(preview.length() <= TextCodec.PREVIEW_LENGTH);
+        assertTrue(preview.endsWith("word"));
+
+        char[] emoji = new char[TextCodec.PREVIEW_LENGTH * 2];
+        for (int i = 0; i < emoji.length; i += 2) {
+            emoji[i] = '\uD83D';
+            emoji[i + 1] = '\uDCE6';
+        }
+        // PREVIEW_LENGTH is even, so start one char in to put a pair across the cut
+        String text = "x" + new String(emoji);
+        String cut = TextCodec.preview(text);
+        assertFalse(Character.isHighSurrogate(cut.charAt(cut.length() - 1)));
+    }
+
+    @Test
+    public void listsWordsPastThePreview() {
+        StringBuilder text = new StringBuilder("Quarterly report attached.");
+        while (text.length() <= TextCodec.COMPRESS_THRESHOLD) {
+            text.append(" Please review the numbers before the meeting on Friday.");
+        }
+        text.append(" Closing remark: Café naïve 2024, please REVIEW.");
+        String preview = TextCodec.preview(text.toString());
+        assertEquals("closing remark café naïve 2024", TextCodec.searchTerms(text.toString(), preview));
+        assertNull(TextCodec.searchTerms(preview + " Quarterly", preview));
+    }
+
+    @Test
+    public void rejectsUnknownBlobs() {
+        assertThrows(IllegalArgumentException.class, () -> TextCodec.decompress(new byte[]{9, 1, 2}));
+        byte[] blob = TextCodec.compress(String.join(" ", Collections.nCopies(400, "repeat")));
+        byte[] truncated = Arrays.copyOf(blob, blob.length / 2);
+        assertThrows(IllegalArgumentException.class, () -> TextCodec.decompress(truncated));
+    }
+}
@@ -0,0 +1,49 @@
+// JVM-only JMH benchmarks for the Android-free parts of the app and for the SQLite schema.
+// Run with ./gradlew :benchmark:jmh; results are written to build/reports/jmh/results.json.
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+sourceSets {
+    main {
+        // Compile the app's plain-Java sources directly so the benchmarks measure the shipped code
+        java.srcDir("../app/src/main/java")
+        java.include(
+            "com/example/notme/util/**",
+            "com/example/notme/LogWrapper.java",
+            "com/example/notme/BuildConfig.java",
+            "android/**"
+        )
+    }
+    named("jmh") {
+        // Room's exported schemas, so Schema creates exactly the tables the app does
+        resources.srcDir("../app/schemas")
+    }
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    jmh(libs.sqlite.jdbc)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmhCore)
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("reports/jmh/results.json"))
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    // Adds gc.alloc.rate.norm (bytes allocated per operation) to every result
+    profilers.add("gc")
+    // e.g. ./gradlew :benchmark:jmh -Pjmh.includes=Csv
+    providers.gradleProperty("jmh.includes").orNull?.let { includes.add(it) }
+}
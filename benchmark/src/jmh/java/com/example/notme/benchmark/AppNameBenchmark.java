@@ -0,0 +1,45 @@
+package com.example.notme.benchmark;
+
+import com.example.notme.util.AppNames;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Package name to display name, over a mix of typical package shapes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AppNameBenchmark {
+
+    private final String[] packages = {
+        "com.whatsapp",
+        "com.google.android.gm",
+        "com.android.systemui",
+        "org.telegram.messenger",
+        "android",
+        "com.spotify.music",
+    };
+
+    @Benchmark
+    public void withoutFirstSegment(Blackhole bh) {
+        for (String packageName : packages) {
+            bh.consume(AppNames.withoutFirstSegment(packageName));
+        }
+    }
+
+    @Benchmark
+    public void shortName(Blackhole bh) {
+        for (String packageName : packages) {
+            bh.consume(AppNames.shortName(packageName));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.notme.benchmark;
+
+import com.example.notme.util.TextBars;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dashboard bar rendering for a 24-row hourly chart, the largest card on the dashboard.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BarBenchmark {
+
+    private final int[] counts = new int[24];
+    private int maxCount;
+
+    public BarBenchmark() {
+        for (int hour = 0; hour < counts.length; hour++) {
+            counts[hour] = (hour * 37) % 500 + 1;
+            maxCount = Math.max(maxCount, counts[hour]);
+        }
+    }
+
+    @Benchmark
+    public void hourlyChart(Blackhole bh) {
+        for (int count : counts) {
+            bh.consume(TextBars.bar(count, maxCount));
+        }
+    }
+}
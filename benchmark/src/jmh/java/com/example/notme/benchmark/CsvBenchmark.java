@@ -0,0 +1,106 @@
+package com.example.notme.benchmark;
+
+import com.example.notme.util.CsvFields;
+import com.example.notme.util.CsvParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV field encoding: the streaming CsvFields writer against the replace-chain escaping
+ * and String.format row building the exporter used before. parseRows reads a block of
+ * exported rows back with CsvParser, as the importer does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CsvBenchmark {
+
+    private static final int PARSE_ROWS = 1000;
+
+    @Param({"plain", "quoted", "multiline"})
+    public String shape;
+
+    private String title;
+    private String text;
+    private StringWriter writer;
+    private String exported;
+
+    @Setup
+    public void setUp() {
+        switch (shape) {
+            case "quoted":
+                title = "Alice said \"see you\"";
+                text = "Reply with \"yes\" or \"no\" before \"noon\"";
+                break;
+            case "multiline":
+                title = "3 new messages";
+                text = "First line\nSecond line\r\nThird line with a longer tail of text";
+                break;
+            default:
+                title = "Battery is charging";
+                text = "Connected to USB, 85% remaining until fully charged";
+                break;
+        }
+        writer = new StringWriter(4096);
+
+        StringWriter rows = new StringWriter();
+        try {
+            for (int i = 0; i < PARSE_ROWS; i++) {
+                CsvFields.writeQuoted(rows, "2025-10-09 08:53:20");
+                rows.write(',');
+                CsvFields.writeQuoted(rows, title);
+                rows.write(',');
+                CsvFields.writeQuoted(rows, text);
+                rows.write('\n');
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        exported = rows.toString();
+    }
+
+    @Benchmark
+    public int writeQuoted() throws IOException {
+        writer.getBuffer().setLength(0);
+        CsvFields.writeQuoted(writer, title);
+        writer.write(',');
+        CsvFields.writeQuoted(writer, text);
+        return writer.getBuffer().length();
+    }
+
+    @Benchmark
+    public int legacyFormat() {
+        String row = String.format("\"%s\",\"%s\"\n", legacyEscape(title), legacyEscape(text));
+        return row.length();
+    }
+
+    @Benchmark
+    public int parseRows() throws IOException {
+        CsvParser parser = new CsvParser(new StringReader(exported));
+        int chars = 0;
+        List<String> fields;
+        while ((fields = parser.next()) != null) {
+            chars += fields.get(2).length();
+        }
+        return chars;
+    }
+
+    // DataRepository.escapeCsv before the streaming exporter
+    private static String legacyEscape(String value) {
+        if (value == null) return "";
+        return value.replace("\"", "\"\"").replace("\n", " ").replace("\r", "");
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.notme.benchmark;
+
+import com.example.notme.LogWrapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LogWrapper's in-memory buffer: appends from one and from several threads, and appends
+ * racing with the log viewer's full-buffer reads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LogBufferBenchmark {
+
+    private static final String TAG = "Benchmark";
+    private static final String MESSAGE = "Notification posted: com.example.app (id=42)";
+
+    @Benchmark
+    @Threads(1)
+    public void append() {
+        LogWrapper.d(TAG, MESSAGE);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void appendContended() {
+        LogWrapper.d(TAG, MESSAGE);
+    }
+
+    @Benchmark
+    @Group("viewer")
+    @GroupThreads(3)
+    public void viewerAppend() {
+        LogWrapper.d(TAG, MESSAGE);
+    }
+
+    @Benchmark
+    @Group("viewer")
+    @GroupThreads(1)
+    public int viewerRead() {
+        return LogWrapper.getInstance().getAllLogs().size();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.notme.benchmark;
+
+import com.example.notme.LogWrapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logging done for one incoming notification (NotificationService.onNotificationPosted
+ * plus DataRepository.save), the old eager way against the level-gated API.
+ * Run with the gc profiler (enabled in build.gradle.kts); gc.alloc.rate.norm is the
+ * bytes allocated per notification.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LoggingBenchmark {
+
+    private static final String TAG = "Benchmark";
+
+    // "debug" logs everything, "info" is the runtime-disabled case
+    @Param({"debug", "info"})
+    public String minLevel;
+
+    private final String packageName = "com.whatsapp";
+    private final String title = "Alice";
+    private final String category = "msg";
+    private boolean isOngoing;
+    private int actionCount = 2;
+
+    @Setup
+    public void setUp() {
+        LogWrapper.setMinLevel("info".equals(minLevel) ? LogWrapper.INFO : LogWrapper.DEBUG);
+    }
+
+    @TearDown
+    public void tearDown() {
+        LogWrapper.setMinLevel(LogWrapper.DEBUG);
+    }
+
+    // Before: the message is always built, then dropped or buffered
+    @Benchmark
+    public void eager() {
+        LogWrapper.d(TAG, String.format("onNotificationPosted: pkg=%s, title='%s', ongoing=%b, category=%s, actions=%d",
+            packageName, title, isOngoing, category, actionCount));
+        LogWrapper.d(TAG, "save: Queued for DATABASE with metadata (ongoing=" + isOngoing +
+            ", category=" + category + ", actions=" + actionCount + ")");
+    }
+
+    // After, debug build (HOT_PATH true): guarded concatenation and a parameterized call
+    @Benchmark
+    public void gated() {
+        if (LogWrapper.HOT_PATH && LogWrapper.isDebugEnabled()) {
+            LogWrapper.d(TAG, "onNotificationPosted: pkg=" + packageName + ", title='" + title +
+                "', ongoing=" + isOngoing + ", category=" + category + ", actions=" + actionCount);
+        }
+        if (LogWrapper.HOT_PATH) {
+            LogWrapper.d(TAG, "save: Queued for DATABASE with metadata (ongoing={}, category={}, actions={})",
+                isOngoing, category, actionCount);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.notme.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The app's current schema (version 12) on a plain SQLite connection: the tables, indexes,
+ * view and FTS4 content-sync triggers come from Room's exported schema in app/schemas, and the
+ * dashboard rollup triggers, which Room doesn't export, are copied from Rollup.createTriggers.
+ */
+final class Schema {
+
+    private static final String NEW_PACKAGE = "IFNULL((SELECT `name` FROM `packages` WHERE `id` = NEW.`packageId`), '')";
+    private static final String OLD_PACKAGE = "IFNULL((SELECT `name` FROM `packages` WHERE `id` = OLD.`packageId`), '')";
+    private static final String NEW_CATEGORY = "IFNULL((SELECT `name` FROM `categories` WHERE `id` = NEW.`categoryId`), '')";
+    private static final String OLD_CATEGORY = "IFNULL((SELECT `name` FROM `categories` WHERE `id` = OLD.`categoryId`), '')";
+    private static final String NEW_QUARTER = "CAST(NEW.`timestamp` / 900000 AS TEXT)";
+    private static final String OLD_QUARTER = "CAST(OLD.`timestamp` / 900000 AS TEXT)";
+
+    // Room's export of the current version, on the classpath from app/schemas
+    private static final String EXPORTED_SCHEMA = "/com.example.notme.data.AppDatabase/12.json";
+
+    // The statements Room runs to create that schema: each entity's table, then its indexes and
+    // FTS sync triggers, in entity order, then the views
+    private static final String EXPORTED_DDL = "SELECT `sql` FROM (" +
+            "SELECT e.key AS entity, 0 AS part, 0 AS item, " +
+            "replace(e.value ->> 'createSql', '${TABLE_NAME}', e.value ->> 'tableName') AS `sql` " +
+            "FROM json_each(?1, '$.database.entities') AS e " +
+            "UNION ALL SELECT e.key, 1, i.key, replace(replace(i.value ->> 'createSql', " +
+            "'${INDEX_NAME}', i.value ->> 'name'), '${TABLE_NAME}', e.value ->> 'tableName') " +
+            "FROM json_each(?1, '$.database.entities') AS e, json_each(e.value, '$.indices') AS i " +
+            "UNION ALL SELECT e.key, 2, t.key, t.value " +
+            "FROM json_each(?1, '$.database.entities') AS e, json_each(e.value, '$.contentSyncTriggers') AS t " +
+            "UNION ALL SELECT json_array_length(?1, '$.database.entities'), 0, v.key, " +
+            "replace(v.value ->> 'createSql', '${VIEW_NAME}', v.value ->> 'viewName') " +
+            "FROM json_each(?1, '$.database.views') AS v" +
+            ") ORDER BY entity, part, item";
+
+    // Room doesn't export these; AppDatabase creates them on open (Rollup.createTriggers)
+    private static final String[] ROLLUP_TRIGGERS = {
+        "CREATE TRIGGER IF NOT EXISTS `rollups_after_insert` AFTER INSERT ON `notifications` BEGIN " +
+                "INSERT INTO `rollups` (`kind`, `bucket`, `count`) VALUES " +
+                "('package', " + NEW_PACKAGE + ", NEW.`occurrences`), " +
+                "('category', " + NEW_CATEGORY + ", NEW.`occurrences`), " +
+                "('ongoing', NEW.`isOngoing`, NEW.`occurrences`), " +
+                "('quarter', " + NEW_QUARTER + ", NEW.`occurrences`) " +
+                "ON CONFLICT (`kind`, `bucket`) DO UPDATE SET `count` = `count` + excluded.`count`; END",
+        "CREATE TRIGGER IF NOT EXISTS `rollups_after_delete` AFTER DELETE ON `notifications` BEGIN " +
+                "UPDATE `rollups` SET `count` = `count` - OLD.`occurrences` WHERE " +
+                "(`kind` = 'package' AND `bucket` = " + OLD_PACKAGE + ") OR " +
+                "(`kind` = 'category' AND `bucket` = " + OLD_CATEGORY + ") OR " +
+                "(`kind` = 'ongoing' AND `bucket` = CAST(OLD.`isOngoing` AS TEXT)) OR " +
+                "(`kind` = 'quarter' AND `bucket` = " + OLD_QUARTER + "); END",
+        "CREATE TRIGGER IF NOT EXISTS `rollups_after_update` AFTER UPDATE OF " +
+                "`packageId`, `categoryId`, `isOngoing`, `timestamp`, `occurrences` ON `notifications` " +
+                "WHEN OLD.`packageId` IS NOT NEW.`packageId` OR OLD.`categoryId` IS NOT NEW.`categoryId` " +
+                "OR OLD.`isOngoing` IS NOT NEW.`isOngoing` OR OLD.`timestamp` IS NOT NEW.`timestamp` " +
+                "OR OLD.`occurrences` IS NOT NEW.`occurrences` BEGIN " +
+                "UPDATE `rollups` SET `count` = `count` - OLD.`occurrences` WHERE " +
+                "(`kind` = 'package' AND `bucket` = " + OLD_PACKAGE + ") OR " +
+                "(`kind` = 'category' AND `bucket` = " + OLD_CATEGORY + ") OR " +
+                "(`kind` = 'ongoing' AND `bucket` = CAST(OLD.`isOngoing` AS TEXT)) OR " +
+                "(`kind` = 'quarter' AND `bucket` = " + OLD_QUARTER + "); " +
+                "INSERT INTO `rollups` (`kind`, `bucket`, `count`) VALUES " +
+                "('package', " + NEW_PACKAGE + ", NEW.`occurrences`), " +
+                "('category', " + NEW_CATEGORY + ", NEW.`occurrences`), " +
+                "('ongoing', NEW.`isOngoing`, NEW.`occurrences`), " +
+                "('quarter', " + NEW_QUARTER + ", NEW.`occurrences`) " +
+                "ON CONFLICT (`kind`, `bucket`) DO UPDATE SET `count` = `count` + excluded.`count`; END",
+    };
+
+    // Same connection settings as AppDatabase.applyPragmas, plus the WAL mode Room sets
+    private static final String[] PRAGMAS = {
+        "PRAGMA journal_mode = WAL",
+        "PRAGMA synchronous = NORMAL",
+        "PRAGMA cache_size = -8192",
+        "PRAGMA mmap_size = 67108864",
+        "PRAGMA temp_store = MEMORY",
+        "PRAGMA wal_autocheckpoint = 1000",
+        "PRAGMA journal_size_limit = 8388608",
+        // Room turns foreign keys on for schemas that declare them
+        "PRAGMA foreign_keys = ON",
+    };
+
+    // Package and category are dictionary ids, resolved by the caller as Dictionaries does in the app
+    static final String INSERT = "INSERT INTO `notifications` (`packageId`, `title`, `text`, `timestamp`, " +
+            "`isOngoing`, `categoryId`, `actionCount`, `lastUpdated`, `updateCount`) VALUES (?, ?, ?, ?, ?, ?, ?, ?, 1)";
+
+    // A repeat folded into an existing row. Room rewrites the whole row, but the FTS and rollup
+    // triggers do the same work for this narrower UPDATE.
+    static final String FOLD_REPEAT = "UPDATE `notifications` SET `lastUpdated` = ?, " +
+            "`occurrences` = `occurrences` + 1 WHERE `id` = ?";
+
+    static final String INSERT_PACKAGE = "INSERT INTO `packages` (`id`, `name`) VALUES (?, ?)";
+    static final String INSERT_CATEGORY = "INSERT INTO `categories` (`id`, `name`) VALUES (?, ?)";
+
+    private Schema() {
+    }
+
+    static void create(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : PRAGMAS) {
+                statement.execute(sql);
+            }
+            for (String sql : exportedDdl(connection)) {
+                statement.execute(sql);
+            }
+            for (String sql : ROLLUP_TRIGGERS) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    private static List<String> exportedDdl(Connection connection) throws SQLException {
+        String json;
+        try (InputStream in = Schema.class.getResourceAsStream(EXPORTED_SCHEMA)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing exported schema " + EXPORTED_SCHEMA);
+            }
+            json = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<String> ddl = new ArrayList<>();
+        try (PreparedStatement query = connection.prepareStatement(EXPORTED_DDL)) {
+            query.setString(1, json);
+            try (ResultSet rows = query.executeQuery()) {
+                while (rows.next()) {
+                    ddl.add(rows.getString(1));
+                }
+            }
+        }
+        return ddl;
+    }
+}
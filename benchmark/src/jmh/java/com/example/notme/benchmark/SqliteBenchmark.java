@@ -0,0 +1,224 @@
+package com.example.notme.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingest and read paths of the notifications schema on desktop SQLite (sqlite-jdbc).
+ * Absolute numbers differ from a phone; use them to compare revisions of the schema
+ * and queries, not to predict on-device latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SqliteBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+    private static final int BATCH_SIZE = 100;
+    private static final String[] PACKAGES = {
+        "com.whatsapp", "com.google.android.gm", "com.android.systemui", "org.telegram.messenger",
+        "com.spotify.music", "com.slack", "com.google.android.calendar", "com.android.vending",
+    };
+    private static final String[] CATEGORIES = {null, "msg", "email", "transport", "sys", "event"};
+    private static final String[] WORDS = {
+        "meeting", "download", "battery", "message", "invoice", "delivery", "reminder", "update",
+        "photo", "payment", "weather", "traffic", "playing", "charging", "backup", "security",
+    };
+
+    @Param({"100000"})
+    public int rows;
+
+    private File file;
+    private Connection connection;
+    private PreparedStatement insert;
+    private PreparedStatement foldRepeat;
+    private PreparedStatement pageBefore;
+    private PreparedStatement searchText;
+    private PreparedStatement byPackage;
+    private PreparedStatement packageHistory;
+    private PreparedStatement rollups;
+    private final Random random = new Random(42);
+    private long maxId;
+    private long firstTimestamp;
+    private long clock;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        file = File.createTempFile("notme-bench", ".db");
+        connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        Schema.create(connection);
+        fillDictionary(Schema.INSERT_PACKAGE, PACKAGES);
+        fillDictionary(Schema.INSERT_CATEGORY, CATEGORIES);
+
+        insert = connection.prepareStatement(Schema.INSERT);
+        clock = System.currentTimeMillis() - rows * 60_000L;
+        firstTimestamp = clock;
+        connection.setAutoCommit(false);
+        for (int i = 0; i < rows; i++) {
+            bindRow(insert);
+            insert.executeUpdate();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        try (PreparedStatement analyze = connection.prepareStatement("ANALYZE")) {
+            analyze.execute();
+        }
+        maxId = rows;
+        foldRepeat = connection.prepareStatement(Schema.FOLD_REPEAT);
+
+        pageBefore = connection.prepareStatement(
+                "SELECT * FROM notification_details WHERE timestamp <= ? AND (timestamp < ? OR id < ?) " +
+                        "ORDER BY timestamp DESC, id DESC LIMIT " + PAGE_SIZE);
+        searchText = connection.prepareStatement(
+                "SELECT * FROM notification_details WHERE 1=1 AND id IN (SELECT rowid FROM notifications_fts " +
+                        "WHERE notifications_fts MATCH ? UNION SELECT id FROM notifications WHERE packageId IN " +
+                        "(SELECT id FROM packages WHERE ' ' || REPLACE(REPLACE(name, '.', ' '), '_', ' ') LIKE ?)) ORDER BY timestamp DESC, id DESC LIMIT " + PAGE_SIZE);
+        byPackage = connection.prepareStatement(
+                "SELECT * FROM notification_details WHERE packageName = ? ORDER BY timestamp DESC, id DESC LIMIT 100");
+        packageHistory = connection.prepareStatement(
+                "SELECT strftime('%Y-%m-%d', timestamp / 1000, 'unixepoch', 'localtime') as date, COUNT(*) as count " +
+                        "FROM notifications WHERE packageId = (SELECT id FROM packages WHERE name = ?) " +
+                        "GROUP BY date ORDER BY date DESC LIMIT 30");
+        rollups = connection.prepareStatement("SELECT * FROM rollups WHERE count > 0");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+        file.delete();
+    }
+
+    // One notification per transaction, as NotificationService posts them
+    @Benchmark
+    public int insertSingle() throws SQLException {
+        bindRow(insert);
+        return insert.executeUpdate();
+    }
+
+    // BATCH_SIZE notifications in one transaction, as an import would write them
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int insertBatch() throws SQLException {
+        connection.setAutoCommit(false);
+        int inserted = 0;
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            bindRow(insert);
+            inserted += insert.executeUpdate();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        return inserted;
+    }
+
+    // A repost of recent content counted in its row instead of inserted (see insertSingle)
+    @Benchmark
+    public int foldRepeat() throws SQLException {
+        clock += 1 + random.nextInt(120_000);
+        foldRepeat.setLong(1, clock);
+        foldRepeat.setLong(2, maxId - random.nextInt(PAGE_SIZE));
+        return foldRepeat.executeUpdate();
+    }
+
+    // Main feed page at a random scroll position
+    @Benchmark
+    public int keysetPage() throws SQLException {
+        long timestamp = firstTimestamp + (long) (random.nextDouble() * (clock - firstTimestamp));
+        pageBefore.setLong(1, timestamp);
+        pageBefore.setLong(2, timestamp);
+        pageBefore.setLong(3, Long.MAX_VALUE);
+        return drain(pageBefore);
+    }
+
+    // First page of a research text search
+    @Benchmark
+    public int searchFirstPage() throws SQLException {
+        String word = WORDS[random.nextInt(WORDS.length)];
+        searchText.setString(1, word + "*");
+        searchText.setString(2, "% " + word + "%");
+        return drain(searchText);
+    }
+
+    // Dashboard drill-down into one package
+    @Benchmark
+    public int packageRecent() throws SQLException {
+        byPackage.setString(1, PACKAGES[random.nextInt(PACKAGES.length)]);
+        return drain(byPackage);
+    }
+
+    // Per-day counts for one package, the heaviest dashboard drill-down
+    @Benchmark
+    public int packageDays() throws SQLException {
+        packageHistory.setString(1, PACKAGES[random.nextInt(PACKAGES.length)]);
+        return drain(packageHistory);
+    }
+
+    // Everything the dashboard snapshot reads
+    @Benchmark
+    public int dashboardRollups() throws SQLException {
+        return drain(rollups);
+    }
+
+    // Dictionary ids are the array index + 1; null names get no entry
+    private void fillDictionary(String sql, String[] names) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i] != null) {
+                    statement.setLong(1, i + 1);
+                    statement.setString(2, names[i]);
+                    statement.executeUpdate();
+                }
+            }
+        }
+    }
+
+    private void bindRow(PreparedStatement statement) throws SQLException {
+        clock += 1 + random.nextInt(120_000);
+        int packageIndex = random.nextInt(PACKAGES.length);
+        String packageName = PACKAGES[packageIndex];
+        statement.setLong(1, packageIndex + 1);
+        statement.setString(2, WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]);
+        statement.setString(3, WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                + " " + WORDS[random.nextInt(WORDS.length)] + " from " + packageName);
+        statement.setLong(4, clock);
+        statement.setInt(5, random.nextInt(10) == 0 ? 1 : 0);
+        int categoryIndex = random.nextInt(CATEGORIES.length);
+        if (CATEGORIES[categoryIndex] != null) {
+            statement.setLong(6, categoryIndex + 1);
+        } else {
+            statement.setNull(6, Types.INTEGER);
+        }
+        statement.setInt(7, random.nextInt(4));
+        statement.setLong(8, clock);
+    }
+
+    private static int drain(PreparedStatement statement) throws SQLException {
+        int count = 0;
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
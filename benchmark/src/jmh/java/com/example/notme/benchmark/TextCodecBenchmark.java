@@ -0,0 +1,64 @@
+package com.example.notme.benchmark;
+
+import com.example.notme.util.TextCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-body storage: compressing a body on ingest and decompressing it when it is shown.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TextCodecBenchmark {
+
+    private static final String[] WORDS = {
+        "the", "meeting", "project", "update", "review", "team", "please", "let", "me", "know",
+        "if", "you", "have", "any", "questions", "about", "schedule", "next", "week", "budget",
+        "design", "launch", "customer", "feedback", "report", "attached", "thanks", "tomorrow",
+    };
+
+    // Body length in chars; all are over TextCodec.COMPRESS_THRESHOLD
+    @Param({"1500", "4000"})
+    public int length;
+
+    private String body;
+    private byte[] blob;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder("Hi Alex,\n\n");
+        while (sb.length() < length) {
+            sb.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(12) == 0 ? ". " : " ");
+        }
+        sb.append("\n\nSent from my iPhone. To unsubscribe from these emails, click here.");
+        body = sb.toString();
+        blob = TextCodec.compress(body);
+    }
+
+    @Benchmark
+    public byte[] compress() {
+        return TextCodec.compress(body);
+    }
+
+    @Benchmark
+    public String decompress() {
+        return TextCodec.decompress(blob);
+    }
+
+    @Benchmark
+    public String preview() {
+        return TextCodec.preview(body);
+    }
+}
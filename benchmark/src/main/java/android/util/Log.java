@@ -0,0 +1,31 @@
+package android.util;
+
+/**
+ * Minimal JVM stand-in for android.util.Log so LogWrapper compiles in the benchmark module.
+ * Discards everything; the benchmarks measure the in-memory buffer, not Logcat.
+ */
+public final class Log {
+
+    private Log() {
+    }
+
+    public static int d(String tag, String msg) {
+        return 0;
+    }
+
+    public static int i(String tag, String msg) {
+        return 0;
+    }
+
+    public static int w(String tag, String msg) {
+        return 0;
+    }
+
+    public static int e(String tag, String msg) {
+        return 0;
+    }
+
+    public static int e(String tag, String msg, Throwable tr) {
+        return 0;
+    }
+}
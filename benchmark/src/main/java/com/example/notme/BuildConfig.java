@@ -0,0 +1,12 @@
+package com.example.notme;
+
+/**
+ * Stand-in for the app's generated BuildConfig, matching the debug build.
+ */
+public final class BuildConfig {
+
+    public static final boolean HOT_PATH_LOGS = true;
+
+    private BuildConfig() {
+    }
+}
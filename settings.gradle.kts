@@ -21,3 +21,4 @@ dependencyResolutionManagement {
 
 rootProject.name = "NotMe"
 include(":app")
+include(":benchmark")